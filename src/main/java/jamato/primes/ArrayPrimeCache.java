@@ -0,0 +1,83 @@
+package jamato.primes;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * A prime cache that stores the primes in an int array.
+ *
+ * @author JSiebel
+ *
+ */
+final class ArrayPrimeCache extends PrimeCache{
+	
+	/**
+	 * An array of primes. It is filled up to index {@link #size()} (exclusive) and may contain zeros in the end. When
+	 * the cache grows, the array is replaced by a bigger copy.
+	 */
+	private volatile int[] cache = INITIAL_PRIMES.clone();
+	
+	/**
+	 * Replaces the cache array by a bigger one, up to a maximum size of <code>Primes.NUMBER_OF_INT_PRIMES</code>.
+	 */
+	private void grow(){
+		if (cache.length < Primes.NUMBER_OF_INT_PRIMES / 2){
+			cache = Arrays.copyOf(cache, 2 * cache.length);
+		}else if (cache.length < Primes.NUMBER_OF_INT_PRIMES){
+			cache = Arrays.copyOf(cache, Primes.NUMBER_OF_INT_PRIMES);
+		}else{
+			// the cache is already big enough to hold all int primes
+		}
+	}
+	
+	@Override
+	void append(int[] primes, int count){
+		int size = size();
+		while (size + count > cache.length){
+			grow();
+		}
+		System.arraycopy(primes, 0, cache, size, count);
+	}
+	
+	@Override
+	void releaseMemory(){
+		cache = Arrays.copyOf(cache, size());
+	}
+	
+	@Override
+	boolean contains(int number){
+		int currentSize = size();
+		return Arrays.binarySearch(cache, 0, currentSize, number) >= 0;
+	}
+	
+	@Override
+	int get(int index){
+		return cache[index];
+	}
+	
+	@Override
+	void copy(int fromIndex, int toIndex, int[] target, int offset){
+		System.arraycopy(cache, fromIndex, target, offset, toIndex - fromIndex);
+	}
+	
+	@Override
+	int[] getArray(int fromIndex, int toIndex){
+		return Arrays.copyOfRange(cache, fromIndex, toIndex);
+	}
+	
+	@Override
+	IntStream stream(int fromIndex, int toIndex){
+		return Arrays.stream(cache, fromIndex, toIndex);
+	}
+	
+	@Override
+	int getInsertionIndex(int number){
+		int currentSize = size();
+		int index = Arrays.binarySearch(cache, 0, currentSize, number);
+		if (index < 0){
+			return -index - 1;
+		}else{
+			return index;
+		}
+	}
+}
@@ -0,0 +1,179 @@
+package jamato.primes;
+
+import java.math.BigInteger;
+
+/**
+ * This utility class provides the Baillie-PSW primality test. The test combines a strong Miller-Rabin test to base 2
+ * with a strong Lucas test. It correctly identifies all primes, and no composite number is known to pass it; in
+ * particular, there is none below <code>2^64</code>.
+ *
+ * @author JSiebel
+ *
+ */
+public final class BailliePSWTest{
+	
+	private static final BigInteger TWO = BigInteger.valueOf(2);
+	
+	private BailliePSWTest(){
+		// Utility class
+	}
+	
+	/**
+	 * Checks if a number is a prime according to the Baillie-PSW test.
+	 *
+	 * @param n the number to be checked
+	 * @return <code>true</code> if the number is a prime or a Baillie-PSW pseudoprime, <code>false</code> otherwise
+	 * @see "https://en.wikipedia.org/wiki/Baillie%E2%80%93PSW_primality_test"
+	 */
+	public static boolean test(BigInteger n){
+		if (n.compareTo(TWO) <= 0){
+			return n.equals(TWO);
+		}else if (!n.testBit(0)){
+			return false;
+		}else{
+			return MillerRabinTest.test(n, TWO) && strongLucasTest(n);
+		}
+	}
+	
+	/**
+	 * Checks if an odd number is a prime according to the strong Lucas test with the parameters chosen by Selfridge's
+	 * method: <code>D</code> is the first of 5, -7, 9, -11, ... with the Jacobi symbol <code>(D/n) = -1</code>,
+	 * <code>P = 1</code> and <code>Q = (1 - D) / 4</code>.
+	 *
+	 * @param n the number to be checked, must be odd and greater than 2
+	 * @return <code>true</code> if the number is a prime or a strong Lucas pseudoprime, <code>false</code> otherwise
+	 */
+	static boolean strongLucasTest(BigInteger n){
+		long d = 5;
+		while (true){
+			int jacobi = jacobi(d, n);
+			if (jacobi == -1){
+				break;
+			}else if (jacobi == 0 && n.compareTo(BigInteger.valueOf(Math.abs(d))) > 0){
+				// d and n have a common divisor
+				return false;
+			}else if (d == 13 && isSquare(n)){
+				// There is no suitable d for squares, so they are only checked when it takes a while to find one.
+				return false;
+			}
+			d = d > 0 ? -d - 2 : -d + 2;
+		}
+		BigInteger bigD = BigInteger.valueOf(d);
+		BigInteger q = BigInteger.valueOf((1 - d) / 4);
+		if (!q.gcd(n).equals(BigInteger.ONE) && n.compareTo(q.abs()) > 0){
+			// q and n have a common divisor
+			return false;
+		}
+		
+		// n + 1 = k * 2^s, with k odd
+		BigInteger nPlusOne = n.add(BigInteger.ONE);
+		int s = nPlusOne.getLowestSetBit();
+		BigInteger k = nPlusOne.shiftRight(s);
+		
+		// Calculate U(k), V(k) and Q^k with a binary Lucas chain, starting with U(1) = 1, V(1) = P = 1 and Q^1.
+		BigInteger u = BigInteger.ONE;
+		BigInteger v = BigInteger.ONE;
+		BigInteger qk = q.mod(n);
+		for (int bit = k.bitLength() - 2; bit >= 0; bit--){
+			// U(2i) = U(i) * V(i), V(2i) = V(i)^2 - 2 * Q^i
+			u = u.multiply(v).mod(n);
+			v = v.multiply(v).subtract(qk.shiftLeft(1)).mod(n);
+			qk = qk.multiply(qk).mod(n);
+			if (k.testBit(bit)){
+				// U(i+1) = (P * U(i) + V(i)) / 2, V(i+1) = (D * U(i) + P * V(i)) / 2
+				BigInteger nextU = halve(u.add(v), n);
+				v = halve(bigD.multiply(u).add(v).mod(n), n);
+				u = nextU;
+				qk = qk.multiply(q).mod(n);
+			}
+		}
+		if (u.signum() == 0 || v.signum() == 0){
+			// U(k) ≡ 0 or V(k) ≡ 0 (mod n)
+			return true;
+		}
+		for (int r = 1; r < s; r++){
+			v = v.multiply(v).subtract(qk.shiftLeft(1)).mod(n);
+			if (v.signum() == 0){
+				// V(k * 2^r) ≡ 0 (mod n)
+				return true;
+			}
+			qk = qk.multiply(qk).mod(n);
+		}
+		return false;
+	}
+	
+	/**
+	 * Divides a number by 2 modulo an odd modulus.
+	 *
+	 * @param x a number, must not be negative and less than twice the modulus
+	 * @param n the modulus, must be odd
+	 * @return <code>x / 2 mod n</code>
+	 */
+	private static BigInteger halve(BigInteger x, BigInteger n){
+		if (x.testBit(0)){
+			x = x.add(n);
+		}
+		x = x.shiftRight(1);
+		return x.compareTo(n) >= 0 ? x.subtract(n) : x;
+	}
+	
+	/**
+	 * Checks if the given number is a square.
+	 *
+	 * @param n a number, must not be negative
+	 * @return <code>true</code> if the number is a square
+	 */
+	private static boolean isSquare(BigInteger n){
+		BigInteger root = n.sqrt();
+		return root.multiply(root).equals(n);
+	}
+	
+	/**
+	 * Calculates the Jacobi symbol <code>(a/n)</code>.
+	 *
+	 * @param a a number, must be odd
+	 * @param n a number, must be odd and positive
+	 * @return the Jacobi symbol, -1, 0 or 1
+	 */
+	private static int jacobi(long a, BigInteger n){
+		int result = 1;
+		if (a < 0){
+			// (-1/n) = 1 if n ≡ 1 (mod 4), -1 otherwise
+			a = -a;
+			if (n.testBit(1)){
+				result = -result;
+			}
+		}
+		// (a/n) = (n/a) for odd a, unless both are 3 (mod 4)
+		if ((a & 3) == 3 && n.testBit(1)){
+			result = -result;
+		}
+		return result * jacobi(n.mod(BigInteger.valueOf(a)).longValue(), a);
+	}
+	
+	/**
+	 * Calculates the Jacobi symbol <code>(a/n)</code>.
+	 *
+	 * @param a a number, must not be negative
+	 * @param n a number, must be odd and positive
+	 * @return the Jacobi symbol, -1, 0 or 1
+	 */
+	private static int jacobi(long a, long n){
+		int result = 1;
+		while (a != 0){
+			int twos = Long.numberOfTrailingZeros(a);
+			a >>>= twos;
+			if ((twos & 1) == 1 && ((n & 7) == 3 || (n & 7) == 5)){
+				// (2/n) = -1 if n ≡ 3 or 5 (mod 8)
+				result = -result;
+			}
+			if ((a & 3) == 3 && (n & 3) == 3){
+				result = -result;
+			}
+			long swap = n % a;
+			n = a;
+			a = swap;
+		}
+		return n == 1 ? result : 0;
+	}
+}
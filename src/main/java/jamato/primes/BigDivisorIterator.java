@@ -0,0 +1,74 @@
+package jamato.primes;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An iterator that yields all positive divisors of a number, given its prime factorization. The divisors are returned
+ * in the same order as by the {@link DivisorIterator}.
+ *
+ * @author JSiebel
+ *
+ */
+class BigDivisorIterator implements Iterator<BigInteger>{
+	
+	/** The distinct prime factors. */
+	private final BigInteger[] primes;
+	
+	/** The exponents of the prime factors. */
+	private final int[] exponents;
+	
+	/** The exponents of the prime factors in the next divisor. */
+	private final int[] counters;
+	
+	/**
+	 * The products of the prime powers in the next divisor, starting with the prime at the given index. The next
+	 * divisor is at index 0.
+	 */
+	private final BigInteger[] products;
+	
+	/** <code>true</code> if there are more divisors. */
+	private boolean hasNext = true;
+	
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param primes the distinct prime factors of the number
+	 * @param exponents the exponents of the prime factors
+	 */
+	BigDivisorIterator(BigInteger[] primes, int[] exponents){
+		this.primes = primes;
+		this.exponents = exponents;
+		this.counters = new int[primes.length];
+		this.products = new BigInteger[primes.length + 1];
+		Arrays.fill(products, BigInteger.ONE);
+	}
+	
+	@Override
+	public boolean hasNext(){
+		return hasNext;
+	}
+	
+	@Override
+	public BigInteger next(){
+		if (!hasNext){
+			throw new NoSuchElementException();
+		}
+		BigInteger result = products[0];
+		for (int i = 0; i < primes.length; i++){
+			if (counters[i] < exponents[i]){
+				counters[i]++;
+				products[i] = products[i].multiply(primes[i]);
+				for (int j = 0; j < i; j++){
+					products[j] = products[i];
+				}
+				return result;
+			}
+			counters[i] = 0;
+		}
+		hasNext = false;
+		return result;
+	}
+}
@@ -0,0 +1,280 @@
+package jamato.primes;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An immutable factorization of a positive BigInteger into prime powers. The primes are sorted in ascending order.
+ * <p>
+ * Numbers are factored like in {@link Factorization}; cofactors that fit into a long are passed on to it. Pollard's rho
+ * method takes about <code>p^(1/2)</code> steps to find a prime factor <code>p</code>, so numbers whose two smallest
+ * prime factors are both big take very long to factor.
+ *
+ * @author JSiebel
+ * @see Factorization
+ *
+ */
+public final class BigFactorization{
+	
+	/** The factored number. */
+	private final BigInteger number;
+	
+	/** The distinct prime factors, in ascending order. */
+	private final BigInteger[] primes;
+	
+	/** The exponents of the prime factors. */
+	private final int[] exponents;
+	
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param number the factored number
+	 * @param primes the distinct prime factors, in ascending order
+	 * @param exponents the exponents of the prime factors
+	 */
+	private BigFactorization(BigInteger number, BigInteger[] primes, int[] exponents){
+		this.number = number;
+		this.primes = primes;
+		this.exponents = exponents;
+	}
+	
+	/**
+	 * Factors the given number.
+	 *
+	 * @param number the number to be factored; must be positive
+	 * @return the factorization of the number
+	 * @throws IllegalArgumentException if {@code number} is 0 or negative
+	 */
+	public static BigFactorization of(BigInteger number){
+		if (number.signum() <= 0){
+			throw new IllegalArgumentException("Argument must be positive, but was " + number + ".");
+		}
+		List<BigInteger> factors = new ArrayList<>();
+		BigInteger remainder = number;
+		if (remainder.bitLength() >= Long.SIZE){
+			int twos = remainder.getLowestSetBit();
+			for (int i = 0; i < twos; i++){
+				factors.add(BigInteger.valueOf(2));
+			}
+			remainder = remainder.shiftRight(twos);
+			// Divide by products of odd primes, and check the remainder for each of them. Once the remainder fits into
+			// a long, it is factored like a long.
+			int[] trialPrimes = TrialDivision.PRIMES;
+			int trialPrimeCount = Primes.TRIAL_DIVISION_PRIME_COUNT;
+			for (int i = 1; i < trialPrimeCount && remainder.bitLength() >= Long.SIZE;){
+				int groupStart = i;
+				long product = 1;
+				while (i < trialPrimeCount && product * trialPrimes[i] <= Primes.MAX_TRIAL_DIVISION_PRODUCT){
+					product *= trialPrimes[i++];
+				}
+				long productRemainder = remainder.mod(BigInteger.valueOf(product)).longValue();
+				for (int j = groupStart; j < i; j++){
+					if (TrialDivision.divides(j, (int) productRemainder)){
+						BigInteger p = BigInteger.valueOf(trialPrimes[j]);
+						BigInteger[] quotientAndRemainder = remainder.divideAndRemainder(p);
+						do{
+							factors.add(p);
+							remainder = quotientAndRemainder[0];
+							quotientAndRemainder = remainder.divideAndRemainder(p);
+						}while (quotientAndRemainder[1].signum() == 0);
+					}
+				}
+			}
+		}
+		addFactors(remainder, factors);
+		Collections.sort(factors);
+		
+		BigInteger[] primes = new BigInteger[factors.size()];
+		int[] exponents = new int[factors.size()];
+		int size = 0;
+		for (BigInteger factor : factors){
+			if (size > 0 && primes[size - 1].equals(factor)){
+				exponents[size - 1]++;
+			}else{
+				primes[size] = factor;
+				exponents[size++] = 1;
+			}
+		}
+		return new BigFactorization(number, Arrays.copyOf(primes, size), Arrays.copyOf(exponents, size));
+	}
+	
+	/**
+	 * Adds the prime factors (with multiplicity) of a number to the given list.
+	 *
+	 * @param number the number to be factored; unless it fits into a long, it must not be divisible by any of the
+	 * primes less than 1000
+	 * @param factors the list of factors
+	 */
+	private static void addFactors(BigInteger number, List<BigInteger> factors){
+		if (number.bitLength() < Long.SIZE){
+			Factorization factorization = Factorization.of(number.longValueExact());
+			for (int i = 0; i < factorization.size(); i++){
+				BigInteger p = BigInteger.valueOf(factorization.getPrime(i));
+				for (int e = 0; e < factorization.getExponent(i); e++){
+					factors.add(p);
+				}
+			}
+		}else if (BailliePSWTest.test(number)){
+			factors.add(number);
+		}else{
+			BigInteger divisor = PollardRho.findDivisor(number);
+			addFactors(divisor, factors);
+			addFactors(number.divide(divisor), factors);
+		}
+	}
+	
+	/**
+	 * Returns the factored number.
+	 *
+	 * @return the number
+	 */
+	public BigInteger getNumber(){
+		return number;
+	}
+	
+	/**
+	 * Returns the number of distinct prime factors.
+	 *
+	 * @return the number of distinct prime factors
+	 */
+	public int size(){
+		return primes.length;
+	}
+	
+	/**
+	 * Returns a prime factor.
+	 *
+	 * @param index the index of the prime factor, in ascending order
+	 * @return the prime factor
+	 * @throws IndexOutOfBoundsException if the index is negative, or not less than {@link #size()}
+	 */
+	public BigInteger getPrime(int index){
+		return primes[index];
+	}
+	
+	/**
+	 * Returns the exponent of a prime factor.
+	 *
+	 * @param index the index of the prime factor, in ascending order
+	 * @return the exponent of the prime factor
+	 * @throws IndexOutOfBoundsException if the index is negative, or not less than {@link #size()}
+	 */
+	public int getExponent(int index){
+		return exponents[index];
+	}
+	
+	/**
+	 * Returns the distinct prime factors.
+	 *
+	 * @return a new array of the prime factors, in ascending order
+	 */
+	public BigInteger[] getPrimes(){
+		return primes.clone();
+	}
+	
+	/**
+	 * Returns the exponents of the prime factors.
+	 *
+	 * @return a new array of the exponents, in the order of {@link #getPrimes()}
+	 */
+	public int[] getExponents(){
+		return exponents.clone();
+	}
+	
+	/**
+	 * Returns the number of positive divisors of the number, without enumerating them.
+	 *
+	 * @return the number of divisors
+	 */
+	public BigInteger divisorCount(){
+		BigInteger count = BigInteger.ONE;
+		for (int exponent : exponents){
+			count = count.multiply(BigInteger.valueOf(exponent + 1L));
+		}
+		return count;
+	}
+	
+	/**
+	 * Returns the sum of the positive divisors of the number, without enumerating them.
+	 *
+	 * @return the sum of divisors
+	 */
+	public BigInteger divisorSum(){
+		BigInteger sum = BigInteger.ONE;
+		for (int i = 0; i < primes.length; i++){
+			// 1 + p + ... + p^e = (p^(e+1) - 1) / (p - 1)
+			BigInteger p = primes[i];
+			sum = sum.multiply(p.pow(exponents[i] + 1).subtract(BigInteger.ONE).divide(p.subtract(BigInteger.ONE)));
+		}
+		return sum;
+	}
+	
+	/**
+	 * Returns a stream of the positive divisors of the number. The divisors are calculated lazily, in the same order as
+	 * by {@link Factorization#divisors()}.
+	 *
+	 * @return a stream of divisors
+	 */
+	public Stream<BigInteger> divisors(){
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new BigDivisorIterator(primes, exponents),
+				Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+	}
+	
+	/**
+	 * Returns a stream of the positive divisors of the number in ascending order. The divisors are calculated lazily
+	 * by merging them in a heap, which takes logarithmic time per divisor.
+	 *
+	 * @return a sorted stream of divisors
+	 */
+	public Stream<BigInteger> sortedDivisors(){
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+				new SortedBigDivisorIterator(primes, exponents), Spliterator.DISTINCT | Spliterator.NONNULL
+						| Spliterator.IMMUTABLE | Spliterator.ORDERED | Spliterator.SORTED),
+				false);
+	}
+	
+	@Override
+	public boolean equals(Object obj){
+		if (obj == this){
+			return true;
+		}else if (obj instanceof BigFactorization){
+			return number.equals(((BigFactorization) obj).number);
+		}else{
+			return false;
+		}
+	}
+	
+	@Override
+	public int hashCode(){
+		return number.hashCode();
+	}
+	
+	/**
+	 * Returns the factorization as a product of prime powers, like <code>2^3 * 3 * 7^2</code>. The factorization of 1
+	 * is returned as <code>1</code>.
+	 */
+	@Override
+	public String toString(){
+		if (primes.length == 0){
+			return "1";
+		}
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < primes.length; i++){
+			if (i > 0){
+				builder.append(" * ");
+			}
+			builder.append(primes[i]);
+			if (exponents[i] > 1){
+				builder.append('^').append(exponents[i]);
+			}
+		}
+		return builder.toString();
+	}
+}
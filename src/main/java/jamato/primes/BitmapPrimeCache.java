@@ -0,0 +1,224 @@
+package jamato.primes;
+
+import java.util.Arrays;
+
+/**
+ * A prime cache that stores a bitmap of the numbers coprime to 30. Each int of the bitmap covers 120 numbers, with 8
+ * bits for each 30 numbers (the residues 1, 7, 11, 13, 17, 19, 23 and 29). The primes 2, 3 and 5 are not part of the
+ * bitmap.
+ * <p>
+ * To find primes by their index, the cache stores the number of primes before each block of 16 ints (64 bytes). A
+ * lookup by index searches these ranks and then counts the bits of at most one block.
+ *
+ * @author JSiebel
+ *
+ */
+final class BitmapPrimeCache extends PrimeCache{
+	
+	/** The primes that are not part of the bitmap. */
+	private static final int[] WHEEL_PRIMES = { 2, 3, 5 };
+	
+	/** The residues modulo 30 of the numbers represented in the bitmap. */
+	private static final int[] RESIDUES = { 1, 7, 11, 13, 17, 19, 23, 29 };
+	
+	/** The number of numbers covered by each int of the bitmap. */
+	private static final int WORD_RANGE = 120;
+	
+	/** The number of bitmap ints for which a rank is stored. */
+	private static final int BLOCK_WORDS = 16;
+	
+	/** The number of numbers covered by each block of bitmap ints. */
+	private static final int BLOCK_RANGE = WORD_RANGE * BLOCK_WORDS;
+	
+	/** The number of bitmap ints needed for all int primes. */
+	private static final int MAX_WORDS = (int) ((SegmentedSieve.LIMIT + WORD_RANGE - 1) / WORD_RANGE);
+	
+	/** The distance of the number represented by each bit to the first number covered by its int. */
+	private static final int[] BIT_OFFSET = new int[Integer.SIZE];
+	
+	/** The bit representing each number relative to the first number covered by an int, or -1 for none. */
+	private static final byte[] BIT_INDEX = new byte[WORD_RANGE];
+	
+	/** The number of bits that represent numbers less than each number relative to the first number of an int. */
+	private static final byte[] BITS_BELOW = new byte[WORD_RANGE];
+	
+	static{
+		Arrays.fill(BIT_INDEX, (byte) -1);
+		for (int bit = 0; bit < Integer.SIZE; bit++){
+			BIT_OFFSET[bit] = bit / RESIDUES.length * 30 + RESIDUES[bit % RESIDUES.length];
+			BIT_INDEX[BIT_OFFSET[bit]] = (byte) bit;
+		}
+		for (int offset = 1; offset < WORD_RANGE; offset++){
+			BITS_BELOW[offset] = (byte) (BITS_BELOW[offset - 1] + (BIT_INDEX[offset - 1] < 0 ? 0 : 1));
+		}
+	}
+	
+	/** The bitmap. It is replaced by a bigger copy when the cache grows. */
+	private volatile int[] bits = new int[BLOCK_WORDS];
+	
+	/**
+	 * The number of primes less than the first number of each block. An entry is only valid if all primes below the
+	 * block are cached. The array is replaced by a bigger copy when the cache grows.
+	 */
+	private volatile int[] ranks = { WHEEL_PRIMES.length, 0 };
+	
+	/** The number of valid entries in {@link #ranks}. It is guarded by this cache's lock. */
+	private int rankedBlocks = 1;
+	
+	/**
+	 * Creates a new bitmap cache with the initial primes.
+	 */
+	BitmapPrimeCache(){
+		for (int p : INITIAL_PRIMES){
+			if (p > WHEEL_PRIMES[WHEEL_PRIMES.length - 1]){
+				bits[p / WORD_RANGE] |= 1 << BIT_INDEX[p % WORD_RANGE];
+			}
+		}
+	}
+	
+	@Override
+	void append(int[] primes, int count){
+		int greatestPrime = primes[count - 1];
+		int[] bitmap = bits;
+		int words = greatestPrime / WORD_RANGE + 1;
+		if (words > bitmap.length){
+			bitmap = Arrays.copyOf(bitmap, Math.min(Math.max(words, 2 * bitmap.length), MAX_WORDS));
+			bits = bitmap;
+		}
+		for (int i = 0; i < count; i++){
+			int p = primes[i];
+			bitmap[p / WORD_RANGE] |= 1 << BIT_INDEX[p % WORD_RANGE];
+		}
+		
+		// The rank of a block can be calculated when all primes below it are cached.
+		int blocks = (int) (((long) greatestPrime + 1) / BLOCK_RANGE) + 1;
+		int[] blockRanks = ranks;
+		if (blocks > blockRanks.length){
+			blockRanks = Arrays.copyOf(blockRanks, Math.max(blocks, 2 * blockRanks.length));
+			ranks = blockRanks;
+		}
+		for (; rankedBlocks < blocks; rankedBlocks++){
+			int rank = blockRanks[rankedBlocks - 1];
+			for (int w = (rankedBlocks - 1) * BLOCK_WORDS; w < rankedBlocks * BLOCK_WORDS; w++){
+				rank += Integer.bitCount(bitmap[w]);
+			}
+			blockRanks[rankedBlocks] = rank;
+		}
+	}
+	
+	@Override
+	void releaseMemory(){
+		bits = Arrays.copyOf(bits, max() / WORD_RANGE + 1);
+		ranks = Arrays.copyOf(ranks, rankedBlocks);
+	}
+	
+	@Override
+	boolean contains(int number){
+		if (number <= WHEEL_PRIMES[WHEEL_PRIMES.length - 1]){
+			return Arrays.binarySearch(WHEEL_PRIMES, number) >= 0;
+		}
+		int bit = BIT_INDEX[number % WORD_RANGE];
+		int[] bitmap = bits;
+		int word = number / WORD_RANGE;
+		return bit >= 0 && word < bitmap.length && (bitmap[word] >>> bit & 1) != 0;
+	}
+	
+	@Override
+	boolean hasConstantTimeLookups(){
+		return true;
+	}
+	
+	@Override
+	int get(int index){
+		if (index < WHEEL_PRIMES.length){
+			return WHEEL_PRIMES[index];
+		}
+		long position = locate(index);
+		int word = (int) (position >>> Integer.SIZE);
+		return word * WORD_RANGE + BIT_OFFSET[Integer.numberOfTrailingZeros((int) position)];
+	}
+	
+	@Override
+	void copy(int fromIndex, int toIndex, int[] target, int offset){
+		for (; fromIndex < Math.min(toIndex, WHEEL_PRIMES.length); fromIndex++){
+			target[offset++] = WHEEL_PRIMES[fromIndex];
+		}
+		if (fromIndex == toIndex){
+			return;
+		}
+		long position = locate(fromIndex);
+		int[] bitmap = bits;
+		int word = (int) (position >>> Integer.SIZE);
+		int wordBits = (int) position;
+		for (int i = fromIndex; i < toIndex; i++){
+			while (wordBits == 0){
+				wordBits = bitmap[++word];
+			}
+			target[offset++] = word * WORD_RANGE + BIT_OFFSET[Integer.numberOfTrailingZeros(wordBits)];
+			wordBits &= wordBits - 1;
+		}
+	}
+	
+	/**
+	 * Finds the bit representing the prime with the given index. The index must be less than a size previously
+	 * returned by {@link #size()}, and must not belong to a wheel prime.
+	 *
+	 * @param index the index of a prime
+	 * @return the index of the int containing the bit (in the upper 32 bits), and the value of the int without the bits
+	 * of lower primes (in the lower 32 bits)
+	 */
+	private long locate(int index){
+		// The maximum has to be read before the arrays, so that they contain all primes up to it.
+		int currentMax = max();
+		int[] blockRanks = ranks;
+		int[] bitmap = bits;
+		
+		// Find the last block that starts before the prime.
+		int low = 0;
+		int high = currentMax / BLOCK_RANGE;
+		while (low < high){
+			int middle = (low + high + 1) >>> 1;
+			if (blockRanks[middle] <= index){
+				low = middle;
+			}else{
+				high = middle - 1;
+			}
+		}
+		
+		// Find the int and the bit of the prime.
+		int remaining = index - blockRanks[low];
+		int word = low * BLOCK_WORDS;
+		int wordBits = bitmap[word];
+		while (remaining >= Integer.bitCount(wordBits)){
+			remaining -= Integer.bitCount(wordBits);
+			wordBits = bitmap[++word];
+		}
+		for (; remaining > 0; remaining--){
+			wordBits &= wordBits - 1;
+		}
+		return (long) word << Integer.SIZE | (wordBits & 0xFFFFFFFFL);
+	}
+	
+	@Override
+	int getInsertionIndex(int number){
+		if (number <= WHEEL_PRIMES[WHEEL_PRIMES.length - 1] + 1){
+			int index = Arrays.binarySearch(WHEEL_PRIMES, number);
+			return index < 0 ? -index - 1 : index;
+		}
+		int currentMax = max();
+		if (number > currentMax){
+			// Reading the size here could return a size that belongs to a greater maximum.
+			return getInsertionIndex(currentMax) + 1;
+		}
+		int[] blockRanks = ranks;
+		int[] bitmap = bits;
+		int block = number / BLOCK_RANGE;
+		int word = number / WORD_RANGE;
+		int index = blockRanks[block];
+		for (int w = block * BLOCK_WORDS; w < word; w++){
+			index += Integer.bitCount(bitmap[w]);
+		}
+		int mask = (1 << BITS_BELOW[number % WORD_RANGE]) - 1;
+		return index + Integer.bitCount(bitmap[word] & mask);
+	}
+}
@@ -0,0 +1,201 @@
+package jamato.primes;
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A prime cache that keeps a hot prefix of the primes in a cache of a given layout, and the primes beyond it in chunks
+ * that the garbage collector may reclaim. Chunks that have been reclaimed are sieved again when they are needed, so the
+ * memory held permanently is bounded by the capacity of the hot prefix.
+ * <p>
+ * Each chunk holds {@link #CHUNK_LENGTH} consecutive primes in an int array, referenced softly once it is full. Only
+ * the first prime of each chunk is kept permanently, which is enough to sieve the chunk again.
+ *
+ * @author JSiebel
+ *
+ */
+final class BoundedPrimeCache extends PrimeCache{
+	
+	/** The number of primes in each chunk beyond the hot prefix. */
+	private static final int CHUNK_LENGTH = 1 << 16;
+	
+	/** The maximum number of chunks needed for all int primes. */
+	private static final int MAX_CHUNKS = Primes.NUMBER_OF_INT_PRIMES / CHUNK_LENGTH + 1;
+	
+	/** The cache storing the hot prefix. */
+	private final PrimeCache hot;
+	
+	/** The number of primes in the hot prefix when it is full. */
+	private final int hotCapacity;
+	
+	/** The first prime of each chunk. */
+	private final int[] chunkStarts = new int[MAX_CHUNKS];
+	
+	/** Soft references to the chunks. A reference is replaced when its chunk has been reclaimed and sieved again. */
+	private final AtomicReferenceArray<SoftReference<int[]>> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+	
+	/**
+	 * The chunk that is currently filled. It is referenced strongly, so that it is not reclaimed before it is full. It
+	 * is guarded by this cache's lock.
+	 */
+	private int[] openChunk;
+	
+	/**
+	 * Creates a new bounded cache with the initial primes.
+	 *
+	 * @param layout the layout of the hot prefix
+	 * @param hotCapacity the number of primes in the hot prefix, must not be less than the number of initial primes
+	 */
+	BoundedPrimeCache(PrimeCacheLayout layout, int hotCapacity){
+		this.hot = layout.createCache();
+		this.hotCapacity = hotCapacity;
+	}
+	
+	@Override
+	void append(int[] primes, int count){
+		int size = size();
+		int hotCount = Math.max(Math.min(count, hotCapacity - size), 0);
+		if (hotCount > 0){
+			hot.appendPrimes(primes, hotCount);
+			if (size + hotCount == hotCapacity){
+				hot.trim();
+			}
+		}
+		for (int i = hotCount; i < count;){
+			int tierIndex = size + i - hotCapacity;
+			int chunk = tierIndex / CHUNK_LENGTH;
+			int offset = tierIndex % CHUNK_LENGTH;
+			if (offset == 0){
+				openChunk = new int[CHUNK_LENGTH];
+				chunkStarts[chunk] = primes[i];
+				chunks.set(chunk, new SoftReference<>(openChunk));
+			}
+			int length = Math.min(count - i, CHUNK_LENGTH - offset);
+			System.arraycopy(primes, i, openChunk, offset, length);
+			i += length;
+		}
+	}
+	
+	@Override
+	void releaseMemory(){
+		hot.trim();
+		for (int chunk = 0; chunk < MAX_CHUNKS; chunk++){
+			SoftReference<int[]> reference = chunks.get(chunk);
+			if (reference != null && reference.get() != openChunk){
+				reference.clear();
+			}
+		}
+	}
+	
+	@Override
+	boolean contains(int number){
+		// The size has to be read before the chunks, so that they contain all primes below it.
+		int tierSize = size() - hotCapacity;
+		if (tierSize <= 0 || number < chunkStarts[0]){
+			return hot.contains(number);
+		}
+		int chunk = findChunk(number, tierSize);
+		return Arrays.binarySearch(getChunk(chunk), 0, chunkSize(chunk, tierSize), number) >= 0;
+	}
+	
+	@Override
+	int get(int index){
+		if (index < hotCapacity){
+			return hot.get(index);
+		}
+		int tierIndex = index - hotCapacity;
+		return getChunk(tierIndex / CHUNK_LENGTH)[tierIndex % CHUNK_LENGTH];
+	}
+	
+	@Override
+	void copy(int fromIndex, int toIndex, int[] target, int offset){
+		if (fromIndex < hotCapacity){
+			int hotToIndex = Math.min(toIndex, hotCapacity);
+			hot.copy(fromIndex, hotToIndex, target, offset);
+			offset += hotToIndex - fromIndex;
+			fromIndex = hotToIndex;
+		}
+		while (fromIndex < toIndex){
+			int tierIndex = fromIndex - hotCapacity;
+			int chunkOffset = tierIndex % CHUNK_LENGTH;
+			int length = Math.min(toIndex - fromIndex, CHUNK_LENGTH - chunkOffset);
+			System.arraycopy(getChunk(tierIndex / CHUNK_LENGTH), chunkOffset, target, offset, length);
+			fromIndex += length;
+			offset += length;
+		}
+	}
+	
+	@Override
+	int getInsertionIndex(int number){
+		// The size has to be read before the chunks, so that they contain all primes below it.
+		int tierSize = size() - hotCapacity;
+		if (tierSize <= 0 || number <= chunkStarts[0]){
+			return hot.getInsertionIndex(number);
+		}
+		int chunk = findChunk(number, tierSize);
+		int index = Arrays.binarySearch(getChunk(chunk), 0, chunkSize(chunk, tierSize), number);
+		return hotCapacity + chunk * CHUNK_LENGTH + (index < 0 ? -index - 1 : index);
+	}
+	
+	/**
+	 * Finds the last chunk that starts at or below the given number.
+	 *
+	 * @param number a number, must not be less than the first prime of the first chunk
+	 * @param tierSize the number of primes beyond the hot prefix
+	 * @return the index of the chunk
+	 */
+	private int findChunk(int number, int tierSize){
+		int index = Arrays.binarySearch(chunkStarts, 0, (tierSize - 1) / CHUNK_LENGTH + 1, number);
+		return index < 0 ? -index - 2 : index;
+	}
+	
+	/**
+	 * Returns the number of cached primes in the given chunk.
+	 *
+	 * @param chunk the index of the chunk
+	 * @param tierSize the number of primes beyond the hot prefix
+	 * @return the number of primes in the chunk
+	 */
+	private static int chunkSize(int chunk, int tierSize){
+		return Math.min(CHUNK_LENGTH, tierSize - chunk * CHUNK_LENGTH);
+	}
+	
+	/**
+	 * Returns the primes of the given chunk, sieving them again if the chunk has been reclaimed. Only full chunks can
+	 * be reclaimed.
+	 *
+	 * @param chunk the index of a chunk that has been created
+	 * @return the primes of the chunk
+	 */
+	private int[] getChunk(int chunk){
+		int[] primes = chunks.get(chunk).get();
+		if (primes == null){
+			primes = sieveChunk(chunkStarts[chunk]);
+			chunks.set(chunk, new SoftReference<>(primes));
+		}
+		return primes;
+	}
+	
+	/**
+	 * Sieves a full chunk of primes.
+	 *
+	 * @param start the first prime of the chunk
+	 * @return the primes of the chunk
+	 */
+	private static int[] sieveChunk(int start){
+		int[] primes = new int[CHUNK_LENGTH];
+		int[] segmentPrimes = new int[SegmentedSieve.SEGMENT_BYTES + 1];
+		SegmentedSieve sieve = new SegmentedSieve();
+		int count = 0;
+		long low = SegmentedSieve.alignLowerBound(start);
+		while (count < CHUNK_LENGTH){
+			sieve.sieve(low, Math.min(low + SegmentedSieve.SEGMENT_LENGTH, SegmentedSieve.LIMIT));
+			int length = Math.min(sieve.copyPrimes(segmentPrimes, 0), CHUNK_LENGTH - count);
+			System.arraycopy(segmentPrimes, 0, primes, count, length);
+			count += length;
+			low += SegmentedSieve.SEGMENT_LENGTH;
+		}
+		return primes;
+	}
+}
\ No newline at end of file
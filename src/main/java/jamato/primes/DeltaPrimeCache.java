@@ -0,0 +1,166 @@
+package jamato.primes;
+
+import java.util.Arrays;
+
+/**
+ * A prime cache that stores the gaps between consecutive primes. The gaps between odd primes are even and less than
+ * 512 in the int range (the greatest one is 292, after 1453168141), so half of each gap fits in a byte. Every 64th
+ * prime is additionally stored as a checkpoint, so that a prime can be found by decoding at most 63 gaps.
+ *
+ * @author JSiebel
+ *
+ */
+final class DeltaPrimeCache extends PrimeCache{
+	
+	/** The binary logarithm of the distance between two checkpoints. */
+	private static final int CHECKPOINT_SHIFT = 6;
+	
+	/**
+	 * Half the distance of each prime to its predecessor, as an unsigned value. The entries for the primes 2 and 3 are
+	 * unused. The array is replaced by a bigger copy when the cache grows.
+	 */
+	private volatile byte[] halfGaps = new byte[INITIAL_PRIMES.length];
+	
+	/**
+	 * Every 64th prime, starting with the prime at index 0. The array is replaced by a bigger copy when the cache
+	 * grows.
+	 */
+	private volatile int[] checkpoints = { 2 };
+	
+	/**
+	 * Creates a new delta cache with the initial primes.
+	 */
+	DeltaPrimeCache(){
+		for (int i = 2; i < INITIAL_PRIMES.length; i++){
+			halfGaps[i] = (byte) ((INITIAL_PRIMES[i] - INITIAL_PRIMES[i - 1]) >>> 1);
+		}
+	}
+	
+	@Override
+	void append(int[] primes, int count){
+		int size = size();
+		int previous = max();
+		byte[] gaps = halfGaps;
+		if (size + count > gaps.length){
+			gaps = Arrays.copyOf(gaps, Math.min(Math.max(size + count, 2 * gaps.length), Primes.NUMBER_OF_INT_PRIMES));
+		}
+		int[] points = checkpoints;
+		int checkpointCount = ((size + count - 1) >>> CHECKPOINT_SHIFT) + 1;
+		if (checkpointCount > points.length){
+			points = Arrays.copyOf(points, Math.max(checkpointCount, 2 * points.length));
+		}
+		for (int i = 0; i < count; i++){
+			int p = primes[i];
+			int index = size + i;
+			gaps[index] = (byte) ((p - previous) >>> 1);
+			if ((index & ((1 << CHECKPOINT_SHIFT) - 1)) == 0){
+				points[index >>> CHECKPOINT_SHIFT] = p;
+			}
+			previous = p;
+		}
+		halfGaps = gaps;
+		checkpoints = points;
+	}
+	
+	@Override
+	void releaseMemory(){
+		int size = size();
+		halfGaps = Arrays.copyOf(halfGaps, size);
+		checkpoints = Arrays.copyOf(checkpoints, ((size - 1) >>> CHECKPOINT_SHIFT) + 1);
+	}
+	
+	@Override
+	boolean contains(int number){
+		long position = search(number);
+		return (int) position == number;
+	}
+	
+	@Override
+	int get(int index){
+		if (index < 2){
+			return INITIAL_PRIMES[index];
+		}
+		byte[] gaps = halfGaps;
+		int checkpoint = index >>> CHECKPOINT_SHIFT;
+		int i = checkpoint << CHECKPOINT_SHIFT;
+		int value = checkpoints[checkpoint];
+		if (i == 0){
+			// The gap between 2 and 3 is odd, so decoding starts at 3.
+			i = 1;
+			value = 3;
+		}
+		while (i < index){
+			value += (gaps[++i] & 0xFF) << 1;
+		}
+		return value;
+	}
+	
+	@Override
+	void copy(int fromIndex, int toIndex, int[] target, int offset){
+		if (fromIndex == toIndex){
+			return;
+		}
+		byte[] gaps = halfGaps;
+		int value = get(fromIndex);
+		target[offset++] = value;
+		if (fromIndex == 0 && toIndex > 1){
+			value = 3;
+			target[offset++] = value;
+			fromIndex++;
+		}
+		for (int i = fromIndex + 1; i < toIndex; i++){
+			value += (gaps[i] & 0xFF) << 1;
+			target[offset++] = value;
+		}
+	}
+	
+	@Override
+	int getInsertionIndex(int number){
+		return (int) (search(number) >>> Integer.SIZE);
+	}
+	
+	/**
+	 * Searches the given number in the cache.
+	 *
+	 * @param number a number
+	 * @return the number's insertion index (in the upper 32 bits), and the prime at that index or 0 if there is none
+	 * (in the lower 32 bits)
+	 */
+	private long search(int number){
+		// The size has to be read before the arrays, so that they contain all primes below it.
+		int currentSize = size();
+		int[] points = checkpoints;
+		byte[] gaps = halfGaps;
+		
+		if (number <= 3){
+			int index = number <= 2 ? 0 : 1;
+			return (long) index << Integer.SIZE | INITIAL_PRIMES[index];
+		}
+		
+		// Find the last checkpoint that is less than the number.
+		int low = 0;
+		int high = (currentSize - 1) >>> CHECKPOINT_SHIFT;
+		while (low < high){
+			int middle = (low + high + 1) >>> 1;
+			if (points[middle] < number){
+				low = middle;
+			}else{
+				high = middle - 1;
+			}
+		}
+		
+		int index = low << CHECKPOINT_SHIFT;
+		int value = points[low];
+		if (index == 0){
+			index = 1;
+			value = 3;
+		}
+		while (value < number){
+			if (++index == currentSize){
+				return (long) index << Integer.SIZE;
+			}
+			value += (gaps[index] & 0xFF) << 1;
+		}
+		return (long) index << Integer.SIZE | value;
+	}
+}
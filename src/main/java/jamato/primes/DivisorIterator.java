@@ -0,0 +1,74 @@
+package jamato.primes;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * An iterator that yields all positive divisors of a number, given its prime factorization. The exponents of the
+ * primes are counted up like the digits of a number with mixed radix, with the smallest prime changing fastest. For
+ * example, the divisors of <code>2^2 * 3</code> are returned in the order 1, 2, 4, 3, 6, 12.
+ *
+ * @author JSiebel
+ *
+ */
+class DivisorIterator implements PrimitiveIterator.OfLong{
+	
+	/** The distinct prime factors. */
+	private final long[] primes;
+	
+	/** The exponents of the prime factors. */
+	private final int[] exponents;
+	
+	/** The exponents of the prime factors in the next divisor. */
+	private final int[] counters;
+	
+	/**
+	 * The products of the prime powers in the next divisor, starting with the prime at the given index. The next
+	 * divisor is at index 0.
+	 */
+	private final long[] products;
+	
+	/** <code>true</code> if there are more divisors. */
+	private boolean hasNext = true;
+	
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param primes the distinct prime factors of the number
+	 * @param exponents the exponents of the prime factors
+	 */
+	DivisorIterator(long[] primes, int[] exponents){
+		this.primes = primes;
+		this.exponents = exponents;
+		this.counters = new int[primes.length];
+		this.products = new long[primes.length + 1];
+		Arrays.fill(products, 1);
+	}
+	
+	@Override
+	public boolean hasNext(){
+		return hasNext;
+	}
+	
+	@Override
+	public long nextLong(){
+		if (!hasNext){
+			throw new NoSuchElementException();
+		}
+		long result = products[0];
+		for (int i = 0; i < primes.length; i++){
+			if (counters[i] < exponents[i]){
+				counters[i]++;
+				products[i] *= primes[i];
+				for (int j = 0; j < i; j++){
+					products[j] = products[i];
+				}
+				return result;
+			}
+			counters[i] = 0;
+		}
+		hasNext = false;
+		return result;
+	}
+}
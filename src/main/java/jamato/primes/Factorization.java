@@ -0,0 +1,279 @@
+package jamato.primes;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An immutable factorization of a positive long number into prime powers. The primes are sorted in ascending order.
+ * <p>
+ * Numbers are factored by trial division with small primes, followed by a primality test and Pollard's rho method (see
+ * {@link PollardRho}) for the remaining cofactor. This finds factors of any size, including two 32-bit factors of a
+ * 64-bit semiprime.
+ *
+ * @author JSiebel
+ * @see BigFactorization
+ *
+ */
+public final class Factorization{
+	
+	/** The factorization of 1, which has no prime factors. */
+	public static final Factorization ONE = new Factorization(1, new long[0], new int[0]);
+	
+	/** The greatest number of prime factors (counted with multiplicity) of a positive long. */
+	private static final int MAX_FACTORS = Long.SIZE - 1;
+	
+	/** The factored number. */
+	private final long number;
+	
+	/** The distinct prime factors, in ascending order. */
+	private final long[] primes;
+	
+	/** The exponents of the prime factors. */
+	private final int[] exponents;
+	
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param number the factored number
+	 * @param primes the distinct prime factors, in ascending order
+	 * @param exponents the exponents of the prime factors
+	 */
+	Factorization(long number, long[] primes, int[] exponents){
+		this.number = number;
+		this.primes = primes;
+		this.exponents = exponents;
+	}
+	
+	/**
+	 * Factors the given number.
+	 *
+	 * @param number the number to be factored; must be positive
+	 * @return the factorization of the number
+	 * @throws IllegalArgumentException if {@code number} is 0 or negative
+	 */
+	public static Factorization of(long number){
+		if (number <= 0){
+			throw new IllegalArgumentException("Argument must be positive, but was " + number + ".");
+		}
+		long[] factors = new long[MAX_FACTORS];
+		int count = 0;
+		int twos = Long.numberOfTrailingZeros(number);
+		for (; count < twos; count++){
+			factors[count] = 2;
+		}
+		long remainder = number >>> twos;
+		for (int i = 1; i < Primes.TRIAL_DIVISION_PRIME_COUNT; i++){
+			int p = TrialDivision.PRIMES[i];
+			if ((long) p * p > remainder){
+				break;
+			}
+			while (TrialDivision.divides(i, remainder)){
+				factors[count++] = p;
+				remainder = TrialDivision.divide(i, remainder);
+			}
+		}
+		count = addFactors(remainder, factors, count);
+		Arrays.sort(factors, 0, count);
+		return group(number, factors, count);
+	}
+	
+	/**
+	 * Adds the prime factors of a number without small prime factors to the given array.
+	 *
+	 * @param number the number to be factored; it must be 1, a prime, or not divisible by any of the
+	 * primes less than 1000
+	 * @param factors the array of factors
+	 * @param count the number of factors in the array
+	 * @return the new number of factors in the array
+	 */
+	private static int addFactors(long number, long[] factors, int count){
+		if (number == 1){
+			return count;
+		}else if (Primes.isPrime(number)){
+			factors[count++] = number;
+			return count;
+		}else{
+			long divisor = PollardRho.findDivisor(number);
+			count = addFactors(divisor, factors, count);
+			return addFactors(number / divisor, factors, count);
+		}
+	}
+	
+	/**
+	 * Creates a factorization from sorted prime factors.
+	 *
+	 * @param number the factored number
+	 * @param factors the prime factors with multiplicity, in ascending order
+	 * @param count the number of prime factors
+	 * @return the factorization
+	 */
+	private static Factorization group(long number, long[] factors, int count){
+		long[] primes = new long[count];
+		int[] exponents = new int[count];
+		int size = 0;
+		for (int i = 0; i < count; i++){
+			if (size > 0 && primes[size - 1] == factors[i]){
+				exponents[size - 1]++;
+			}else{
+				primes[size] = factors[i];
+				exponents[size++] = 1;
+			}
+		}
+		return new Factorization(number, Arrays.copyOf(primes, size), Arrays.copyOf(exponents, size));
+	}
+	
+	/**
+	 * Returns the factored number.
+	 *
+	 * @return the number
+	 */
+	public long getNumber(){
+		return number;
+	}
+	
+	/**
+	 * Returns the number of distinct prime factors.
+	 *
+	 * @return the number of distinct prime factors
+	 */
+	public int size(){
+		return primes.length;
+	}
+	
+	/**
+	 * Returns a prime factor.
+	 *
+	 * @param index the index of the prime factor, in ascending order
+	 * @return the prime factor
+	 * @throws IndexOutOfBoundsException if the index is negative, or not less than {@link #size()}
+	 */
+	public long getPrime(int index){
+		return primes[index];
+	}
+	
+	/**
+	 * Returns the exponent of a prime factor.
+	 *
+	 * @param index the index of the prime factor, in ascending order
+	 * @return the exponent of the prime factor
+	 * @throws IndexOutOfBoundsException if the index is negative, or not less than {@link #size()}
+	 */
+	public int getExponent(int index){
+		return exponents[index];
+	}
+	
+	/**
+	 * Returns the distinct prime factors.
+	 *
+	 * @return a new array of the prime factors, in ascending order
+	 */
+	public long[] getPrimes(){
+		return primes.clone();
+	}
+	
+	/**
+	 * Returns the exponents of the prime factors.
+	 *
+	 * @return a new array of the exponents, in the order of {@link #getPrimes()}
+	 */
+	public int[] getExponents(){
+		return exponents.clone();
+	}
+	
+	/**
+	 * Returns the number of positive divisors of the number, without enumerating them.
+	 *
+	 * @return the number of divisors
+	 */
+	public int divisorCount(){
+		int count = 1;
+		for (int exponent : exponents){
+			count *= exponent + 1;
+		}
+		return count;
+	}
+	
+	/**
+	 * Returns the sum of the positive divisors of the number, without enumerating them.
+	 *
+	 * @return the sum of divisors
+	 * @throws ArithmeticException if the sum does not fit into a long
+	 */
+	public long divisorSum(){
+		long sum = 1;
+		for (int i = 0; i < primes.length; i++){
+			// 1 + p + ... + p^e
+			long primePowerSum = 1;
+			for (int e = 0; e < exponents[i]; e++){
+				primePowerSum = Math.addExact(Math.multiplyExact(primePowerSum, primes[i]), 1);
+			}
+			sum = Math.multiplyExact(sum, primePowerSum);
+		}
+		return sum;
+	}
+	
+	/**
+	 * Returns a stream of the positive divisors of the number. The divisors are calculated lazily; the smallest prime
+	 * changes fastest, so the divisors of <code>2^2 * 3</code> are returned in the order 1, 2, 4, 3, 6, 12.
+	 *
+	 * @return a stream of divisors, whose size is {@link #divisorCount()}
+	 */
+	public LongStream divisors(){
+		return StreamSupport.longStream(Spliterators.spliterator(new DivisorIterator(primes, exponents), divisorCount(),
+				Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+	}
+	
+	/**
+	 * Returns a stream of the positive divisors of the number in ascending order. The divisors are calculated lazily
+	 * by merging them in a heap, which takes logarithmic time per divisor.
+	 *
+	 * @return a sorted stream of divisors, whose size is {@link #divisorCount()}
+	 */
+	public LongStream sortedDivisors(){
+		return StreamSupport.longStream(Spliterators.spliterator(new SortedDivisorIterator(primes, exponents),
+				divisorCount(), Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE
+						| Spliterator.ORDERED | Spliterator.SORTED),
+				false);
+	}
+	
+	@Override
+	public boolean equals(Object obj){
+		if (obj == this){
+			return true;
+		}else if (obj instanceof Factorization){
+			return number == ((Factorization) obj).number;
+		}else{
+			return false;
+		}
+	}
+	
+	@Override
+	public int hashCode(){
+		return Long.hashCode(number);
+	}
+	
+	/**
+	 * Returns the factorization as a product of prime powers, like <code>2^3 * 3 * 7^2</code>. The factorization of 1
+	 * is returned as <code>1</code>.
+	 */
+	@Override
+	public String toString(){
+		if (primes.length == 0){
+			return "1";
+		}
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < primes.length; i++){
+			if (i > 0){
+				builder.append(" * ");
+			}
+			builder.append(primes[i]);
+			if (exponents[i] > 1){
+				builder.append('^').append(exponents[i]);
+			}
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,115 @@
+package jamato.primes;
+
+/**
+ * Modular arithmetic for a fixed odd int modulus using Montgomery multiplication. Numbers are represented by their
+ * Montgomery form <code>x * 2^32 mod n</code>, so that products can be reduced with multiplications and shifts instead
+ * of a 64-bit division. Only creating an instance requires divisions.
+ *
+ * @author JSiebel
+ * @see "https://en.wikipedia.org/wiki/Montgomery_modular_multiplication"
+ *
+ */
+final class IntMontgomery{
+	
+	/** The modulus. */
+	final int modulus;
+	
+	/** The inverse of the modulus modulo <code>2^32</code>. */
+	private final int inverse;
+	
+	/** <code>2^64 mod n</code>, used to convert numbers to their Montgomery form. */
+	private final int rSquared;
+	
+	/** The Montgomery form of 1, <code>2^32 mod n</code>. */
+	final int one;
+	
+	/** The Montgomery form of -1, <code>n - one</code>. */
+	final int minusOne;
+	
+	/**
+	 * Creates a new instance for the given modulus.
+	 *
+	 * @param modulus the modulus, must be odd and greater than 1
+	 */
+	IntMontgomery(int modulus){
+		this.modulus = modulus;
+		
+		this.inverse = inverse(modulus);
+		this.one = (int) ((1L << Integer.SIZE) % modulus);
+		this.minusOne = modulus - one;
+		this.rSquared = (int) ((long) one * one % modulus);
+	}
+	
+	/**
+	 * Converts a number to its Montgomery form.
+	 *
+	 * @param x a number, must not be negative and less than the modulus
+	 * @return <code>x * 2^32 mod n</code>
+	 */
+	int toMontgomery(int x){
+		return multiply(x, rSquared);
+	}
+	
+	/**
+	 * Multiplies two numbers in Montgomery form.
+	 *
+	 * @param a a number in Montgomery form
+	 * @param b a number in Montgomery form
+	 * @return the Montgomery form of the product
+	 */
+	int multiply(int a, int b){
+		return multiply(a, b, modulus, inverse);
+	}
+	
+	/**
+	 * Raises a number in Montgomery form to the given power.
+	 *
+	 * @param base a number in Montgomery form
+	 * @param exponent the exponent, must not be negative
+	 * @return the Montgomery form of the power
+	 */
+	int pow(int base, int exponent){
+		int result = one;
+		while (exponent > 0){
+			if ((exponent & 1) == 1){
+				result = multiply(result, base);
+			}
+			exponent >>>= 1;
+			base = multiply(base, base);
+		}
+		return result;
+	}
+	
+	/**
+	 * Calculates the inverse of an odd number modulo <code>2^32</code>.
+	 *
+	 * @param modulus an odd number
+	 * @return the inverse
+	 */
+	static int inverse(int modulus){
+		// Newton's iteration doubles the number of correct low bits, and any odd number is its own inverse modulo 8.
+		int x = modulus;
+		for (int i = 0; i < 4; i++){
+			x *= 2 - modulus * x;
+		}
+		return x;
+	}
+	
+	/**
+	 * Multiplies two numbers in Montgomery form. This method allows multiplying without creating an instance.
+	 *
+	 * @param a a number in Montgomery form
+	 * @param b a number in Montgomery form
+	 * @param modulus the modulus, must be odd
+	 * @param inverse the inverse of the modulus, as calculated by {@link #inverse(int)}
+	 * @return the Montgomery form of the product
+	 */
+	static int multiply(int a, int b, int modulus, int inverse){
+		long product = (long) a * b;
+		long m = ((int) product * inverse) & 0xFFFFFFFFL;
+		// The lower 32 bits of m * n are equal to those of the product, so they cancel out.
+		int result = (int) ((product >>> Integer.SIZE) - (m * modulus >>> Integer.SIZE));
+		// Add the modulus if the result is negative, without an unpredictable branch.
+		return result + (modulus & (result >> 31));
+	}
+}
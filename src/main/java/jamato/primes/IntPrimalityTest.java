@@ -0,0 +1,98 @@
+package jamato.primes;
+
+/**
+ * The ways in which a {@link PrimeContext} tests int numbers beyond its cache for primality. Both tests are
+ * deterministic for all int numbers. The test used by {@link Primes} is read from the system property
+ * <code>jamato.primes.intPrimalityTest</code> (<code>MILLER_RABIN</code> by default) when the application starts.
+ *
+ * @author JSiebel
+ *
+ */
+public enum IntPrimalityTest{
+	
+	/**
+	 * Miller-Rabin tests with fixed bases: 2 for numbers less than 2047, 31 and 73 for numbers less than 9080191, and
+	 * 2, 7 and 61 for greater numbers. A prime takes up to three tests.
+	 */
+	MILLER_RABIN,
+	
+	/**
+	 * A single Miller-Rabin test whose base is taken from a table of 1024 bases, selected by a hash of the number. The
+	 * table has been checked against all odd numbers from <code>2^16</code> to <code>2^31</code>, so that no composite
+	 * number passes the test with its base. Smaller numbers are tested like in {@link #MILLER_RABIN}, because a base
+	 * must not be a multiple of the number. A prime takes one test.
+	 *
+	 * @see "Michal Forišek and Jakub Jančina: Fast Primality Testing for Integers That Fit into a Machine Word"
+	 */
+	HASHED_MILLER_RABIN;
+	
+	/** The least number that is tested with a base from the hash table. It is greater than all bases in the table. */
+	private static final int MIN_HASHED_NUMBER = 1 << 16;
+	
+	/** The number of bits of the hash that selects a base. */
+	private static final int HASH_BITS = 10;
+	
+	/** The multiplier of the hash, the golden ratio times <code>2^32</code>. */
+	private static final int HASH_MULTIPLIER = 0x9E3779B1;
+	
+	/**
+	 * The Miller-Rabin base for each hash. Each base is the least one for which no odd composite number from
+	 * {@link #MIN_HASHED_NUMBER} to <code>2^31</code> with its hash is a strong pseudoprime.
+	 */
+	private static final byte[] HASHED_BASES = {
+			6, 21, 3, 12, 13, 11, 3, 10, 6, 14, 2, 2, 3, 6, 3, 7, 6, 7, 5, 5, 6, 5, 10, 17, 12, 3, 6, 3, 2, 11, 6, 37,
+			7, 11, 7, 5, 3, 5, 2, 2, 3, 6, 6, 5, 6, 13, 17, 2, 7, 7, 6, 2, 11, 12, 10, 13, 17, 6, 7, 2, 12, 7, 13, 2, 2,
+			6, 2, 5, 2, 29, 7, 6, 11, 7, 15, 3, 26, 3, 5, 14, 6, 7, 24, 5, 5, 3, 2, 12, 2, 18, 6, 2, 2, 3, 7, 5, 6, 3,
+			3, 15, 10, 6, 10, 13, 6, 3, 5, 2, 11, 6, 11, 12, 6, 7, 10, 14, 3, 3, 7, 7, 19, 20, 17, 5, 20, 10, 6, 11, 13,
+			7, 39, 2, 2, 5, 18, 10, 10, 2, 6, 5, 6, 5, 3, 6, 15, 10, 11, 11, 7, 11, 3, 2, 13, 5, 19, 3, 6, 5, 10, 2, 3,
+			7, 11, 3, 14, 2, 3, 5, 15, 7, 2, 10, 2, 6, 6, 3, 13, 10, 2, 14, 7, 7, 2, 14, 6, 13, 34, 2, 6, 12, 2, 2, 13,
+			3, 22, 3, 2, 5, 10, 14, 10, 7, 12, 11, 2, 2, 12, 7, 2, 6, 3, 12, 2, 5, 14, 2, 38, 2, 2, 15, 2, 12, 3, 7, 2,
+			2, 15, 2, 2, 13, 2, 10, 7, 6, 5, 7, 2, 7, 11, 11, 7, 5, 5, 6, 20, 13, 3, 15, 7, 2, 7, 14, 7, 7, 6, 3, 2, 2,
+			13, 5, 2, 11, 10, 2, 3, 5, 14, 7, 2, 11, 5, 17, 11, 2, 3, 10, 12, 5, 2, 21, 19, 6, 6, 2, 7, 14, 2, 3, 10,
+			11, 15, 7, 2, 6, 5, 7, 2, 2, 3, 13, 3, 10, 3, 5, 21, 13, 14, 10, 5, 3, 2, 14, 5, 19, 22, 11, 3, 12, 5, 5,
+			15, 7, 10, 22, 14, 2, 3, 5, 18, 3, 3, 6, 6, 17, 23, 13, 2, 2, 7, 5, 2, 10, 24, 10, 7, 7, 2, 2, 33, 2, 15, 6,
+			6, 2, 10, 11, 11, 5, 2, 15, 5, 5, 2, 6, 3, 7, 2, 2, 7, 2, 5, 10, 10, 2, 11, 46, 15, 10, 5, 14, 10, 3, 6, 22,
+			15, 10, 3, 5, 11, 26, 15, 6, 5, 13, 6, 15, 2, 2, 7, 5, 2, 19, 10, 19, 2, 3, 22, 2, 14, 13, 11, 5, 5, 5, 5,
+			7, 3, 15, 10, 17, 7, 6, 2, 10, 14, 5, 5, 10, 6, 6, 6, 7, 10, 6, 13, 17, 6, 7, 2, 10, 6, 3, 10, 3, 2, 7, 5,
+			6, 2, 13, 5, 3, 6, 12, 3, 10, 2, 2, 5, 10, 10, 11, 3, 10, 6, 2, 11, 10, 24, 3, 11, 11, 13, 2, 12, 11, 5, 11,
+			7, 11, 17, 10, 2, 11, 6, 3, 3, 3, 2, 2, 14, 17, 12, 10, 6, 13, 2, 3, 2, 2, 5, 6, 28, 10, 15, 2, 38, 6, 6, 7,
+			11, 2, 3, 2, 3, 19, 7, 10, 2, 11, 13, 7, 10, 10, 15, 24, 6, 29, 5, 6, 5, 6, 2, 2, 7, 13, 13, 3, 3, 11, 5,
+			10, 23, 2, 7, 3, 2, 26, 6, 3, 31, 22, 5, 2, 26, 15, 10, 6, 11, 11, 2, 3, 3, 6, 14, 20, 2, 6, 2, 2, 10, 2, 2,
+			15, 2, 3, 18, 5, 14, 6, 3, 2, 14, 2, 3, 14, 6, 15, 2, 15, 10, 6, 11, 13, 2, 10, 7, 2, 3, 5, 11, 14, 5, 7, 7,
+			17, 12, 3, 2, 5, 6, 3, 6, 2, 11, 7, 6, 2, 2, 22, 10, 2, 26, 5, 7, 7, 2, 23, 7, 2, 11, 10, 10, 39, 2, 6, 2,
+			6, 2, 3, 6, 3, 2, 11, 3, 11, 30, 5, 6, 5, 6, 7, 11, 3, 3, 26, 2, 5, 13, 13, 2, 7, 15, 12, 7, 2, 29, 2, 3,
+			11, 3, 5, 20, 7, 14, 5, 2, 48, 7, 10, 6, 2, 2, 23, 13, 20, 2, 12, 5, 10, 14, 7, 24, 2, 6, 2, 13, 2, 3, 7, 3,
+			10, 6, 14, 2, 2, 2, 5, 5, 6, 5, 3, 13, 20, 3, 5, 6, 10, 12, 2, 2, 3, 11, 7, 5, 12, 6, 2, 2, 2, 17, 6, 11, 2,
+			7, 5, 3, 11, 12, 6, 2, 3, 7, 12, 10, 33, 12, 19, 7, 2, 12, 2, 6, 7, 5, 6, 14, 5, 6, 5, 3, 38, 6, 5, 3, 5, 3,
+			3, 2, 2, 23, 13, 6, 37, 18, 2, 10, 3, 6, 13, 14, 6, 14, 10, 5, 2, 13, 6, 5, 6, 5, 10, 14, 2, 2, 6, 11, 7,
+			10, 2, 3, 10, 2, 6, 5, 5, 6, 10, 5, 2, 2, 5, 10, 3, 10, 11, 10, 10, 6, 6, 6, 10, 2, 14, 2, 2, 3, 12, 11, 7,
+			5, 41, 2, 30, 10, 21, 3, 15, 6, 7, 15, 6, 5, 7, 7, 10, 5, 2, 2, 2, 7, 7, 3, 6, 23, 2, 6, 6, 10, 7, 5, 11, 3,
+			5, 5, 20, 12, 13, 7, 13, 2, 6, 35, 14, 5, 17, 7, 23, 19, 10, 7, 13, 2, 2, 14, 13, 2, 7, 6, 2, 13, 2, 2, 6,
+			7, 6, 3, 3, 14, 12, 2, 6, 7, 12, 2, 2, 2, 7, 7, 5, 10, 5, 5, 2, 2, 5, 2, 13, 3, 3, 2, 3, 3, 7, 6, 13, 39, 2,
+			2, 10, 2, 11, 24, 14, 2, 24, 7, 2, 6, 17, 15, 5, 12, 2, 5, 3, 10, 2, 5, 7, 7, 22, 7, 13, 5, 11, 2, 5, 2, 13,
+			11, 5, 5, 13, 3, 7, 2, 6, 13, 5, 6, 6, 14, 28, 10, 5, 19, 3, 3, 6, 7, 2, 5, 35, 10, 6, 5, 2, 15, 3, 6, 6,
+			11, 2, 6, 2, 11, 13, 2, 2, 2, 10, 3, 3, 6, 12, 6, 11, 71, 2, 6, 23, 5, 3, 7, 5, 13, 2, 31, 11, 13, 21, 15,
+			14
+	};
+	
+	/**
+	 * Checks if the given number is prime. If the number is divisible by one of the sieve primes, the result is
+	 * undefined.
+	 *
+	 * @param n the number to be checked, must be odd and greater than 2
+	 * @return <code>true</code> if the number is prime
+	 */
+	boolean isSievedNumberPrime(int n){
+		switch (this){
+		case HASHED_MILLER_RABIN:
+			if (n < MIN_HASHED_NUMBER){
+				return Primes.isSievedNumberPrime(n);
+			}
+			int hash = n * HASH_MULTIPLIER >>> Integer.SIZE - HASH_BITS;
+			return MillerRabinTest.test(new IntMontgomery(n), HASHED_BASES[hash]);
+		case MILLER_RABIN:
+		default:
+			return Primes.isSievedNumberPrime(n);
+		}
+	}
+}
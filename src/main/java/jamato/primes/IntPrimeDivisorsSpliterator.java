@@ -9,19 +9,26 @@ import java.util.function.IntConsumer;
 
 /**
  * A spliterator that that traverses all int prime divisors of a number. Dividing primes larger than
- * {@link Integer#MAX_VALUE} are not returned.
+ * {@link Integer#MAX_VALUE} are not returned. Remainders that fit in a long are checked with the division-free tests of
+ * {@link TrialDivision} for the primes less than <code>2^16</code>.
  *
  * @author JSiebel
  *
  */
 class IntPrimeDivisorsSpliterator extends Spliterators.AbstractIntSpliterator{
 	
-	/** An iterator providing divisor candidate primes. */
-	PrimitiveIterator.OfInt iterator = Primes.iterator();
+	/**
+	 * The index of the next candidate prime in {@link TrialDivision#PRIMES}, or the length of that array if the
+	 * candidates are taken from {@link #iterator}.
+	 */
+	int nextIndex;
+	
+	/** An iterator providing the candidate primes beyond {@link TrialDivision#PRIMES}, created when it is needed. */
+	PrimitiveIterator.OfInt iterator;
 	
 	/**
 	 * If this is set, this is the remainder of the input number after dividing it by all primes that have been returned
-	 * so far. If this is <code>null</code>, the remainder is in the {@link #intRemainder} field instead.
+	 * so far. If this is <code>null</code>, the remainder is in the {@link #remainder} field instead.
 	 */
 	BigInteger bigRemainder;
 	
@@ -29,8 +36,9 @@ class IntPrimeDivisorsSpliterator extends Spliterators.AbstractIntSpliterator{
 	 * The remainder of the input number after dividing it by all primes that have been returned so far, unless
 	 * {@link #bigRemainder} is set.
 	 */
-	int intRemainder;
+	long remainder;
 	
+	/** The greatest candidate prime that needs to be checked, the square root of the remainder if it is an int. */
 	int limit;
 	
 	/**
@@ -44,12 +52,13 @@ class IntPrimeDivisorsSpliterator extends Spliterators.AbstractIntSpliterator{
 		if (number.signum() <= 0){
 			throw new IllegalArgumentException("Argument must be positive, but was " + number + ".");
 		}
-		if (sqrtFitsInt(number)){
-			this.limit = number.sqrt().intValueExact();
+		if (number.bitLength() < Long.SIZE){
+			this.remainder = number.longValue();
+			this.limit = sqrt(remainder);
 		}else{
-			this.limit = Integer.MAX_VALUE;
+			this.bigRemainder = number;
+			this.limit = sqrtFitsInt(number) ? number.sqrt().intValueExact() : Integer.MAX_VALUE;
 		}
-		this.bigRemainder = number;
 	}
 	
 	/**
@@ -64,61 +73,119 @@ class IntPrimeDivisorsSpliterator extends Spliterators.AbstractIntSpliterator{
 			throw new IllegalArgumentException("Argument must be positive, but was " + number + ".");
 		}
 		this.limit = (int) Math.sqrt(number);
-		this.intRemainder = number;
+		this.remainder = number;
 	}
 	
 	@Override
 	public boolean tryAdvance(IntConsumer action){
 		Objects.requireNonNull(action);
-		if (bigRemainder == null){
-			return tryAdvanceInt(action);
-		}else if (fitsInt(bigRemainder)){
-			intRemainder = bigRemainder.intValueExact();
+		if (bigRemainder != null && bigRemainder.bitLength() < Long.SIZE){
+			// Switch to the long fast path once the remainder fits.
+			remainder = bigRemainder.longValue();
 			bigRemainder = null;
+		}
+		if (bigRemainder != null){
+			return tryAdvanceBigInteger(action);
+		}else if (remainder <= Integer.MAX_VALUE){
 			return tryAdvanceInt(action);
 		}else{
-			return tryAdvanceBigInteger(action);
+			return tryAdvanceLong(action);
 		}
 	}
 	
-	
 	/**
-	 * Find the next prime divisor of the int remainder.
+	 * Find the next prime divisor of the int remainder. The primes up to its square root are all part of the
+	 * {@link TrialDivision} tables.
 	 *
 	 * @param action the action
 	 * @return {@code false} if no remaining elements existed upon entry to this method, else {@code true}.
 	 */
 	private boolean tryAdvanceInt(IntConsumer action){
-		if (intRemainder == 1){
+		int n = (int) remainder;
+		if (n == 1){
 			return false;
 		}
+		if (nextIndex == 0){
+			nextIndex = 1;
+			if ((n & 1) == 0){
+				action.accept(2);
+				n >>>= Integer.numberOfTrailingZeros(n);
+				setRemainder(n);
+				return true;
+			}
+		}
+		int[] primes = TrialDivision.PRIMES;
+		int index = nextIndex;
+		while (index < primes.length && primes[index] <= limit && !TrialDivision.divides(index, n)){
+			index++;
+		}
+		if (index == primes.length || primes[index] > limit){
+			// The remainder has no prime divisor up to its square root, so it is prime.
+			nextIndex = index;
+			action.accept(n);
+			remainder = 1;
+			return true;
+		}
+		action.accept(primes[index]);
+		do{
+			n = TrialDivision.divide(index, n);
+		}while (TrialDivision.divides(index, n));
+		nextIndex = index + 1;
+		setRemainder(n);
+		return true;
+	}
+	
+	/**
+	 * Find the next prime divisor of the long remainder. The remainder is larger than Integer.MAX_VALUE.
+	 *
+	 * @param action the action
+	 * @return {@code false} if no remaining elements existed upon entry to this method, else {@code true}.
+	 */
+	private boolean tryAdvanceLong(IntConsumer action){
+		long n = remainder;
+		if (nextIndex == 0){
+			nextIndex = 1;
+			if ((n & 1) == 0){
+				action.accept(2);
+				setRemainder(n >>> Long.numberOfTrailingZeros(n));
+				return true;
+			}
+		}
+		int[] primes = TrialDivision.PRIMES;
+		for (int index = nextIndex; index < primes.length && primes[index] <= limit; index++){
+			if (TrialDivision.divides(index, n)){
+				action.accept(primes[index]);
+				do{
+					n = TrialDivision.divide(index, n);
+				}while (TrialDivision.divides(index, n));
+				nextIndex = index + 1;
+				setRemainder(n);
+				return true;
+			}
+		}
+		nextIndex = primes.length;
+		PrimitiveIterator.OfInt largePrimes = largePrimes();
 		int p;
 		do{
-			p = iterator.nextInt();
-		}while (p <= limit && intRemainder % p != 0);
+			if (!largePrimes.hasNext()){
+				return false;
+			}
+			p = largePrimes.nextInt();
+		}while (p <= limit && n % p != 0);
 		if (p > limit){
-			action.accept(intRemainder);
-			intRemainder = 1;
-			return true;
+			// The remainder is a non-int prime, or a product of them, so there are no more int divisors.
+			return false;
 		}
 		action.accept(p);
-		
-		boolean even = true;
 		do{
-			intRemainder /= p;
-			even = !even;
-			if (even){
-				limit /= p;
-			}
-		}while (intRemainder % p == 0);
-		if (!even){
-			limit = (int) Math.sqrt(intRemainder);
-		}
+			n /= p;
+		}while (n % p == 0);
+		setRemainder(n);
 		return true;
 	}
 	
 	/**
-	 * Find the next prime divisor of the BigInteger remainder. The remainder is larger than Integer.MAX_VALUE.
+	 * Find the next prime divisor of the BigInteger remainder. The remainder is larger than Long.MAX_VALUE.
 	 *
 	 * @param action the action
 	 * @return {@code false} if no remaining elements existed upon entry to this method, else {@code true}.
@@ -128,10 +195,13 @@ class IntPrimeDivisorsSpliterator extends Spliterators.AbstractIntSpliterator{
 		int p;
 		BigInteger bigP;
 		do{
-			if (!iterator.hasNext()){
+			if (nextIndex < TrialDivision.PRIMES.length){
+				p = TrialDivision.PRIMES[nextIndex++];
+			}else if (largePrimes().hasNext()){
+				p = iterator.nextInt();
+			}else{
 				return false;
 			}
-			p = iterator.nextInt();
 			bigP = BigInteger.valueOf(p);
 		}while (bigP.compareTo(bigLimit) <= 0 && bigRemainder.mod(bigP).signum() != 0);
 		
@@ -150,11 +220,47 @@ class IntPrimeDivisorsSpliterator extends Spliterators.AbstractIntSpliterator{
 		return true;
 	}
 	
-	private static boolean sqrtFitsInt(BigInteger number){
-		return number.bitLength() <= 2 * (Integer.SIZE - 1);
+	/**
+	 * Returns the iterator of the candidate primes beyond the {@link TrialDivision} tables, creating it if necessary.
+	 *
+	 * @return the iterator
+	 */
+	private PrimitiveIterator.OfInt largePrimes(){
+		if (iterator == null){
+			iterator = Primes.rangeIterator(TrialDivision.LIMIT);
+		}
+		return iterator;
+	}
+	
+	/**
+	 * Sets the remainder after dividing it by a prime, and the limit for the remaining candidates.
+	 *
+	 * @param remainder the new remainder
+	 */
+	private void setRemainder(long remainder){
+		this.remainder = remainder;
+		this.limit = sqrt(remainder);
 	}
 	
-	private static boolean fitsInt(BigInteger number){
-		return number.bitLength() <= Integer.SIZE - 1;
+	/**
+	 * Returns the square root of a long, rounded down, or {@link Integer#MAX_VALUE} if it is greater.
+	 *
+	 * @param number a number, must not be negative
+	 * @return the square root
+	 */
+	private static int sqrt(long number){
+		long root = (long) Math.sqrt(number);
+		// The floating point square root may be off by one for large numbers.
+		while (root * root > number){
+			root--;
+		}
+		while ((root + 1) * (root + 1) <= number){
+			root++;
+		}
+		return (int) Math.min(root, Integer.MAX_VALUE);
+	}
+	
+	private static boolean sqrtFitsInt(BigInteger number){
+		return number.bitLength() <= 2 * (Integer.SIZE - 1);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,131 @@
+package jamato.primes;
+
+/**
+ * Modular arithmetic for a fixed odd long modulus using Montgomery multiplication. Numbers are represented by their
+ * Montgomery form <code>x * 2^64 mod n</code>, so that products can be reduced with multiplications and shifts instead
+ * of a 128-bit division.
+ *
+ * @author JSiebel
+ * @see "https://en.wikipedia.org/wiki/Montgomery_modular_multiplication"
+ *
+ */
+final class LongMontgomery{
+	
+	/** The modulus. */
+	final long modulus;
+	
+	/** The inverse of the modulus modulo <code>2^64</code>. */
+	private final long inverse;
+	
+	/** <code>2^128 mod n</code>, used to convert numbers to their Montgomery form. */
+	private final long rSquared;
+	
+	/** The Montgomery form of 1, <code>2^64 mod n</code>. */
+	final long one;
+	
+	/** The Montgomery form of -1, <code>n - one</code>. */
+	final long minusOne;
+	
+	/**
+	 * Creates a new instance for the given modulus.
+	 *
+	 * @param modulus the modulus, must be odd and greater than 1
+	 */
+	LongMontgomery(long modulus){
+		this.modulus = modulus;
+		
+		// Newton's iteration doubles the number of correct low bits, and any odd number is its own inverse modulo 8.
+		long x = modulus;
+		for (int i = 0; i < 5; i++){
+			x *= 2 - modulus * x;
+		}
+		this.inverse = x;
+		
+		// 2^64 - n ≡ 2^64 (mod n)
+		this.one = Long.remainderUnsigned(-modulus, modulus);
+		this.minusOne = modulus - one;
+		long r = one;
+		for (int i = 0; i < Long.SIZE; i++){
+			r = addMod(r, r);
+		}
+		this.rSquared = r;
+	}
+	
+	/**
+	 * Converts a number to its Montgomery form.
+	 *
+	 * @param x a number, must not be negative and less than the modulus
+	 * @return <code>x * 2^64 mod n</code>
+	 */
+	long toMontgomery(long x){
+		return multiply(x, rSquared);
+	}
+	
+	/**
+	 * Converts a number from its Montgomery form.
+	 *
+	 * @param x a number in Montgomery form
+	 * @return <code>x * 2^-64 mod n</code>
+	 */
+	long fromMontgomery(long x){
+		return reduce(0, x);
+	}
+	
+	/**
+	 * Multiplies two numbers in Montgomery form.
+	 *
+	 * @param a a number in Montgomery form
+	 * @param b a number in Montgomery form
+	 * @return the Montgomery form of the product
+	 */
+	long multiply(long a, long b){
+		return reduce(Math.multiplyHigh(a, b), a * b);
+	}
+	
+	/**
+	 * Raises a number in Montgomery form to the given power.
+	 *
+	 * @param base a number in Montgomery form
+	 * @param exponent the exponent, must not be negative
+	 * @return the Montgomery form of the power
+	 */
+	long pow(long base, long exponent){
+		long result = one;
+		while (exponent > 0){
+			if ((exponent & 1) == 1){
+				result = multiply(result, base);
+			}
+			exponent >>>= 1;
+			base = multiply(base, base);
+		}
+		return result;
+	}
+	
+	/**
+	 * Adds two numbers modulo the modulus. This works for numbers in Montgomery form as well as for plain numbers.
+	 *
+	 * @param a a number, must not be negative and less than the modulus
+	 * @param b a number, must not be negative and less than the modulus
+	 * @return <code>(a + b) mod n</code>
+	 */
+	long addMod(long a, long b){
+		// The sum cannot overflow as an unsigned number, since both are less than 2^63.
+		long sum = a + b;
+		return Long.compareUnsigned(sum, modulus) >= 0 ? sum - modulus : sum;
+	}
+	
+	/**
+	 * Calculates <code>(high * 2^64 + low) * 2^-64 mod n</code>.
+	 *
+	 * @param high the upper 64 bits of the number, must be less than the modulus
+	 * @param low the lower 64 bits of the number
+	 * @return the reduced number
+	 */
+	private long reduce(long high, long low){
+		long m = low * inverse;
+		// The lower 64 bits of m * n are equal to low, so they cancel out.
+		long mnHigh = Math.multiplyHigh(m, modulus) + ((m >> 63) & modulus);
+		long result = high - mnHigh;
+		return result < 0 ? result + modulus : result;
+	}
+}
@@ -0,0 +1,55 @@
+package jamato.primes;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * An {@link Iterator} that yields long prime numbers in a given range.
+ *
+ * @author JSiebel
+ *
+ */
+class LongPrimeRangeIterator implements PrimitiveIterator.OfLong{
+	
+	/** The next prime to be returned, or {@link Long#MAX_VALUE} if there is none. */
+	private long next;
+	
+	private final long upperBound;
+	
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param lowerBound the lower bound, the first prime returned is the least prime greater than or equal to this
+	 * value
+	 * @param upperBound the upper bound, exclusive
+	 */
+	public LongPrimeRangeIterator(long lowerBound, long upperBound){
+		this.next = lowerBound <= 2 ? 2 : nextPrimeAfter(lowerBound - 1);
+		this.upperBound = upperBound;
+	}
+	
+	@Override
+	public boolean hasNext(){
+		return next < upperBound;
+	}
+	
+	@Override
+	public long nextLong(){
+		if (!hasNext()){
+			throw new NoSuchElementException();
+		}
+		long result = next;
+		next = nextPrimeAfter(result);
+		return result;
+	}
+	
+	/**
+	 * Returns the least prime greater than the given number, or {@link Long#MAX_VALUE} if there is none.
+	 *
+	 * @param number a number
+	 * @return the next prime
+	 */
+	private static long nextPrimeAfter(long number){
+		return number >= Primes.GREATEST_LONG_PRIME ? Long.MAX_VALUE : Primes.nextPrime(number);
+	}
+}
\ No newline at end of file
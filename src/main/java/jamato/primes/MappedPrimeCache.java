@@ -0,0 +1,227 @@
+package jamato.primes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * A prime cache that reads its primes from a file mapped into memory, so that they don't have to be calculated or
+ * copied to the heap. Primes beyond the file's content are calculated as usual and stored in an int array.
+ * <p>
+ * The file starts with a header of four big-endian ints: the {@link #MAGIC} number, the {@link #VERSION} of the format,
+ * the number of primes, and the CRC-32 checksum of the primes. The primes follow as big-endian ints in ascending
+ * order, starting with 2.
+ *
+ * @author JSiebel
+ *
+ */
+final class MappedPrimeCache extends PrimeCache{
+	
+	/** The first int of every cache file, the ASCII characters <code>JPRM</code>. */
+	private static final int MAGIC = 0x4A50524D;
+	
+	/** The version of the file format. */
+	private static final int VERSION = 1;
+	
+	/** The number of bytes before the first prime in a cache file. */
+	private static final int HEADER_BYTES = 4 * Integer.BYTES;
+	
+	/** The number of primes written at once when a cache is saved. */
+	private static final int CHUNK_LENGTH = 1 << 16;
+	
+	/** The primes in the mapped file. */
+	private final IntBuffer mapped;
+	
+	/** The number of primes in the mapped file. */
+	private final int mappedSize;
+	
+	/**
+	 * The primes following the ones in the mapped file. It is filled up to index <code>size() - mappedSize</code>
+	 * (exclusive). When the cache grows, the array is replaced by a bigger copy.
+	 */
+	private volatile int[] tail = new int[0];
+	
+	/**
+	 * Creates a cache that reads the given primes.
+	 *
+	 * @param mapped the first primes, in ascending order
+	 */
+	private MappedPrimeCache(IntBuffer mapped){
+		super(mapped.limit(), mapped.get(mapped.limit() - 1));
+		this.mapped = mapped;
+		this.mappedSize = mapped.limit();
+	}
+	
+	/**
+	 * Writes the primes that are currently in the given cache to a file.
+	 *
+	 * @param cache the cache to be saved
+	 * @param file the file to be written; if it exists, it is overwritten
+	 * @throws IOException if an I/O error occurs
+	 */
+	static void save(PrimeCache cache, Path file) throws IOException{
+		int size = cache.size();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)){
+			CRC32 checksum = new CRC32();
+			int[] chunk = new int[CHUNK_LENGTH];
+			ByteBuffer buffer = ByteBuffer.allocate(CHUNK_LENGTH * Integer.BYTES);
+			channel.position(HEADER_BYTES);
+			for (int from = 0; from < size; from += CHUNK_LENGTH){
+				int length = Math.min(CHUNK_LENGTH, size - from);
+				cache.copy(from, from + length, chunk, 0);
+				buffer.clear();
+				buffer.asIntBuffer().put(chunk, 0, length);
+				buffer.limit(length * Integer.BYTES);
+				checksum.update(buffer.array(), 0, buffer.limit());
+				writeFully(channel, buffer);
+			}
+			
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			header.putInt(MAGIC).putInt(VERSION).putInt(size).putInt((int) checksum.getValue());
+			header.flip();
+			channel.position(0);
+			writeFully(channel, header);
+		}
+	}
+	
+	/**
+	 * Writes the remaining bytes of the buffer to the channel.
+	 *
+	 * @param channel the channel
+	 * @param buffer the buffer
+	 * @throws IOException if an I/O error occurs
+	 */
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException{
+		while (buffer.hasRemaining()){
+			channel.write(buffer);
+		}
+	}
+	
+	/**
+	 * Maps a file written by {@link #save(PrimeCache, Path)} into memory and creates a cache that reads from it.
+	 *
+	 * @param file the file to be read
+	 * @return a new cache
+	 * @throws IOException if an I/O error occurs, or if the file is not a valid cache file
+	 */
+	static MappedPrimeCache load(Path file) throws IOException{
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+			long fileSize = channel.size();
+			if (fileSize < HEADER_BYTES){
+				throw new IOException("Not a prime cache file: " + file);
+			}
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			while (header.hasRemaining()){
+				if (channel.read(header, header.position()) < 0){
+					throw new IOException("Not a prime cache file: " + file);
+				}
+			}
+			header.flip();
+			if (header.getInt() != MAGIC){
+				throw new IOException("Not a prime cache file: " + file);
+			}
+			int version = header.getInt();
+			if (version != VERSION){
+				throw new IOException("Unsupported prime cache file version " + version + ": " + file);
+			}
+			int size = header.getInt();
+			int expectedChecksum = header.getInt();
+			if (size < INITIAL_PRIMES.length || size > Primes.NUMBER_OF_INT_PRIMES
+					|| fileSize != HEADER_BYTES + (long) size * Integer.BYTES){
+				throw new IOException("Invalid prime count " + size + " for file size " + fileSize + ": " + file);
+			}
+			
+			// The mapping stays valid after the channel is closed.
+			MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, HEADER_BYTES, (long) size * Integer.BYTES);
+			CRC32 checksum = new CRC32();
+			checksum.update(buffer.duplicate());
+			if ((int) checksum.getValue() != expectedChecksum){
+				throw new IOException("Checksum mismatch: " + file);
+			}
+			IntBuffer primes = buffer.asIntBuffer();
+			for (int i = 0; i < INITIAL_PRIMES.length; i++){
+				if (primes.get(i) != INITIAL_PRIMES[i]){
+					throw new IOException("The file does not start with the first primes: " + file);
+				}
+			}
+			return new MappedPrimeCache(primes);
+		}
+	}
+	
+	@Override
+	void append(int[] primes, int count){
+		int tailSize = size() - mappedSize;
+		int[] array = tail;
+		if (tailSize + count > array.length){
+			int capacity = Math.max(tailSize + count, 2 * array.length);
+			array = Arrays.copyOf(array, Math.min(capacity, Primes.NUMBER_OF_INT_PRIMES - mappedSize));
+		}
+		System.arraycopy(primes, 0, array, tailSize, count);
+		tail = array;
+	}
+	
+	@Override
+	void releaseMemory(){
+		tail = Arrays.copyOf(tail, size() - mappedSize);
+	}
+	
+	@Override
+	boolean contains(int number){
+		int index = getInsertionIndex(number);
+		return index < size() && get(index) == number;
+	}
+	
+	@Override
+	int get(int index){
+		if (index < mappedSize){
+			return mapped.get(index);
+		}else{
+			return tail[index - mappedSize];
+		}
+	}
+	
+	@Override
+	void copy(int fromIndex, int toIndex, int[] target, int offset){
+		if (fromIndex < mappedSize){
+			int length = Math.min(toIndex, mappedSize) - fromIndex;
+			IntBuffer view = mapped.duplicate();
+			view.position(fromIndex);
+			view.get(target, offset, length);
+			fromIndex += length;
+			offset += length;
+		}
+		if (fromIndex < toIndex){
+			System.arraycopy(tail, fromIndex - mappedSize, target, offset, toIndex - fromIndex);
+		}
+	}
+	
+	@Override
+	int getInsertionIndex(int number){
+		// The size has to be read before the tail, so that it contains all primes below it.
+		int currentSize = size();
+		int[] array = tail;
+		if (currentSize > mappedSize && number > mapped.get(mappedSize - 1)){
+			int index = Arrays.binarySearch(array, 0, currentSize - mappedSize, number);
+			return mappedSize + (index < 0 ? -index - 1 : index);
+		}
+		int low = 0;
+		int high = mappedSize;
+		while (low < high){
+			int middle = (low + high) >>> 1;
+			if (mapped.get(middle) < number){
+				low = middle + 1;
+			}else{
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
@@ -1,6 +1,6 @@
 package jamato.primes;
 
-import jamato.algebra.Exponentiation;
+import java.math.BigInteger;
 
 /**
  * This utility class provides methods for performing the Miller-Rabin primality test.
@@ -25,20 +25,195 @@ public final class MillerRabinTest{
 	 * @see "https://en.wikipedia.org/wiki/Miller%E2%80%93Rabin_primality_test"
 	 */
 	public static boolean test(int n, int base){
-		if (base % n == 0){
+		return test(new IntMontgomery(n), base);
+	}
+	
+	/**
+	 * Checks if an odd number is a prime according to the Miller-Rabin test with the given base. The number is given
+	 * by the Montgomery arithmetic for it, which can be shared by the tests of multiple bases.
+	 *
+	 * @param montgomery the Montgomery arithmetic for the number to be checked, which must be greater than 2
+	 * @param base the base used for the check, must not be negative
+	 * @return <code>true</code> if the number is a prime or a pseudoprime, <code>false</code> otherwise
+	 */
+	static boolean test(IntMontgomery montgomery, int base){
+		int n = montgomery.modulus;
+		base %= n;
+		if (base == 0){
 			// A base cannot be used to check the primality of a number that it is a multiple of (or to check itself).
 			return true;
 		}
 		int s = Integer.numberOfTrailingZeros(n - 1);
 		int d = (n - 1) >>> s;
-		int p = Exponentiation.powMod(base, d, n);
-		if (p == 1 || p == n - 1){
+		int p = montgomery.pow(montgomery.toMontgomery(base), d);
+		if (p == montgomery.one || p == montgomery.minusOne){
+			// base ^ d ≡ 1 or base ^ d ≡ -1 (mod n)
+			return true;
+		}else{
+			for (int r = 1; r < s; r++){
+				p = montgomery.multiply(p, p);
+				if (p == montgomery.minusOne){
+					// base ^ (2^r * d) ≡ -1 (mod n)
+					return true;
+				}
+			}
+			// base ^ (2^s * d) = base ^ (n-1) ≢ 1
+			return false;
+		}
+	}
+	
+	/**
+	 * Checks four odd numbers at once according to the Miller-Rabin test with the given base. The four tests are
+	 * interleaved, so that their independent multiplications can be executed in parallel by the processor.
+	 *
+	 * @param n0 the first number to be checked, must be odd and greater than the base
+	 * @param n1 the second number to be checked, must be odd and greater than the base
+	 * @param n2 the third number to be checked, must be odd and greater than the base
+	 * @param n3 the fourth number to be checked, must be odd and greater than the base
+	 * @param base the base used for the check, must be positive
+	 * @return a bit mask, in which bit <code>i</code> is set if the number <code>ni</code> is a prime or a pseudoprime
+	 */
+	static int test(int n0, int n1, int n2, int n3, int base){
+		int inverse0 = IntMontgomery.inverse(n0);
+		int inverse1 = IntMontgomery.inverse(n1);
+		int inverse2 = IntMontgomery.inverse(n2);
+		int inverse3 = IntMontgomery.inverse(n3);
+		int one0 = (int) ((1L << Integer.SIZE) % n0);
+		int one1 = (int) ((1L << Integer.SIZE) % n1);
+		int one2 = (int) ((1L << Integer.SIZE) % n2);
+		int one3 = (int) ((1L << Integer.SIZE) % n3);
+		int base0 = (int) (((long) base << Integer.SIZE) % n0);
+		int base1 = (int) (((long) base << Integer.SIZE) % n1);
+		int base2 = (int) (((long) base << Integer.SIZE) % n2);
+		int base3 = (int) (((long) base << Integer.SIZE) % n3);
+		int s0 = Integer.numberOfTrailingZeros(n0 - 1);
+		int s1 = Integer.numberOfTrailingZeros(n1 - 1);
+		int s2 = Integer.numberOfTrailingZeros(n2 - 1);
+		int s3 = Integer.numberOfTrailingZeros(n3 - 1);
+		int d0 = (n0 - 1) >>> s0;
+		int d1 = (n1 - 1) >>> s1;
+		int d2 = (n2 - 1) >>> s2;
+		int d3 = (n3 - 1) >>> s3;
+		
+		// base ^ d, from the highest bit of the exponents down
+		int p0 = one0;
+		int p1 = one1;
+		int p2 = one2;
+		int p3 = one3;
+		for (int bit = 31 - Integer.numberOfLeadingZeros(d0 | d1 | d2 | d3); bit >= 0; bit--){
+			p0 = IntMontgomery.multiply(p0, p0, n0, inverse0);
+			p1 = IntMontgomery.multiply(p1, p1, n1, inverse1);
+			p2 = IntMontgomery.multiply(p2, p2, n2, inverse2);
+			p3 = IntMontgomery.multiply(p3, p3, n3, inverse3);
+			int q0 = IntMontgomery.multiply(p0, base0, n0, inverse0);
+			int q1 = IntMontgomery.multiply(p1, base1, n1, inverse1);
+			int q2 = IntMontgomery.multiply(p2, base2, n2, inverse2);
+			int q3 = IntMontgomery.multiply(p3, base3, n3, inverse3);
+			// Select the product without branching, since the exponent bits are unpredictable.
+			int mask0 = -(d0 >>> bit & 1);
+			int mask1 = -(d1 >>> bit & 1);
+			int mask2 = -(d2 >>> bit & 1);
+			int mask3 = -(d3 >>> bit & 1);
+			p0 = (q0 & mask0) | (p0 & ~mask0);
+			p1 = (q1 & mask1) | (p1 & ~mask1);
+			p2 = (q2 & mask2) | (p2 & ~mask2);
+			p3 = (q3 & mask3) | (p3 & ~mask3);
+		}
+		
+		// base ^ d ≡ 1 or base ^ (2^r * d) ≡ -1 (mod n) for some r < s
+		boolean passed0 = p0 == one0 || p0 == n0 - one0;
+		boolean passed1 = p1 == one1 || p1 == n1 - one1;
+		boolean passed2 = p2 == one2 || p2 == n2 - one2;
+		boolean passed3 = p3 == one3 || p3 == n3 - one3;
+		int maxS = Math.max(Math.max(s0, s1), Math.max(s2, s3));
+		for (int r = 1; r < maxS; r++){
+			p0 = IntMontgomery.multiply(p0, p0, n0, inverse0);
+			p1 = IntMontgomery.multiply(p1, p1, n1, inverse1);
+			p2 = IntMontgomery.multiply(p2, p2, n2, inverse2);
+			p3 = IntMontgomery.multiply(p3, p3, n3, inverse3);
+			passed0 |= r < s0 && p0 == n0 - one0;
+			passed1 |= r < s1 && p1 == n1 - one1;
+			passed2 |= r < s2 && p2 == n2 - one2;
+			passed3 |= r < s3 && p3 == n3 - one3;
+		}
+		return (passed0 ? 1 : 0) | (passed1 ? 2 : 0) | (passed2 ? 4 : 0) | (passed3 ? 8 : 0);
+	}
+	
+	/**
+	 * Checks if an odd number is a prime according to the Miller-Rabin test with the given base. The Miller-Rabin test
+	 * correctly identifies any odd prime number, but is wrong on some composite numbers (pseudoprimes). Multiple tests
+	 * on different bases can be combined to reduce the number of false positives.
+	 *
+	 * @param n the number to be checked, must be an odd number and greater than 2
+	 * @param base the base used for the check, must not be negative
+	 * @return <code>true</code> if the number is a prime or a pseudoprime, <code>false</code> otherwise
+	 * @see "https://en.wikipedia.org/wiki/Miller%E2%80%93Rabin_primality_test"
+	 */
+	public static boolean test(long n, long base){
+		return test(new LongMontgomery(n), base);
+	}
+	
+	/**
+	 * Checks if an odd number is a prime according to the Miller-Rabin test with the given base. The number is given
+	 * by the Montgomery arithmetic for it, which can be shared by the tests of multiple bases.
+	 *
+	 * @param montgomery the Montgomery arithmetic for the number to be checked, which must be greater than 2
+	 * @param base the base used for the check, must not be negative
+	 * @return <code>true</code> if the number is a prime or a pseudoprime, <code>false</code> otherwise
+	 */
+	static boolean test(LongMontgomery montgomery, long base){
+		long n = montgomery.modulus;
+		base %= n;
+		if (base == 0){
+			// A base cannot be used to check the primality of a number that it is a multiple of (or to check itself).
+			return true;
+		}
+		int s = Long.numberOfTrailingZeros(n - 1);
+		long d = (n - 1) >>> s;
+		long p = montgomery.pow(montgomery.toMontgomery(base), d);
+		if (p == montgomery.one || p == montgomery.minusOne){
+			// base ^ d ≡ 1 or base ^ d ≡ -1 (mod n)
+			return true;
+		}else{
+			for (int r = 1; r < s; r++){
+				p = montgomery.multiply(p, p);
+				if (p == montgomery.minusOne){
+					// base ^ (2^r * d) ≡ -1 (mod n)
+					return true;
+				}
+			}
+			// base ^ (2^s * d) = base ^ (n-1) ≢ 1
+			return false;
+		}
+	}
+	
+	/**
+	 * Checks if an odd number is a prime according to the Miller-Rabin test with the given base. The Miller-Rabin test
+	 * correctly identifies any odd prime number, but is wrong on some composite numbers (pseudoprimes). Multiple tests
+	 * on different bases can be combined to reduce the number of false positives.
+	 *
+	 * @param n the number to be checked, must be an odd number and greater than 2
+	 * @param base the base used for the check
+	 * @return <code>true</code> if the number is a prime or a pseudoprime, <code>false</code> otherwise
+	 * @see "https://en.wikipedia.org/wiki/Miller%E2%80%93Rabin_primality_test"
+	 */
+	public static boolean test(BigInteger n, BigInteger base){
+		base = base.mod(n);
+		if (base.signum() == 0){
+			// A base cannot be used to check the primality of a number that it is a multiple of (or to check itself).
+			return true;
+		}
+		BigInteger nMinusOne = n.subtract(BigInteger.ONE);
+		int s = nMinusOne.getLowestSetBit();
+		BigInteger d = nMinusOne.shiftRight(s);
+		BigInteger p = base.modPow(d, n);
+		if (p.equals(BigInteger.ONE) || p.equals(nMinusOne)){
 			// base ^ d ≡ 1 or base ^ d ≡ -1 (mod n)
 			return true;
 		}else{
 			for (int r = 1; r < s; r++){
-				p = (int) ((long) p * p % n);
-				if (p == n - 1){
+				p = p.multiply(p).mod(n);
+				if (p.equals(nMinusOne)){
 					// base ^ (2^r * d) ≡ -1 (mod n)
 					return true;
 				}
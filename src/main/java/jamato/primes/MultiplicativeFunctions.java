@@ -0,0 +1,209 @@
+package jamato.primes;
+
+import java.util.stream.IntStream;
+
+/**
+ * This utility class fills tables of multiplicative functions for all numbers below a limit. The smallest prime factor
+ * <code>p</code> of each number <code>n</code> is taken from a {@link PrimeFactorTable}, which is built by a linear
+ * sieve; if <code>p^e</code> is the greatest power of <code>p</code> dividing <code>n</code>, then
+ * <code>f(n) = f(n / p^e) * f(p^e)</code>. The tables are filled in blocks, which are processed in parallel for large
+ * limits. One prime factor table can be reused for several functions.
+ * <p>
+ * Each returned array has the length of the table's limit. The entry at index <code>n</code> is the function's value
+ * for <code>n</code>; the entry at index 0 is 0.
+ *
+ * @author JSiebel
+ *
+ */
+public final class MultiplicativeFunctions{
+	
+	/** The number of values filled by a single task. It is a power of 2. */
+	private static final int BLOCK_LENGTH = 1 << 16;
+	
+	/** The minimum limit for which the blocks are filled in parallel. */
+	private static final int PARALLEL_THRESHOLD = 1 << 20;
+	
+	/**
+	 * A multiplicative function, defined by its values for prime powers. The value for 1 is 1, and the value for a
+	 * product of powers of distinct primes is the product of their values.
+	 */
+	@FunctionalInterface
+	public interface PrimePowerFunction{
+		
+		/**
+		 * Returns the value of the function for a prime power.
+		 *
+		 * @param prime the prime
+		 * @param exponent the exponent, at least 1
+		 * @return the value for <code>prime^exponent</code>
+		 */
+		long apply(int prime, int exponent);
+	}
+	
+	private MultiplicativeFunctions(){
+		// Utility class
+	}
+	
+	/**
+	 * Calculates Euler's totient function <code>φ(n)</code>, the number of integers from 1 to <code>n</code> that are
+	 * coprime to <code>n</code>.
+	 *
+	 * @param table the table used for factoring
+	 * @return the totients of all numbers below the table's limit
+	 */
+	public static int[] totients(PrimeFactorTable table){
+		int[] result = newTable(table.getLimit());
+		forEachNumber(table, (number, prime, exponent, primePower) -> {
+			result[number] = result[number / primePower] * (primePower / prime) * (prime - 1);
+		});
+		return result;
+	}
+	
+	/**
+	 * Calculates the Möbius function <code>μ(n)</code>, which is 0 if <code>n</code> is divisible by a square greater
+	 * than 1, and <code>(-1)^k</code> if <code>n</code> is a product of <code>k</code> distinct primes.
+	 *
+	 * @param table the table used for factoring
+	 * @return the Möbius function of all numbers below the table's limit
+	 */
+	public static byte[] moebius(PrimeFactorTable table){
+		byte[] result = new byte[table.getLimit()];
+		if (result.length > 1){
+			result[1] = 1;
+		}
+		forEachNumber(table, (number, prime, exponent, primePower) -> {
+			result[number] = exponent > 1 ? 0 : (byte) -result[number / prime];
+		});
+		return result;
+	}
+	
+	/**
+	 * Calculates the divisor function <code>τ(n)</code>, the number of positive divisors of <code>n</code>.
+	 *
+	 * @param table the table used for factoring
+	 * @return the number of divisors of all numbers below the table's limit
+	 */
+	public static int[] divisorCounts(PrimeFactorTable table){
+		int[] result = newTable(table.getLimit());
+		forEachNumber(table, (number, prime, exponent, primePower) -> {
+			result[number] = result[number / primePower] * (exponent + 1);
+		});
+		return result;
+	}
+	
+	/**
+	 * Calculates the divisor function <code>σ(n)</code>, the sum of the positive divisors of <code>n</code>.
+	 *
+	 * @param table the table used for factoring
+	 * @return the sum of divisors of all numbers below the table's limit
+	 */
+	public static long[] divisorSums(PrimeFactorTable table){
+		long[] result = new long[table.getLimit()];
+		if (result.length > 1){
+			result[1] = 1;
+		}
+		forEachNumber(table, (number, prime, exponent, primePower) -> {
+			// 1 + p + ... + p^e = (p^(e+1) - 1) / (p - 1)
+			result[number] = result[number / primePower] * (((long) primePower * prime - 1) / (prime - 1));
+		});
+		return result;
+	}
+	
+	/**
+	 * Calculates a multiplicative function that is defined by its values for prime powers.
+	 *
+	 * @param table the table used for factoring
+	 * @param function the function; it is called concurrently for large tables
+	 * @return the function's values for all numbers below the table's limit
+	 */
+	public static long[] values(PrimeFactorTable table, PrimePowerFunction function){
+		long[] result = new long[table.getLimit()];
+		if (result.length > 1){
+			result[1] = 1;
+		}
+		forEachNumber(table, (number, prime, exponent, primePower) -> {
+			result[number] = result[number / primePower] * function.apply(prime, exponent);
+		});
+		return result;
+	}
+	
+	/**
+	 * Creates an int table for a multiplicative function, with the value 1 for 1.
+	 *
+	 * @param limit the length of the table
+	 * @return the table
+	 */
+	private static int[] newTable(int limit){
+		int[] result = new int[limit];
+		if (limit > 1){
+			result[1] = 1;
+		}
+		return result;
+	}
+	
+	/**
+	 * An action on a number and the power of its smallest prime factor.
+	 */
+	@FunctionalInterface
+	private interface NumberAction{
+		
+		/**
+		 * Performs the action.
+		 *
+		 * @param number the number, at least 2
+		 * @param prime the smallest prime factor of the number
+		 * @param exponent the exponent of the smallest prime factor
+		 * @param primePower <code>prime^exponent</code>
+		 */
+		void accept(int number, int prime, int exponent, int primePower);
+	}
+	
+	/**
+	 * Calls the given action for all numbers from 2 to the table's limit (exclusive), in ascending order of blocks.
+	 * Since the value of a multiplicative function for <code>n</code> is calculated from its value for a number less
+	 * than or equal to <code>n / 2</code>, the blocks between <code>2^k</code> and <code>2^(k+1)</code> only depend on
+	 * previous blocks, so they are processed in parallel for large limits.
+	 *
+	 * @param table the table used for factoring
+	 * @param action the action
+	 */
+	private static void forEachNumber(PrimeFactorTable table, NumberAction action){
+		int limit = table.getLimit();
+		forEachNumber(table, 2, Math.min(BLOCK_LENGTH, limit), action);
+		for (long low = BLOCK_LENGTH; low < limit; low *= 2){
+			int from = (int) low;
+			int to = (int) Math.min(2 * low, limit);
+			IntStream blocks = IntStream.range(0, (to - from + BLOCK_LENGTH - 1) / BLOCK_LENGTH);
+			if (limit >= PARALLEL_THRESHOLD){
+				blocks = blocks.parallel();
+			}
+			blocks.forEach(block -> {
+				int blockFrom = from + block * BLOCK_LENGTH;
+				forEachNumber(table, blockFrom, Math.min(blockFrom + BLOCK_LENGTH, to), action);
+			});
+		}
+	}
+	
+	/**
+	 * Calls the given action for all numbers in a range, in ascending order.
+	 *
+	 * @param table the table used for factoring
+	 * @param from the first number, inclusive; at least 2
+	 * @param to the last number, exclusive
+	 * @param action the action
+	 */
+	private static void forEachNumber(PrimeFactorTable table, int from, int to, NumberAction action){
+		for (int number = from; number < to; number++){
+			int prime = table.smallestPrimeFactor(number);
+			int exponent = 0;
+			int primePower = 1;
+			int cofactor = number;
+			do{
+				cofactor /= prime;
+				primePower *= prime;
+				exponent++;
+			}while (cofactor % prime == 0);
+			action.accept(number, prime, exponent, primePower);
+		}
+	}
+}
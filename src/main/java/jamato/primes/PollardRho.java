@@ -0,0 +1,149 @@
+package jamato.primes;
+
+import java.math.BigInteger;
+
+import jamato.algebra.GCD;
+
+/**
+ * This utility class finds divisors of composite numbers with Brent's variant of Pollard's rho method. The sequence
+ * <code>x -> x^2 + c mod n</code> eventually cycles modulo each prime factor <code>p</code> of <code>n</code>, which
+ * is detected by <code>gcd(x_i - x_j, n) > 1</code> after about <code>sqrt(p)</code> steps. The differences are
+ * multiplied in batches, so that only one gcd is calculated per batch.
+ *
+ * @author JSiebel
+ * @see "https://en.wikipedia.org/wiki/Pollard%27s_rho_algorithm#Variants"
+ *
+ */
+final class PollardRho{
+	
+	/** The number of differences multiplied before their gcd with the number is calculated. */
+	private static final int BATCH_LENGTH = 128;
+	
+	private PollardRho(){
+		// Utility class
+	}
+	
+	/**
+	 * Finds a non-trivial divisor of the given number.
+	 *
+	 * @param n the number, must be odd and composite
+	 * @return a divisor of the number that is greater than 1 and less than the number
+	 */
+	static long findDivisor(long n){
+		LongMontgomery montgomery = new LongMontgomery(n);
+		for (long c = 1;; c++){
+			long divisor = findDivisor(montgomery, c);
+			if (divisor != n){
+				return divisor;
+			}
+		}
+	}
+	
+	/**
+	 * Runs Brent's cycle detection on the sequence <code>x -> x^2 + c</code>, calculated in Montgomery form.
+	 *
+	 * @param montgomery the arithmetic for the number
+	 * @param c the constant of the sequence, must be less than the number
+	 * @return a divisor of the number greater than 1, or the number itself if the sequence cycles modulo all its
+	 * factors at once
+	 */
+	private static long findDivisor(LongMontgomery montgomery, long c){
+		long n = montgomery.modulus;
+		long x = 0;
+		long y = 0;
+		long saved = 0;
+		long product = montgomery.one;
+		long divisor = 1;
+		for (long r = 1; divisor == 1; r <<= 1){
+			x = y;
+			for (long i = 0; i < r; i++){
+				y = montgomery.addMod(montgomery.multiply(y, y), c);
+			}
+			for (long k = 0; k < r && divisor == 1; k += BATCH_LENGTH){
+				saved = y;
+				long steps = Math.min(BATCH_LENGTH, r - k);
+				for (long i = 0; i < steps; i++){
+					y = montgomery.addMod(montgomery.multiply(y, y), c);
+					product = montgomery.multiply(product, difference(x, y, n));
+				}
+				// Multiplying by 2^64 doesn't change the gcd, since n is odd.
+				divisor = GCD.of(product, n);
+			}
+		}
+		if (divisor == n){
+			// The batch contained all factors, so repeat it step by step.
+			do{
+				saved = montgomery.addMod(montgomery.multiply(saved, saved), c);
+				divisor = GCD.of(difference(x, saved, n), n);
+			}while (divisor == 1);
+		}
+		return divisor;
+	}
+	
+	/**
+	 * Calculates the difference of two numbers modulo a modulus.
+	 *
+	 * @param a a number, must not be negative and less than the modulus
+	 * @param b a number, must not be negative and less than the modulus
+	 * @param n the modulus
+	 * @return <code>(a - b) mod n</code>
+	 */
+	private static long difference(long a, long b, long n){
+		long difference = a - b;
+		return difference < 0 ? difference + n : difference;
+	}
+	
+	/**
+	 * Finds a non-trivial divisor of the given number.
+	 *
+	 * @param n the number, must be odd and composite
+	 * @return a divisor of the number that is greater than 1 and less than the number
+	 */
+	static BigInteger findDivisor(BigInteger n){
+		for (long c = 1;; c++){
+			BigInteger divisor = findDivisor(n, BigInteger.valueOf(c));
+			if (!divisor.equals(n)){
+				return divisor;
+			}
+		}
+	}
+	
+	/**
+	 * Runs Brent's cycle detection on the sequence <code>x -> x^2 + c</code>.
+	 *
+	 * @param n the number
+	 * @param c the constant of the sequence, must be less than the number
+	 * @return a divisor of the number greater than 1, or the number itself if the sequence cycles modulo all its
+	 * factors at once
+	 */
+	private static BigInteger findDivisor(BigInteger n, BigInteger c){
+		BigInteger x = BigInteger.ZERO;
+		BigInteger y = BigInteger.ZERO;
+		BigInteger saved = BigInteger.ZERO;
+		BigInteger product = BigInteger.ONE;
+		BigInteger divisor = BigInteger.ONE;
+		for (long r = 1; divisor.equals(BigInteger.ONE); r <<= 1){
+			x = y;
+			for (long i = 0; i < r; i++){
+				y = y.multiply(y).add(c).mod(n);
+			}
+			for (long k = 0; k < r && divisor.equals(BigInteger.ONE); k += BATCH_LENGTH){
+				saved = y;
+				long steps = Math.min(BATCH_LENGTH, r - k);
+				for (long i = 0; i < steps; i++){
+					y = y.multiply(y).add(c).mod(n);
+					product = product.multiply(x.subtract(y)).mod(n);
+				}
+				divisor = product.gcd(n);
+			}
+		}
+		if (divisor.equals(n)){
+			// The batch contained all factors, so repeat it step by step.
+			do{
+				saved = saved.multiply(saved).add(c).mod(n);
+				divisor = x.subtract(saved).gcd(n);
+			}while (divisor.equals(BigInteger.ONE));
+		}
+		return divisor;
+	}
+}
@@ -0,0 +1,197 @@
+package jamato.primes;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Checks many unrelated numbers for primality at once. The numbers are partitioned into those that can be looked up in
+ * the cache and those that have to be tested. Unless the cache has constant-time lookups, the lookups are sorted, so
+ * that the cache can resolve them in a single pass (see {@link PrimeCache#containsAll(long[], int, int, boolean[])}).
+ * The Miller-Rabin tests are run four at a time (see {@link MillerRabinTest#test(int, int, int, int, int)}). Large
+ * batches are processed in parallel.
+ *
+ * @author JSiebel
+ *
+ */
+final class PrimalityBatch{
+	
+	/** The number of lookups or candidates processed by a single task. It is a multiple of 64. */
+	static final int CHUNK_LENGTH = 1 << 12;
+	
+	/** The minimum number of numbers for which the chunks are processed in parallel. */
+	private static final int PARALLEL_THRESHOLD = 1 << 16;
+	
+	/** The Miller-Rabin bases that identify all int primes greater than 61. */
+	private static final int[] BASES = { 2, 7, 61 };
+	
+	/** The least number that is tested with the {@link #BASES}. Smaller numbers are looked up in the cache. */
+	private static final int MIN_TESTED_NUMBER = 64;
+	
+	/** The cache used for lookups. */
+	private final PrimeCache cache;
+	
+	/** The sieve used for simple composite checks. */
+	private final PrimesSieve sieve;
+	
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param cache the cache used for lookups
+	 * @param sieve the sieve used for simple composite checks
+	 */
+	PrimalityBatch(PrimeCache cache, PrimesSieve sieve){
+		cache.fillToLimit(MIN_TESTED_NUMBER);
+		this.cache = cache;
+		this.sieve = sieve;
+	}
+	
+	/**
+	 * Checks each of the given numbers for primality.
+	 *
+	 * @param numbers the numbers to be checked
+	 * @param results the array into which the results are written, at the indices of the numbers
+	 */
+	void test(int[] numbers, boolean[] results){
+		test(numbers, 0, numbers.length, results, 0);
+	}
+	
+	/**
+	 * Checks each of the given numbers for primality.
+	 *
+	 * @param numbers the numbers to be checked
+	 * @param bitmask the bit mask into which the results are written; bit <code>i % 64</code> of
+	 * <code>bitmask[i / 64]</code> is set if <code>numbers[i]</code> is prime, and cleared otherwise
+	 */
+	void test(int[] numbers, long[] bitmask){
+		boolean[] results = new boolean[numbers.length];
+		test(numbers, results);
+		forEachChunk(numbers.length, numbers.length >= PARALLEL_THRESHOLD, (from, to) -> {
+			for (int i = from; i < to; i += Long.SIZE){
+				long word = 0;
+				for (int bit = 0; bit < Long.SIZE && i + bit < to; bit++){
+					if (results[i + bit]){
+						word |= 1L << bit;
+					}
+				}
+				bitmask[i / Long.SIZE] = word;
+			}
+		});
+	}
+	
+	/**
+	 * Checks a part of the given numbers for primality.
+	 *
+	 * @param numbers the numbers to be checked
+	 * @param from the index of the first number to be checked, inclusive
+	 * @param to the index of the last number to be checked, exclusive
+	 * @param results the array into which the results are written
+	 * @param offset the index in the results array for the number at index <code>from</code>
+	 */
+	void test(int[] numbers, int from, int to, boolean[] results, int offset){
+		int cacheMax = cache.max();
+		boolean sortLookups = !cache.hasConstantTimeLookups();
+		// Numbers looked up in the cache in the upper 32 bits, with their result index in the lower 32 bits
+		long[] lookups = new long[to - from];
+		int lookupCount = 0;
+		int[] candidates = new int[to - from];
+		int[] candidateIndices = new int[to - from];
+		int candidateCount = 0;
+		
+		for (int i = from; i < to; i++){
+			int n = numbers[i];
+			int index = offset + i - from;
+			if (n >= 2 && n < cacheMax){
+				if (sortLookups){
+					lookups[lookupCount++] = (long) n << Integer.SIZE | index;
+				}else{
+					results[index] = cache.contains(n);
+				}
+			}else{
+				results[index] = false;
+				if (n >= cacheMax && sieve.isCandidate(n)){
+					candidates[candidateCount] = n;
+					candidateIndices[candidateCount++] = index;
+				}
+			}
+		}
+		boolean parallel = to - from >= PARALLEL_THRESHOLD;
+		
+		if (parallel){
+			Arrays.parallelSort(lookups, 0, lookupCount);
+		}else{
+			Arrays.sort(lookups, 0, lookupCount);
+		}
+		forEachChunk(lookupCount, parallel, (chunkFrom, chunkTo) -> {
+			cache.containsAll(lookups, chunkFrom, chunkTo, results);
+		});
+		
+		forEachChunk(candidateCount, parallel, (chunkFrom, chunkTo) -> {
+			int primesTo = test(candidates, candidateIndices, chunkFrom, chunkTo);
+			for (int i = chunkFrom; i < primesTo; i++){
+				results[candidateIndices[i]] = true;
+			}
+		});
+	}
+	
+	/**
+	 * Runs the Miller-Rabin tests for the {@link #BASES} on a part of the given candidates. The candidates are tested
+	 * four at a time, and only those that pass a base are tested with the next one.
+	 *
+	 * @param candidates the candidates, which must be odd and greater than the bases
+	 * @param indices the result indices belonging to the candidates
+	 * @param from the index of the first candidate, inclusive
+	 * @param to the index of the last candidate, exclusive
+	 * @return the index after the last prime; the primes and their result indices are moved to the start of the range
+	 */
+	private static int test(int[] candidates, int[] indices, int from, int to){
+		for (int base : BASES){
+			int survivors = from;
+			for (int i = from; i < to; i += 4){
+				int n0 = candidates[i];
+				int n1 = i + 1 < to ? candidates[i + 1] : n0;
+				int n2 = i + 2 < to ? candidates[i + 2] : n0;
+				int n3 = i + 3 < to ? candidates[i + 3] : n0;
+				int passed = MillerRabinTest.test(n0, n1, n2, n3, base);
+				for (int lane = 0; lane < 4 && i + lane < to; lane++){
+					if ((passed >>> lane & 1) != 0){
+						// Survivors are moved to the front, which never overwrites unchecked candidates.
+						candidates[survivors] = candidates[i + lane];
+						indices[survivors++] = indices[i + lane];
+					}
+				}
+			}
+			to = survivors;
+		}
+		return to;
+	}
+	
+	/**
+	 * An action on a range of indices.
+	 */
+	@FunctionalInterface
+	private interface RangeAction{
+		
+		/**
+		 * Performs the action.
+		 *
+		 * @param from the first index, inclusive
+		 * @param to the last index, exclusive
+		 */
+		void run(int from, int to);
+	}
+	
+	/**
+	 * Splits the given number of elements into chunks of {@link #CHUNK_LENGTH}, and runs the given action on each.
+	 *
+	 * @param length the number of elements
+	 * @param parallel <code>true</code> if the chunks are to be processed in parallel
+	 * @param action the action to be run
+	 */
+	private static void forEachChunk(int length, boolean parallel, RangeAction action){
+		IntStream chunks = IntStream.range(0, (length + CHUNK_LENGTH - 1) / CHUNK_LENGTH);
+		if (parallel){
+			chunks = chunks.parallel();
+		}
+		chunks.forEach(chunk -> action.run(chunk * CHUNK_LENGTH, Math.min((chunk + 1) * CHUNK_LENGTH, length)));
+	}
+}
@@ -1,32 +1,80 @@
 package jamato.primes;
 
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 /**
- * A cache for int primes.
+ * A cache for int primes. The cache is filled in ascending order by sieving segments; subclasses define how the primes
+ * are stored.
+ * <p>
+ * The cache can be read by multiple threads without locking, while filling it is serialized. Only the filling thread
+ * writes to the storage, and only primes greater than the current maximum. The new primes are written first, then the
+ * new size and maximum are published together. Readers that read the size or the maximum first (directly or through
+ * one of the methods of this class) therefore see all the primes up to it.
  *
  * @author JSiebel
  *
  */
-class PrimeCache{
+abstract class PrimeCache{
+	
+	/** The number of segments that are sieved in parallel before their primes are appended to the cache. */
+	private static final int PARALLEL_BATCH_SEGMENTS = 64;
+	
+	/**
+	 * The number of cached primes per looked up number up to which {@link #containsAll(long[], int, int, boolean[])}
+	 * walks through the cache instead of searching each number.
+	 */
+	private static final int MAX_WALKED_PRIMES_PER_LOOKUP = 64;
+	
+	/** The number of primes that {@link #setPrimeBits(int, int, long, long[])} copies out of the cache at once. */
+	private static final int BITS_CHUNK_LENGTH = 1 << 10;
+	
+	/** The primes every cache initially contains. */
+	static final int[] INITIAL_PRIMES = { 2, 3, 5, 7, 11, 13, 17, 19 };
 	
 	/**
-	 * An array of primes. The cache can grow when calling methods in this class. It is filled up to index
-	 * {@link #cacheSize} (exclusive) and may contain zeros in the end.
+	 * The number of primes currently cached (in the upper 32 bits) and the greatest prime currently cached (in the
+	 * lower 32 bits). Both are published together, so that readers always see consistent values.
 	 */
-	private int[] cache = { 2, 3, 5, 7, 11, 13, 17, 19 };
+	private volatile long state;
+	
+	/** All primes less than this limit are cached. The value is always even. It is guarded by this cache's lock. */
+	private long limit;
+	
+	/** The sieve used for filling the cache. It is guarded by this cache's lock. */
+	private final SegmentedSieve sieve = new SegmentedSieve();
 	
-	/** The number of primes currently cached. */
-	private int size = cache.length;
+	/** A buffer for the primes of a sieved segment. It is guarded by this cache's lock. */
+	private final int[] segmentPrimes = new int[SegmentedSieve.SEGMENT_BYTES];
+	
+	/**
+	 * Creates a cache that contains the {@link #INITIAL_PRIMES}.
+	 */
+	PrimeCache(){
+		this(INITIAL_PRIMES.length, INITIAL_PRIMES[INITIAL_PRIMES.length - 1]);
+	}
+	
+	/**
+	 * Creates a cache whose storage already contains all primes up to the given one.
+	 *
+	 * @param size the number of primes in the storage
+	 * @param max the greatest prime in the storage, must be odd
+	 */
+	PrimeCache(int size, int max){
+		this.state = state(size, max);
+		this.limit = max + 1L;
+	}
 	
 	/**
 	 * Returns the current size of the cache, i.e. the number of primes stored.
 	 *
 	 * @return the size of the cache
 	 */
-	int size(){
-		return size;
+	final int size(){
+		return (int) (state >>> Integer.SIZE);
 	}
 	
 	/**
@@ -34,75 +82,106 @@ class PrimeCache{
 	 *
 	 * @return the greatest prime in the cache
 	 */
-	int max(){
-		return cache[size - 1];
+	final int max(){
+		return (int) state;
 	}
 	
 	/**
-	 * Adds the next prime number to the cache. The caller must make sure it's the correct one.
-	 * 
-	 * @param prime the next prime number
+	 * Returns <code>true</code> if the cache contains the given number, <code>false</code> otherwise.
+	 *
+	 * @param number a number
+	 * @return <code>true</code> if the cache contains the number
 	 */
-	void add(int prime){
-		if (size == cache.length){
-			grow();
-		}
-		cache[size++] = prime;
-	}
+	abstract boolean contains(int number);
 	
 	/**
-	 * Adds the next prime number to the cache without checking its size. The caller must make sure the number fits (by
-	 * calling {@link #growTo(int)}), and that it's the correct number.
-	 * 
-	 * @param prime the next prime number
+	 * Returns the number at the given index. The index must be less than a size previously returned by
+	 * {@link #size()}.
+	 *
+	 * @param index the index of the number
+	 * @return the number in the cache
 	 */
-	void addUnchecked(int prime){
-		cache[size++] = prime;
-	}
+	abstract int get(int index);
 	
 	/**
-	 * Replaces the cache array by a bigger one, up to a maximum size of <code>Primes.NUMBER_OF_INT_PRIMES</code>.
+	 * Copies a part of the cache into the given array.
+	 *
+	 * @param fromIndex the index of the first prime copied (inclusive)
+	 * @param toIndex the index after the last prime copied (exclusive), must not be greater than a size previously
+	 * returned by {@link #size()}
+	 * @param target the target array
+	 * @param offset the index in the target array at which the first prime is written
 	 */
-	private void grow(){
-		if (cache.length < Primes.NUMBER_OF_INT_PRIMES / 2){
-			cache = Arrays.copyOf(cache, 2 * cache.length);
-		}else if (cache.length < Primes.NUMBER_OF_INT_PRIMES){
-			cache = Arrays.copyOf(cache, Primes.NUMBER_OF_INT_PRIMES);
-		}else{
-			// the cache is already big enough to hold all int primes
-		}
+	abstract void copy(int fromIndex, int toIndex, int[] target, int offset);
+	
+	/**
+	 * Returns the index of the given number in the cache, if the cache contains it; or the index at which it would be
+	 * inserted otherwise.
+	 *
+	 * @param number a number
+	 * @return the number's insertion index
+	 */
+	abstract int getInsertionIndex(int number);
+	
+	/**
+	 * Checks if {@link #contains(int)} takes constant time. Otherwise, looking up many numbers is faster by sorting
+	 * them and using {@link #containsAll(long[], int, int, boolean[])}.
+	 *
+	 * @return <code>true</code> if lookups take constant time
+	 */
+	boolean hasConstantTimeLookups(){
+		return false;
 	}
 	
 	/**
-	 * Replaces the cache array by a bigger one, up to a maximum size of <code>Primes.NUMBER_OF_INT_PRIMES</code>.
+	 * Checks which of the given numbers the cache contains. If the numbers are dense compared to the primes between
+	 * them, this method walks through the cache once instead of searching each number.
+	 *
+	 * @param lookups the numbers to be checked (in the upper 32 bits) with the index of their result (in the lower 32
+	 * bits), sorted in ascending order; all numbers must be less than a value previously returned by {@link #max()}
+	 * @param from the index of the first lookup, inclusive
+	 * @param to the index of the last lookup, exclusive
+	 * @param results the array into which the results are written
 	 */
-	void growTo(int minimumSize){
-		if (minimumSize < Primes.NUMBER_OF_INT_PRIMES){
-			while (minimumSize > cache.length){
-				grow();
+	void containsAll(long[] lookups, int from, int to, boolean[] results){
+		if (from == to){
+			return;
+		}
+		int fromIndex = getInsertionIndex((int) (lookups[from] >>> Integer.SIZE));
+		int toIndex = getInsertionIndex((int) (lookups[to - 1] >>> Integer.SIZE)) + 1;
+		if (toIndex - fromIndex <= (long) (to - from) * MAX_WALKED_PRIMES_PER_LOOKUP){
+			PrimeCacheIterator primes = new PrimeCacheIterator(this, fromIndex, toIndex);
+			int prime = primes.nextInt();
+			for (int i = from; i < to; i++){
+				int number = (int) (lookups[i] >>> Integer.SIZE);
+				while (prime < number && primes.hasNext()){
+					prime = primes.nextInt();
+				}
+				results[(int) lookups[i]] = prime == number;
+			}
+		}else{
+			for (int i = from; i < to; i++){
+				results[(int) lookups[i]] = contains((int) (lookups[i] >>> Integer.SIZE));
 			}
 		}
 	}
 	
 	/**
-	 * Returns <code>true</code> if the cache contains the given number, <code>false</code> otherwise.
+	 * Stores the given primes after the currently cached ones. This method is called by the filling thread while it
+	 * holds this cache's lock, before the new size is published.
 	 *
-	 * @param number a number
-	 * @return <code>true</code> if the cache contains the number
+	 * @param primes an array containing the primes following the greatest cached prime, in ascending order
+	 * @param count the number of primes to store
 	 */
-	boolean contains(int number){
-		return Arrays.binarySearch(cache, 0, size, number) >= 0;
-	}
+	abstract void append(int[] primes, int count);
 	
 	/**
-	 * Returns the number at the given index.
-	 *
-	 * @param index the index of the number
-	 * @return the number in the cache
-	 * @throws ArrayIndexOutOfBoundsException if the index is out of range (<code> index < 0 || index >= size()</code>)
+	 * Releases storage that is not needed for the primes currently cached, like unused array capacity. This method is
+	 * called while the caller holds this cache's lock, so no primes are appended concurrently. It replaces the storage
+	 * by smaller copies containing the same primes, so that readers can keep using the previous storage.
 	 */
-	public int get(int index){
-		return cache[index];
+	void releaseMemory(){
+		// Nothing to release by default
 	}
 	
 	/**
@@ -116,7 +195,35 @@ class PrimeCache{
 	 * @throws IllegalArgumentException if {@code fromIndex > toIndex}
 	 */
 	int[] getArray(int fromIndex, int toIndex){
-		return Arrays.copyOfRange(cache, fromIndex, toIndex);
+		if (fromIndex > toIndex){
+			throw new IllegalArgumentException(fromIndex + " > " + toIndex);
+		}else if (fromIndex < 0 || toIndex > size()){
+			throw new ArrayIndexOutOfBoundsException("Range [" + fromIndex + ", " + toIndex + ") exceeds the cache");
+		}
+		int[] result = new int[toIndex - fromIndex];
+		copy(fromIndex, toIndex, result, 0);
+		return result;
+	}
+	
+	/**
+	 * Sets the bits of the cached primes with the given indices in a bit mask.
+	 *
+	 * @param fromIndex the index of the lowest prime (inclusive)
+	 * @param toIndex the index after the last prime (exclusive), must not be greater than {@link #size()}
+	 * @param origin the number represented by the first bit of the bit mask, must not be greater than the lowest prime
+	 * @param bitmask the bit mask; bit <code>i % 64</code> of <code>bitmask[i / 64]</code> represents the number
+	 * <code>origin + i</code>. It must be long enough for all the primes.
+	 */
+	void setPrimeBits(int fromIndex, int toIndex, long origin, long[] bitmask){
+		int[] primes = new int[Math.min(toIndex - fromIndex, BITS_CHUNK_LENGTH)];
+		for (int from = fromIndex; from < toIndex; from += primes.length){
+			int count = Math.min(primes.length, toIndex - from);
+			copy(from, from + count, primes, 0);
+			for (int i = 0; i < count; i++){
+				long bit = primes[i] - origin;
+				bitmask[(int) (bit >>> 6)] |= 1L << bit;
+			}
+		}
 	}
 	
 	/**
@@ -127,22 +234,179 @@ class PrimeCache{
 	 * @return a stream of cache elements
 	 */
 	IntStream stream(int fromIndex, int toIndex){
-		return Arrays.stream(cache, fromIndex, toIndex);
+		return StreamSupport.intStream(new PrimeCacheSpliterator(this, fromIndex, toIndex), false);
 	}
 	
 	/**
-	 * Returns the index of the given number in the cache, if the cache contains it; or the index at which it would be
-	 * inserted otherwise.
+	 * Fills the cache so it contains all the primes up to the given index (exclusive). The cache may contain more
+	 * entries.
 	 *
-	 * @param number a number
-	 * @return the number's insertion index
+	 * @param index the index up to which the cache is filled, must not be greater than
+	 * <code>Primes.NUMBER_OF_INT_PRIMES</code>
+	 */
+	void fillToIndex(int index){
+		if (size() < index){
+			synchronized (this){
+				while (size() < index){
+					sieveNextSegment();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Fills the cache so it contains all the primes up to the given number (exclusive), and the least prime greater
+	 * than or equal to it (if it fits in an int). The cache may contain more entries.
+	 *
+	 * @param upperBound the number up to which the cache is filled
 	 */
-	int getInsertionIndex(int number){
-		int index = Arrays.binarySearch(cache, 0, size, number);
-		if (index < 0){
-			return -index - 1;
+	void fillToLimit(int upperBound){
+		if (max() < upperBound){
+			synchronized (this){
+				while (max() < upperBound && limit < SegmentedSieve.LIMIT){
+					sieveNextSegment();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Fills the cache so it contains all the primes up to the given index (exclusive), like {@link #fillToIndex(int)}.
+	 * Batches of segments are sieved in parallel, so the cache may contain considerably more entries.
+	 *
+	 * @param index the index up to which the cache is filled, must not be greater than
+	 * <code>Primes.NUMBER_OF_INT_PRIMES</code>
+	 */
+	void fillToIndexInParallel(int index){
+		if (size() < index){
+			synchronized (this){
+				while (size() < index){
+					sieveNextSegmentsInParallel();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Fills the cache in the background so it contains all the primes up to the given number (exclusive), like
+	 * {@link #fillToLimit(int)}. The lock is taken for one segment at a time, and each segment is published when it
+	 * has been sieved, so that readers can use the filled part right away, and threads that need to fill the cache
+	 * themselves only wait for the current segment. Cancelling the returned future stops filling after the current
+	 * segment.
+	 *
+	 * @param upperBound the number up to which the cache is filled
+	 * @param executor the executor that runs the filling task
+	 * @return a future that is completed when the cache is filled
+	 */
+	CompletableFuture<Void> prefill(int upperBound, Executor executor){
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		executor.execute(() -> {
+			try{
+				while (!future.isDone() && fillNextSegment(upperBound)){
+					// Give threads waiting for the lock a chance to take it.
+					Thread.yield();
+				}
+				future.complete(null);
+			}catch (Throwable e){
+				future.completeExceptionally(e);
+			}
+		});
+		return future;
+	}
+	
+	/**
+	 * Sieves the segment after {@link #limit} if the cache doesn't contain all primes up to the given number yet.
+	 *
+	 * @param upperBound the number up to which the cache is filled
+	 * @return <code>true</code> if a segment was sieved, <code>false</code> if the cache was already filled
+	 */
+	private synchronized boolean fillNextSegment(int upperBound){
+		if (max() < upperBound && limit < SegmentedSieve.LIMIT){
+			sieveNextSegment();
+			return true;
 		}else{
-			return index;
+			return false;
 		}
 	}
+	
+	/**
+	 * Releases memory that is not needed for the primes currently cached, see {@link #releaseMemory()}.
+	 */
+	final void trim(){
+		synchronized (this){
+			releaseMemory();
+		}
+	}
+	
+	/**
+	 * Appends primes that were calculated elsewhere and publishes them. This is used to fill a cache that stores a part
+	 * of the primes of another cache.
+	 *
+	 * @param primes an array containing the primes following the greatest cached prime, in ascending order
+	 * @param count the number of primes to append, must be positive
+	 */
+	final void appendPrimes(int[] primes, int count){
+		synchronized (this){
+			appendSegment(primes, count, primes[count - 1] + 1L);
+		}
+	}
+	
+	/**
+	 * Sieves the segment after {@link #limit} and appends its primes to the cache. The cache must not be full, and the
+	 * caller must hold this cache's lock.
+	 */
+	private void sieveNextSegment(){
+		long high = Math.min(limit + SegmentedSieve.SEGMENT_LENGTH, SegmentedSieve.LIMIT);
+		sieve.sieve(limit, high);
+		appendSegment(segmentPrimes, sieve.copyPrimes(segmentPrimes, 0), high);
+	}
+	
+	/**
+	 * Sieves a batch of segments after {@link #limit} in parallel, each with its own sieve, and appends their primes to
+	 * the cache in order. The cache must not be full, and the caller must hold this cache's lock.
+	 */
+	private void sieveNextSegmentsInParallel(){
+		long start = limit;
+		long end = Math.min(start + (long) PARALLEL_BATCH_SEGMENTS * SegmentedSieve.SEGMENT_LENGTH,
+				SegmentedSieve.LIMIT);
+		int segments = (int) ((end - start + SegmentedSieve.SEGMENT_LENGTH - 1) / SegmentedSieve.SEGMENT_LENGTH);
+		int[][] primes = IntStream.range(0, segments).parallel().mapToObj(i -> {
+			long low = start + (long) i * SegmentedSieve.SEGMENT_LENGTH;
+			SegmentedSieve segmentSieve = new SegmentedSieve();
+			segmentSieve.sieve(low, Math.min(low + SegmentedSieve.SEGMENT_LENGTH, end));
+			int[] target = new int[SegmentedSieve.SEGMENT_BYTES];
+			return Arrays.copyOf(target, segmentSieve.copyPrimes(target, 0));
+		}).toArray(int[][]::new);
+		for (int i = 0; i < segments; i++){
+			long high = Math.min(start + (i + 1L) * SegmentedSieve.SEGMENT_LENGTH, end);
+			appendSegment(primes[i], primes[i].length, high);
+		}
+	}
+	
+	/**
+	 * Appends the primes of a sieved segment to the cache and publishes them. The segment must start at
+	 * {@link #limit}, and the caller must hold this cache's lock.
+	 *
+	 * @param primes an array containing the primes of the segment, in ascending order
+	 * @param count the number of primes in the segment
+	 * @param high the upper bound of the segment, exclusive
+	 */
+	private void appendSegment(int[] primes, int count, long high){
+		limit = high;
+		if (count > 0){
+			append(primes, count);
+			state = state(size() + count, primes[count - 1]);
+		}
+	}
+	
+	/**
+	 * Combines a size and a maximum into a {@link #state} value.
+	 *
+	 * @param size the number of cached primes
+	 * @param max the greatest cached prime
+	 * @return the state
+	 */
+	private static long state(int size, int max){
+		return (long) size << Integer.SIZE | max;
+	}
 }
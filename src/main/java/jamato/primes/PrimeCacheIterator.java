@@ -1,27 +1,44 @@
 package jamato.primes;
 
+import java.util.NoSuchElementException;
 import java.util.PrimitiveIterator;
 
 /**
- * An {@link Iterator} that yields prime numbers from a cache while filling it when calculating new primes.
+ * An {@link Iterator} that yields prime numbers from a cache while filling it when calculating new primes. The primes
+ * are copied from the cache in chunks, so that cache layouts with slower index lookups can be read sequentially.
  *
  * @author JSiebel
  *
  */
 class PrimeCacheIterator implements PrimitiveIterator.OfInt{
 	
+	/** The initial length of the buffer. It is kept small for iterators that only read few primes. */
+	private static final int INITIAL_BUFFER_LENGTH = 16;
+	
+	/** The maximum length of the buffer. */
+	private static final int MAX_BUFFER_LENGTH = 1024;
+	
 	private final PrimeCache cache;
 	
 	private int nextIndex;
 	
 	private final int toIndex;
 	
+	/** A buffer containing the primes from index {@link #nextIndex} - {@link #bufferPosition} on. */
+	private int[] buffer = new int[INITIAL_BUFFER_LENGTH];
+	
+	/** The position of the next prime in the buffer. */
+	private int bufferPosition;
+	
+	/** The number of valid primes in the buffer. */
+	private int bufferEnd;
+	
 	/**
 	 * Creates a new instance.
 	 *
 	 * @param cache the cache to be filled
-	 * @param startIndex the index of the first prime to be returned
-	 * @param endIndex the index of the last prime (exclusive)
+	 * @param fromIndex the index of the first prime to be returned
+	 * @param toIndex the index of the last prime (exclusive)
 	 */
 	public PrimeCacheIterator(PrimeCache cache, int fromIndex, int toIndex){
 		this.cache = cache;
@@ -31,18 +48,35 @@ class PrimeCacheIterator implements PrimitiveIterator.OfInt{
 	
 	@Override
 	public int nextInt(){
-		if (nextIndex < cache.size()){
-			return cache.get(nextIndex++);
-		}else{
-			int nextPrime = Primes.calculateNextPrimeAfter(cache.max());
-			cache.add(nextPrime);
-			nextIndex++;
-			return nextPrime;
+		if (bufferPosition == bufferEnd){
+			fillBuffer();
 		}
+		nextIndex++;
+		return buffer[bufferPosition++];
 	}
 	
 	@Override
 	public boolean hasNext(){
 		return nextIndex < toIndex;
 	}
+	
+	/**
+	 * Copies the next chunk of primes from the cache into the buffer, filling the cache if necessary. The buffer grows
+	 * with every call until it reaches its maximum length.
+	 */
+	private void fillBuffer(){
+		if (!hasNext()){
+			throw new NoSuchElementException();
+		}
+		if (bufferEnd == buffer.length && buffer.length < MAX_BUFFER_LENGTH){
+			buffer = new int[2 * buffer.length];
+		}
+		bufferEnd = Math.min(buffer.length, toIndex - nextIndex);
+		bufferPosition = 0;
+		int endIndex = nextIndex + bufferEnd;
+		if (endIndex > cache.size()){
+			cache.fillToIndex(endIndex);
+		}
+		cache.copy(nextIndex, endIndex, buffer, 0);
+	}
 }
\ No newline at end of file
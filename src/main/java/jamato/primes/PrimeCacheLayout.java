@@ -0,0 +1,96 @@
+package jamato.primes;
+
+/**
+ * The ways in which {@link Primes} can store the primes it has calculated. The layout used when the application starts
+ * is read from the system property <code>jamato.primes.cacheLayout</code> (<code>ARRAY</code> by default), and it can
+ * be changed with {@link Primes#resetCache(PrimeCacheLayout)}.
+ * <p>
+ * The memory of the cache can be bounded with the system property <code>jamato.primes.cacheBudget</code> (in bytes) or
+ * with {@link Primes#resetCache(PrimeCacheLayout, long)}. A bounded cache keeps as many of the lowest primes as fit in
+ * the budget with the chosen layout; the primes beyond them may be reclaimed by the garbage collector and are
+ * calculated again when they are needed.
+ *
+ * @author JSiebel
+ *
+ */
+public enum PrimeCacheLayout{
+	
+	/**
+	 * Stores the primes in an int array. This uses 4 bytes per prime (about 420 MB for all int primes), and accessing a
+	 * prime by its index is a single array access.
+	 */
+	ARRAY,
+	
+	/**
+	 * Stores a bitmap of the numbers coprime to 30, so that checking if a number is prime is a single bit probe. This
+	 * uses about 72 MB for all int primes (8 bits for every 30 numbers, plus about 6 % for index lookups). Accessing a
+	 * prime by its index counts bits in a block of 64 bytes.
+	 */
+	BITMAP,
+	
+	/**
+	 * Stores half the gap between consecutive primes in a byte, and every 64th prime in an int. This uses about 1.06
+	 * bytes per prime (about 112 MB for all int primes). Accessing a prime by its index decodes up to 63 gaps after the
+	 * closest stored prime, which is fast for sequential access.
+	 */
+	DELTA;
+	
+	/**
+	 * Estimates how many primes a cache with this layout can store within the given memory.
+	 *
+	 * @param bytes the memory in bytes, must be positive
+	 * @return the number of primes, at most <code>Primes.NUMBER_OF_INT_PRIMES</code>
+	 */
+	int capacityWithin(long bytes){
+		long capacity;
+		switch (this){
+		case BITMAP:
+			// 68 bytes cover 64 * 30 numbers, which contain about n / ln(n) primes
+			double numbers = Math.max(bytes / 68.0 * 64 * 30, Math.E);
+			capacity = (long) (numbers / Math.log(numbers));
+			break;
+		case DELTA:
+			// 64 primes take 64 bytes of gaps and a 4-byte checkpoint
+			capacity = bytes / 68 * 64;
+			break;
+		case ARRAY:
+		default:
+			capacity = bytes / Integer.BYTES;
+			break;
+		}
+		return (int) Math.min(capacity, Primes.NUMBER_OF_INT_PRIMES);
+	}
+	
+	/**
+	 * Creates an empty cache with this layout, whose memory is bounded by the given budget. Primes beyond the budget
+	 * are kept in memory that the garbage collector may reclaim, and calculated again when they are needed.
+	 *
+	 * @param memoryBudget the memory budget in bytes, must be positive; {@link Long#MAX_VALUE} for an unbounded cache
+	 * @return a new cache
+	 */
+	PrimeCache createCache(long memoryBudget){
+		int capacity = capacityWithin(memoryBudget);
+		if (capacity >= Primes.NUMBER_OF_INT_PRIMES){
+			return createCache();
+		}else{
+			return new BoundedPrimeCache(this, Math.max(capacity, PrimeCache.INITIAL_PRIMES.length));
+		}
+	}
+	
+	/**
+	 * Creates an empty cache with this layout.
+	 *
+	 * @return a new cache
+	 */
+	PrimeCache createCache(){
+		switch (this){
+		case BITMAP:
+			return new BitmapPrimeCache();
+		case DELTA:
+			return new DeltaPrimeCache();
+		case ARRAY:
+		default:
+			return new ArrayPrimeCache();
+		}
+	}
+}
@@ -2,23 +2,33 @@ package jamato.primes;
 
 import java.util.Objects;
 import java.util.Spliterator;
-import java.util.Spliterators;
 import java.util.function.IntConsumer;
 
 /**
  * A {@link Spliterator} that yields prime numbers using a cache. Primes in the cache are read from it, and newly
  * calculated primes are added to the cache.
+ * <p>
+ * The spliterator splits its index range in half. If the first half is not cached yet, the cache is filled up to the
+ * split index by sieving segments in parallel, so that both halves can be traversed independently.
  *
  * @author JSiebel
  *
  */
-class PrimeCacheSpliterator extends Spliterators.AbstractIntSpliterator{
+class PrimeCacheSpliterator implements Spliterator.OfInt{
+	
+	/** The minimum number of primes in a spliterator created by {@link #trySplit()}. */
+	private static final int MIN_SPLIT_LENGTH = 1 << 12;
 	
 	private final PrimeCache cache;
 	
-	private int nextIndex;
+	/** The index of the next prime. */
+	private int index;
+	
+	/** The index of the last prime (exclusive). */
+	private final int fence;
 	
-	private final int endIndex;
+	/** The iterator providing the primes, created when the traversal starts. */
+	private PrimeCacheIterator iterator;
 	
 	/**
 	 * Creates a new instance.
@@ -28,31 +38,64 @@ class PrimeCacheSpliterator extends Spliterators.AbstractIntSpliterator{
 	 * @param endIndex the index of the last prime (exclusive)
 	 */
 	public PrimeCacheSpliterator(PrimeCache cache, int startIndex, int endIndex){
-		super(endIndex - startIndex,
-				Spliterator.ORDERED | Spliterator.IMMUTABLE | Spliterator.NONNULL | Spliterator.SIZED);
 		if (startIndex > cache.size()){
 			throw new IllegalArgumentException();
 		}
 		this.cache = cache;
-		this.nextIndex = startIndex;
-		this.endIndex = endIndex;
+		this.index = startIndex;
+		this.fence = endIndex;
 	}
 	
 	@Override
 	public boolean tryAdvance(IntConsumer action){
 		Objects.requireNonNull(action);
-		if (nextIndex == endIndex){
+		if (index >= fence){
 			return false;
 		}
-		int next;
-		if (nextIndex < cache.size()){
-			next = cache.get(nextIndex);
-		}else{
-			next = Primes.calculateNextPrimeAfter(cache.max());
-			cache.add(next);
+		if (iterator == null){
+			iterator = new PrimeCacheIterator(cache, index, fence);
 		}
-		nextIndex++;
-		action.accept(next);
+		index++;
+		action.accept(iterator.nextInt());
 		return true;
 	}
+	
+	@Override
+	public void forEachRemaining(IntConsumer action){
+		Objects.requireNonNull(action);
+		if (index >= fence){
+			return;
+		}
+		if (iterator == null){
+			iterator = new PrimeCacheIterator(cache, index, fence);
+		}
+		index = fence;
+		while (iterator.hasNext()){
+			action.accept(iterator.nextInt());
+		}
+	}
+	
+	@Override
+	public Spliterator.OfInt trySplit(){
+		int remaining = fence - index;
+		if (iterator != null || remaining < 2 * MIN_SPLIT_LENGTH){
+			return null;
+		}
+		int middle = index + remaining / 2;
+		cache.fillToIndexInParallel(middle);
+		PrimeCacheSpliterator prefix = new PrimeCacheSpliterator(cache, index, middle);
+		index = middle;
+		return prefix;
+	}
+	
+	@Override
+	public long estimateSize(){
+		return fence - index;
+	}
+	
+	@Override
+	public int characteristics(){
+		return Spliterator.ORDERED | Spliterator.IMMUTABLE | Spliterator.NONNULL | Spliterator.SIZED
+				| Spliterator.SUBSIZED;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,714 @@
+package jamato.primes;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A prime cache together with the methods that use it. Each context has its own cache, layout, memory budget and
+ * wheel, so that workloads using different contexts don't interfere: resetting or filling one context's cache leaves
+ * the others untouched.
+ * <p>
+ * The static methods of {@link Primes} use a default context, see {@link Primes#getDefaultContext()}. The methods of
+ * this class behave like their counterparts in {@link Primes}.
+ * <p>
+ * Contexts are thread-safe. The cache can be read by multiple threads without locking, while filling it is serialized.
+ *
+ * @author JSiebel
+ *
+ */
+public final class PrimeContext{
+	
+	/** The number of wheel primes used by default, the primes up to 13. */
+	public static final int DEFAULT_WHEEL_PRIMES = 6;
+	
+	/**
+	 * The maximum number of wheel primes, the primes up to 17. The wheel primes have to be less than the greatest prime
+	 * every cache initially contains.
+	 */
+	public static final int MAX_WHEEL_PRIMES = 7;
+	
+	/** The maximum distance between two primes in the integer range (1453168141 and 1453168947). */
+	private static final int GREATEST_PRIME_GAP = 806;
+	
+	/** The executor for prefilling caches, which runs each task on a new daemon thread. */
+	private static final Executor PREFILL_EXECUTOR = task -> {
+		Thread thread = new Thread(task, "jamato-primes-prefill");
+		thread.setDaemon(true);
+		thread.start();
+	};
+	
+	/** A sieve used for simple composite checks of numbers beyond the cache. */
+	private final PrimesSieve sieve;
+	
+	/** The primality test for int numbers that pass the sieve. */
+	private final IntPrimalityTest primalityTest;
+	
+	/** The layout of the prime cache. It is guarded by this context's lock. */
+	private PrimeCacheLayout cacheLayout;
+	
+	/** The memory budget of the prime cache in bytes. It is guarded by this context's lock. */
+	private long cacheBudget;
+	
+	/**
+	 * The prime cache. It can be replaced by {@link #resetCache()} at any time, so methods that use it more than once
+	 * read it into a local variable first.
+	 */
+	private volatile PrimeCache cache;
+	
+	/**
+	 * Creates a context with an unbounded cache with the {@link PrimeCacheLayout#ARRAY} layout.
+	 */
+	public PrimeContext(){
+		this(PrimeCacheLayout.ARRAY, Long.MAX_VALUE);
+	}
+	
+	/**
+	 * Creates a context with a cache with the given layout and memory budget, see
+	 * {@link #resetCache(PrimeCacheLayout, long)}.
+	 *
+	 * @param layout the layout of the cache
+	 * @param memoryBudget the memory budget of the cache in bytes; {@link Long#MAX_VALUE} for an unbounded cache
+	 * @throws IllegalArgumentException if the budget is not positive
+	 */
+	public PrimeContext(PrimeCacheLayout layout, long memoryBudget){
+		this(layout, memoryBudget, DEFAULT_WHEEL_PRIMES);
+	}
+	
+	/**
+	 * Creates a context with a cache with the given layout and memory budget, see
+	 * {@link #resetCache(PrimeCacheLayout, long)}. Numbers beyond the cache are only tested for primality if they are
+	 * not divisible by one of the wheel primes. More wheel primes leave fewer candidates (about 19 % for the default 6
+	 * wheel primes, 18 % for 7), but the wheel takes more memory (30030 bytes for 6 wheel primes, 510510 for 7).
+	 *
+	 * @param layout the layout of the cache
+	 * @param memoryBudget the memory budget of the cache in bytes; {@link Long#MAX_VALUE} for an unbounded cache
+	 * @param wheelPrimes the number of wheel primes, starting with 2
+	 * @throws IllegalArgumentException if the budget is not positive, or if the number of wheel primes is less than 1
+	 * or greater than {@link #MAX_WHEEL_PRIMES}
+	 */
+	public PrimeContext(PrimeCacheLayout layout, long memoryBudget, int wheelPrimes){
+		this(layout, memoryBudget, wheelPrimes, IntPrimalityTest.MILLER_RABIN);
+	}
+	
+	/**
+	 * Creates a context with a cache with the given layout and memory budget, and the given wheel, see
+	 * {@link #PrimeContext(PrimeCacheLayout, long, int)}. Int numbers beyond the cache that are not divisible by a
+	 * wheel prime are checked with the given primality test.
+	 *
+	 * @param layout the layout of the cache
+	 * @param memoryBudget the memory budget of the cache in bytes; {@link Long#MAX_VALUE} for an unbounded cache
+	 * @param wheelPrimes the number of wheel primes, starting with 2
+	 * @param primalityTest the primality test for int numbers beyond the cache
+	 * @throws IllegalArgumentException if the budget is not positive, or if the number of wheel primes is less than 1
+	 * or greater than {@link #MAX_WHEEL_PRIMES}
+	 */
+	public PrimeContext(PrimeCacheLayout layout, long memoryBudget, int wheelPrimes, IntPrimalityTest primalityTest){
+		if (wheelPrimes < 1 || wheelPrimes > MAX_WHEEL_PRIMES){
+			throw new IllegalArgumentException("The number of wheel primes must be between 1 and " + MAX_WHEEL_PRIMES
+					+ ": " + wheelPrimes);
+		}
+		this.sieve = new PrimesSieve(Arrays.copyOf(PrimeCache.INITIAL_PRIMES, wheelPrimes));
+		this.primalityTest = Objects.requireNonNull(primalityTest);
+		resetCache(layout, memoryBudget);
+	}
+	
+	/**
+	 * Checks if the given number is a prime, see {@link Primes#isPrime(int)}.
+	 *
+	 * @param number the number to be checked
+	 * @return <code>true</code> if the number is prime, <code>false</code> if it is composite
+	 */
+	public boolean isPrime(int number){
+		PrimeCache cache = this.cache;
+		if (number < cache.max()){
+			return cache.contains(number);
+		}else{
+			return sieve.isCandidate(number) && primalityTest.isSievedNumberPrime(number);
+		}
+	}
+	
+	/**
+	 * Checks each of the given numbers for primality, see {@link Primes#isPrime(int[], boolean[])}.
+	 *
+	 * @param numbers the numbers to be checked
+	 * @param results the array into which the results are written
+	 * @throws IllegalArgumentException if the results array is shorter than the numbers array
+	 */
+	public void isPrime(int[] numbers, boolean[] results){
+		if (results.length < numbers.length){
+			throw new IllegalArgumentException("results.length < numbers.length");
+		}
+		new PrimalityBatch(cache, sieve).test(numbers, results);
+	}
+	
+	/**
+	 * Checks each of the given numbers for primality and stores the results as a bit mask, see
+	 * {@link Primes#isPrime(int[], long[])}.
+	 *
+	 * @param numbers the numbers to be checked
+	 * @param bitmask the array into which the results are written
+	 * @throws IllegalArgumentException if the bit mask has less than <code>numbers.length</code> bits
+	 */
+	public void isPrime(int[] numbers, long[] bitmask){
+		if (bitmask.length < (numbers.length + Long.SIZE - 1) / Long.SIZE){
+			throw new IllegalArgumentException("bitmask.length < numbers.length / 64");
+		}
+		new PrimalityBatch(cache, sieve).test(numbers, bitmask);
+	}
+	
+	/**
+	 * Returns a stream of the primes among the given numbers, see {@link Primes#filterPrimes(IntStream)}.
+	 *
+	 * @param numbers the numbers to be checked
+	 * @return a stream of primes
+	 */
+	public IntStream filterPrimes(IntStream numbers){
+		boolean parallel = numbers.isParallel();
+		PrimeFilterSpliterator spliterator = new PrimeFilterSpliterator(numbers.spliterator(),
+				new PrimalityBatch(cache, sieve));
+		return StreamSupport.intStream(spliterator, parallel).onClose(numbers::close);
+	}
+	
+	/**
+	 * Checks if the given number is a prime, see {@link Primes#isPrime(long)}.
+	 *
+	 * @param number the number to be checked
+	 * @return <code>true</code> if the number is prime, <code>false</code> if it is composite
+	 */
+	public boolean isPrime(long number){
+		if (number < 2){
+			return false;
+		}else if (number <= Integer.MAX_VALUE){
+			return isPrime((int) number);
+		}else{
+			return sieve.isCandidate(number) && Primes.isSievedNumberPrime(number);
+		}
+	}
+	
+	/**
+	 * Returns the least prime greater than the given number.
+	 *
+	 * @param number a number
+	 * @return the next prime
+	 * @throws ArithmeticException if the number is not less than {@link Primes#GREATEST_LONG_PRIME}
+	 */
+	public long nextPrime(long number){
+		PrimeCache cache = this.cache;
+		if (number < cache.max()){
+			return cache.get(cache.getInsertionIndex((int) Math.max(number + 1, 0)));
+		}else if (number < Primes.GREATEST_INT_PRIME){
+			return calculateNextPrimeAfter((int) number);
+		}else if (number < Primes.GREATEST_LONG_PRIME){
+			long candidate = number;
+			do{
+				candidate = sieve.getNextCandidate(candidate);
+			}while (!Primes.isSievedNumberPrime(candidate));
+			return candidate;
+		}else{
+			throw new ArithmeticException("There is no long prime greater than " + number);
+		}
+	}
+	
+	/**
+	 * Counts the primes less than the given bound, see {@link Primes#count(long)}.
+	 *
+	 * @param upperBound the upper bound for the primes, exclusive
+	 * @return the number of primes less than the bound
+	 */
+	public int count(int upperBound){
+		return (int) count((long) upperBound);
+	}
+	
+	/**
+	 * Counts the primes less than the given bound, see {@link Primes#count(long)}.
+	 *
+	 * @param upperBound the upper bound for the primes, exclusive
+	 * @return the number of primes less than the bound
+	 * @throws IllegalArgumentException if the bound is greater than <code>(2^31 - 9)^2</code>
+	 */
+	public long count(long upperBound){
+		PrimeCache cache = this.cache;
+		if (upperBound <= cache.max()){
+			return cache.getInsertionIndex((int) Math.max(upperBound, 0));
+		}else{
+			return PrimeCounter.count(upperBound);
+		}
+	}
+	
+	/**
+	 * Counts the primes that are greater or equal to the given lower bound, and smaller than the given upper bound.
+	 *
+	 * @param lowerBound the lower bound for the primes, inclusive
+	 * @param upperBound the upper bound for the primes, exclusive
+	 * @return the number of primes in the range
+	 * @throws IllegalArgumentException if the lower bound is greater than the upper bound, or if the upper bound is
+	 * too big, see {@link #count(long)}
+	 */
+	public long count(long lowerBound, long upperBound){
+		if (lowerBound > upperBound){
+			throw new IllegalArgumentException("lowerBound > upperBound");
+		}
+		return count(upperBound) - count(lowerBound);
+	}
+	
+	/**
+	 * Returns the prime with the given index, see {@link Primes#nth(int)}.
+	 *
+	 * @param index the index of the prime, starting with 0 for 2
+	 * @return the prime
+	 * @throws IndexOutOfBoundsException if the index is negative, or not less than
+	 * {@link Primes#NUMBER_OF_INT_PRIMES}
+	 */
+	public int nth(int index){
+		if (index < 0 || index >= Primes.NUMBER_OF_INT_PRIMES){
+			throw new IndexOutOfBoundsException("index = " + index);
+		}
+		PrimeCache cache = this.cache;
+		if (index < cache.size()){
+			return cache.get(index);
+		}else{
+			return PrimeCounter.nth(index);
+		}
+	}
+	
+	/**
+	 * Returns an array of primes, starting from the given lower index (inclusive), and ending with the given upper
+	 * index (exclusive).
+	 *
+	 * @param fromIndex the index of the lowest prime returned
+	 * @param toIndex the index after the last prime returned
+	 * @return an array of prime numbers
+	 */
+	public int[] array(int fromIndex, int toIndex){
+		rangeCheck(fromIndex, toIndex);
+		PrimeCache cache = this.cache;
+		cache.fillToIndex(toIndex);
+		return cache.getArray(fromIndex, toIndex);
+	}
+	
+	/**
+	 * Returns an array of all primes that are greater or equal to the given lower bound, and smaller than the given
+	 * upper bound.
+	 *
+	 * @param lowerBound the lower bound for the primes, inclusive
+	 * @param upperBound the upper bound for the primes, exclusive
+	 * @return an array of prime numbers
+	 */
+	public int[] rangeArray(int lowerBound, int upperBound){
+		if (lowerBound > upperBound){
+			throw new IllegalArgumentException("lowerBound > upperBound");
+		}
+		if (lowerBound < 0){
+			lowerBound = 0;
+		}
+		PrimeCache cache = this.cache;
+		int highestPrime = cache.max();
+		if (lowerBound <= highestPrime + GREATEST_PRIME_GAP){
+			// The distance is chosen so that when running the method with a lower bound equal to the greatest prime in
+			// the cache, the cache is still filled.
+			cache.fillToLimit(upperBound);
+			int lowerBoundIndex = cache.getInsertionIndex(lowerBound);
+			int upperBoundIndex = cache.getInsertionIndex(upperBound);
+			return cache.getArray(lowerBoundIndex, upperBoundIndex);
+		}else if (isSievingFaster(lowerBound, upperBound)){
+			// Using the cache would require calculating a lot of primes that are not returned, so don't use the cache.
+			return SegmentedSieve.primes(lowerBound, upperBound);
+		}else{
+			// The range is too short to be sieved, so its candidates are tested one by one.
+			int[] result = new int[maxPrimesInRange(upperBound - lowerBound)];
+			int next = calculateNextPrimeAfter(lowerBound - 1);
+			int nextIndex = 0;
+			while (next < upperBound){
+				result[nextIndex++] = next;
+				next = calculateNextPrimeAfter(next);
+			}
+			return nextIndex == result.length ? result : Arrays.copyOf(result, nextIndex);
+		}
+	}
+	
+	/**
+	 * Returns the primality of the numbers in the given range as a bit mask, see
+	 * {@link Primes#primalityBits(int, int)}.
+	 *
+	 * @param lowerBound the lower bound, inclusive
+	 * @param upperBound the upper bound, exclusive
+	 * @return the bit mask
+	 * @throws IllegalArgumentException if <code>lowerBound > upperBound</code>
+	 */
+	public long[] primalityBits(int lowerBound, int upperBound){
+		if (lowerBound > upperBound){
+			throw new IllegalArgumentException("lowerBound > upperBound");
+		}
+		long[] bitmask = new long[(int) (((long) upperBound - lowerBound + Long.SIZE - 1) / Long.SIZE)];
+		primalityBits(lowerBound, upperBound, bitmask);
+		return bitmask;
+	}
+	
+	/**
+	 * Writes the primality of the numbers in the given range into a bit mask, see
+	 * {@link Primes#primalityBits(int, int, long[])}.
+	 *
+	 * @param lowerBound the lower bound, inclusive
+	 * @param upperBound the upper bound, exclusive
+	 * @param bitmask the array into which the bit mask is written
+	 * @throws IllegalArgumentException if <code>lowerBound > upperBound</code>, or if the bit mask has less than
+	 * <code>upperBound - lowerBound</code> bits
+	 */
+	public void primalityBits(int lowerBound, int upperBound, long[] bitmask){
+		if (lowerBound > upperBound){
+			throw new IllegalArgumentException("lowerBound > upperBound");
+		}
+		int words = (int) (((long) upperBound - lowerBound + Long.SIZE - 1) / Long.SIZE);
+		if (bitmask.length < words){
+			throw new IllegalArgumentException("bitmask.length < (upperBound - lowerBound) / 64");
+		}
+		Arrays.fill(bitmask, 0, words, 0L);
+		// Negative numbers are not prime, so their bits stay cleared.
+		int low = Math.max(lowerBound, 0);
+		PrimeCache cache = this.cache;
+		if (low >= upperBound){
+			return;
+		}else if (low <= cache.max() + GREATEST_PRIME_GAP){
+			cache.fillToLimit(upperBound);
+			cache.setPrimeBits(cache.getInsertionIndex(low), cache.getInsertionIndex(upperBound), lowerBound, bitmask);
+		}else if (isSievingFaster(low, upperBound)){
+			SegmentedSieve.setPrimeBits(low, upperBound, lowerBound, bitmask);
+		}else{
+			for (int n = low; n < upperBound; n++){
+				if (sieve.isCandidate(n) && primalityTest.isSievedNumberPrime(n)){
+					int bit = n - lowerBound;
+					bitmask[bit >>> 6] |= 1L << bit;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * A stream of all int primes in order. The stream's size is {@link Primes#NUMBER_OF_INT_PRIMES}.
+	 *
+	 * @return a stream of primes.
+	 */
+	public IntStream stream(){
+		return cacheFillingStream(cache, 0, Primes.NUMBER_OF_INT_PRIMES);
+	}
+	
+	/**
+	 * A stream of int primes in order, starting at the given index. The stream's size is
+	 * <code>({@link Primes#NUMBER_OF_INT_PRIMES} - fromIndex)</code>.
+	 *
+	 * @param fromIndex the index of the first prime returned
+	 * @return a stream of primes.
+	 */
+	public IntStream stream(int fromIndex){
+		rangeCheck(fromIndex);
+		PrimeCache cache = this.cache;
+		cache.fillToIndex(fromIndex);
+		return cacheFillingStream(cache, fromIndex, Primes.NUMBER_OF_INT_PRIMES);
+	}
+	
+	/**
+	 * A stream of int primes in order, starting at the given start index, and ending before the given end index.
+	 *
+	 * @param fromIndex the index of the first prime returned
+	 * @param toIndex the index of the last prime returned, exclusive
+	 * @return a stream of primes.
+	 */
+	public IntStream stream(int fromIndex, int toIndex){
+		rangeCheck(fromIndex, toIndex);
+		PrimeCache cache = this.cache;
+		if (toIndex <= cache.size()){
+			return cache.stream(fromIndex, toIndex);
+		}else{
+			cache.fillToIndex(fromIndex);
+			return cacheFillingStream(cache, fromIndex, toIndex);
+		}
+	}
+	
+	/**
+	 * A stream of primes, beginning with the given lower bound.
+	 *
+	 * @param lowerBound the lower bound of the stream, the first element is the least prime ≥ this
+	 * @return a stream of primes
+	 */
+	public IntStream rangeStream(int lowerBound){
+		PrimeCache cache = this.cache;
+		if (lowerBound < cache.max()){
+			return stream(cache.getInsertionIndex(lowerBound));
+		}else{
+			return StreamSupport.intStream(new SegmentedSieveSpliterator(lowerBound, SegmentedSieve.LIMIT), true);
+		}
+	}
+	
+	/**
+	 * A stream of primes, beginning with the given lower bound.
+	 *
+	 * @param lowerBound the lower bound of the stream, the first element is the least prime ≥ this
+	 * @param upperBound the upper bound of the stream, exclusive
+	 * @return a stream of primes
+	 */
+	public IntStream rangeStream(int lowerBound, int upperBound){
+		PrimeCache cache = this.cache;
+		if (upperBound < cache.max()){
+			int lowerBoundIndex = cache.getInsertionIndex(lowerBound);
+			int upperBoundIndex = cache.getInsertionIndex(upperBound);
+			return cache.stream(lowerBoundIndex, upperBoundIndex);
+		}else if (lowerBound < cache.max()){
+			int lowerBoundIndex = cache.getInsertionIndex(lowerBound);
+			return cacheFillingStream(cache, lowerBoundIndex, Primes.NUMBER_OF_INT_PRIMES)
+					.takeWhile(n -> n < upperBound);
+		}else if (isSievingFaster(lowerBound, upperBound)){
+			return StreamSupport.intStream(new SegmentedSieveSpliterator(lowerBound, upperBound), true);
+		}else{
+			return sieve.stream(lowerBound - 1, upperBound - 1, primalityTest::isSievedNumberPrime);
+		}
+	}
+	
+	/**
+	 * An ordered stream of the primes, starting at the given index. This stream writes each prime it calculates to the
+	 * cache.
+	 * 
+	 * @param cache the cache to be read and filled
+	 * @param startIndex the index of the first prime, must not be greater than the cache size
+	 * @param endIndex the index after the last prime
+	 * @return an ordered stream of primes
+	 */
+	private static IntStream cacheFillingStream(PrimeCache cache, int startIndex, int endIndex){
+		return StreamSupport.intStream(new PrimeCacheSpliterator(cache, startIndex, endIndex), false);
+	}
+	
+	/**
+	 * An iterator of all int primes in order.
+	 *
+	 * @return an iterator of primes
+	 */
+	public PrimitiveIterator.OfInt iterator(){
+		return new PrimeRangeCacheIterator(cache, 2, Primes.GREATEST_INT_PRIME);
+	}
+	
+	/**
+	 * An iterator of int primes in order, starting at the given index.
+	 *
+	 * @param fromIndex the index of the first prime returned
+	 * @return an iterator of primes
+	 */
+	public PrimitiveIterator.OfInt iterator(int fromIndex){
+		rangeCheck(fromIndex);
+		PrimeCache cache = this.cache;
+		cache.fillToIndex(fromIndex);
+		return new PrimeCacheIterator(cache, fromIndex, Primes.NUMBER_OF_INT_PRIMES);
+	}
+	
+	/**
+	 * An iterator of int primes in order, starting at the given start index, and ending before the given end index.
+	 *
+	 * @param fromIndex the index of the first prime returned
+	 * @param toIndex the index of the last prime returned, exclusive
+	 * @return an iterator of primes
+	 */
+	public PrimitiveIterator.OfInt iterator(int fromIndex, int toIndex){
+		rangeCheck(fromIndex, toIndex);
+		PrimeCache cache = this.cache;
+		cache.fillToIndex(fromIndex);
+		return new PrimeCacheIterator(cache, fromIndex, toIndex);
+	}
+	
+	/**
+	 * An iterator of primes, beginning with the given lower bound.
+	 *
+	 * @param lowerBound the lower bound, the first prime returned is the least prime ≥ this
+	 * @return an iterator of primes
+	 */
+	public PrimitiveIterator.OfInt rangeIterator(int lowerBound){
+		PrimeCache cache = this.cache;
+		if (cache.getInsertionIndex(lowerBound) < cache.size()){
+			return new PrimeRangeCacheIterator(cache, lowerBound, Primes.GREATEST_INT_PRIME);
+		}else{
+			return Spliterators.iterator(new SegmentedSieveSpliterator(lowerBound, SegmentedSieve.LIMIT));
+		}
+	}
+	
+	/**
+	 * An iterator of the primes in the given range.
+	 *
+	 * @param lowerBound the lower bound, the first prime returned is the least prime ≥ this
+	 * @param upperBound the upper bound, exclusive
+	 * @return an iterator of primes
+	 */
+	public PrimitiveIterator.OfInt rangeIterator(int lowerBound, int upperBound){
+		PrimeCache cache = this.cache;
+		if (cache.getInsertionIndex(lowerBound) < cache.size()){
+			return new PrimeRangeCacheIterator(cache, lowerBound, upperBound - 1);
+		}else if (isSievingFaster(lowerBound, upperBound)){
+			return Spliterators.iterator(new SegmentedSieveSpliterator(lowerBound, upperBound));
+		}else{
+			return new PrimeRangeIterator(this, lowerBound, upperBound - 1);
+		}
+	}
+	
+	/**
+	 * Checks if the given number is a valid prime index.
+	 *
+	 * @param index the lower index bound, inclusive
+	 * @throws IndexOutOfBoundsException if <code>index < 0</code> or
+	 * <code>index ≥ {@link Primes#NUMBER_OF_INT_PRIMES}</code>
+	 */
+	private static void rangeCheck(int index){
+		if (index < 0 || index >= Primes.NUMBER_OF_INT_PRIMES){
+			throw new IndexOutOfBoundsException("fromIndex = " + index);
+		}
+	}
+	
+	/**
+	 * Checks if the given range is valid for integer primes.
+	 *
+	 * @param fromIndex the lower index bound, inclusive
+	 * @param toIndex the upper index bound, exclusive
+	 * @throws IllegalArgumentException if <code>fromIndex > toIndex</code>
+	 * @throws IndexOutOfBoundsException if <code>fromIndex < 0</code> or
+	 * <code>toIndex > {@link Primes#NUMBER_OF_INT_PRIMES}</code>
+	 */
+	private static void rangeCheck(int fromIndex, int toIndex){
+		if (fromIndex > toIndex){
+			throw new IllegalArgumentException("fromIndex > toIndex");
+		}else if (fromIndex < 0){
+			throw new IndexOutOfBoundsException("fromIndex = " + fromIndex);
+		}else if (toIndex > Primes.NUMBER_OF_INT_PRIMES){
+			throw new IndexOutOfBoundsException("toIndex = " + toIndex);
+		}
+	}
+	
+	/**
+	 * Returns an upper bound for the number of primes in a range, using the Brun-Titchmarsh inequality as proven by
+	 * Montgomery and Vaughan: there are less than <code>2 * length / ln(length)</code> primes in any range.
+	 *
+	 * @param length the length of the range, must not be negative
+	 * @return an upper bound for the number of primes in the range
+	 */
+	private static int maxPrimesInRange(int length){
+		return length < 2 ? length : (int) (2 * length / Math.log(length)) + 1;
+	}
+	
+	/**
+	 * Checks if the primes in the given range beyond the cache are found faster by sieving the range than by testing
+	 * each candidate. Sieving pays off for shorter ranges the lower they are, since fewer base primes are needed.
+	 *
+	 * @param lowerBound the lower bound of the range, inclusive
+	 * @param upperBound the upper bound of the range, exclusive
+	 * @return <code>true</code> if the range should be sieved
+	 */
+	private static boolean isSievingFaster(int lowerBound, int upperBound){
+		return (long) upperBound - lowerBound >= SegmentedSieve.minWindowLength(upperBound);
+	}
+	
+	/**
+	 * Calculates the smallest prime number that is greater than the given number without using the cache.
+	 *
+	 * @param number a number, must not be less than the greatest wheel prime
+	 * @return the next prime number
+	 */
+	int calculateNextPrimeAfter(int number){
+		int candidate = number;
+		do{
+			candidate = sieve.getNextCandidate(candidate);
+		}while (!primalityTest.isSievedNumberPrime(candidate));
+		return candidate;
+	}
+	
+	/**
+	 * Starts filling the cache in the background, on a new daemon thread, so that it contains all primes less than the
+	 * given limit. See {@link #prefillAsync(int, Executor)}.
+	 *
+	 * @param limit the number up to which the cache is filled, exclusive
+	 * @return a future that is completed when the cache is filled
+	 */
+	public CompletableFuture<Void> prefillAsync(int limit){
+		return prefillAsync(limit, PREFILL_EXECUTOR);
+	}
+	
+	/**
+	 * Starts filling the cache in the background, so that it contains all primes less than the given limit. The cache
+	 * is filled one segment after the other, and each segment is published as soon as it has been sieved: readers can
+	 * use the filled part of the cache right away, and readers that need more primes only wait for the current
+	 * segment before they take over filling.
+	 * <p>
+	 * Cancelling the returned future stops filling after the current segment. Resetting the cache does not stop the
+	 * prefill of the previous cache.
+	 *
+	 * @param limit the number up to which the cache is filled, exclusive
+	 * @param executor the executor that runs the filling task
+	 * @return a future that is completed when the cache is filled
+	 */
+	public CompletableFuture<Void> prefillAsync(int limit, Executor executor){
+		return cache.prefill(limit, Objects.requireNonNull(executor));
+	}
+	
+	/**
+	 * Resets the cache and frees up the memory it uses.
+	 */
+	public synchronized void resetCache(){
+		cache = cacheLayout.createCache(cacheBudget);
+	}
+	
+	/**
+	 * Resets the cache and frees up the memory it uses. From now on, primes are cached using the given layout.
+	 * 
+	 * @param layout the layout of the cache
+	 */
+	public synchronized void resetCache(PrimeCacheLayout layout){
+		resetCache(layout, cacheBudget);
+	}
+	
+	/**
+	 * Resets the cache and frees up the memory it uses. From now on, primes are cached using the given layout, and the
+	 * cache keeps only as many primes permanently as fit in the given budget. The primes beyond them are kept in memory
+	 * that the garbage collector may reclaim, and calculated again when they are needed.
+	 * 
+	 * @param layout the layout of the cache
+	 * @param memoryBudget the memory budget in bytes; {@link Long#MAX_VALUE} for an unbounded cache
+	 * @throws IllegalArgumentException if the budget is not positive
+	 */
+	public synchronized void resetCache(PrimeCacheLayout layout, long memoryBudget){
+		if (memoryBudget <= 0){
+			throw new IllegalArgumentException("The memory budget must be positive: " + memoryBudget);
+		}
+		cacheLayout = Objects.requireNonNull(layout);
+		cacheBudget = memoryBudget;
+		cache = layout.createCache(memoryBudget);
+	}
+	
+	/**
+	 * Frees up the memory the cache uses beyond what it needs for the primes currently cached. A bounded cache also
+	 * drops the primes beyond its memory budget; they are calculated again when they are needed.
+	 */
+	public void trimCache(){
+		cache.trim();
+	}
+	
+	/**
+	 * Saves the primes that are currently cached to the given file, see {@link Primes#saveCache(Path)}.
+	 * 
+	 * @param file the file to be written; if it exists, it is overwritten
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void saveCache(Path file) throws IOException{
+		MappedPrimeCache.save(cache, file);
+	}
+	
+	/**
+	 * Replaces the cache by the primes saved in the given file, see {@link Primes#loadCache(Path)}.
+	 * 
+	 * @param file a file written by {@link #saveCache(Path)}
+	 * @throws IOException if an I/O error occurs, or if the file is not a valid cache file
+	 */
+	public synchronized void loadCache(Path file) throws IOException{
+		cache = MappedPrimeCache.load(file);
+	}
+}
\ No newline at end of file
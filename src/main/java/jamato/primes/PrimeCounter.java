@@ -0,0 +1,140 @@
+package jamato.primes;
+
+/**
+ * This utility class counts primes without enumerating them, using Lucy Hedgehog's variant of the Legendre/Meissel
+ * method. For a bound <code>x</code>, it takes <code>O(x^(3/4))</code> time and <code>O(x^(1/2))</code> memory. The
+ * count is also used to find the n-th prime, without enumerating the primes before it.
+ *
+ * @author JSiebel
+ * @see "https://en.wikipedia.org/wiki/Prime-counting_function#Algorithms_for_evaluating_%CF%80(x)"
+ *
+ */
+final class PrimeCounter{
+	
+	/** The greatest bound for which the counting arrays can be allocated. */
+	static final long MAX_BOUND = (long) (Integer.MAX_VALUE - 8) * (Integer.MAX_VALUE - 8);
+	
+	private PrimeCounter(){
+		// Utility class
+	}
+	
+	/**
+	 * Counts the primes less than the given bound.
+	 *
+	 * @param bound the bound, exclusive
+	 * @return the number of primes less than the bound
+	 * @throws IllegalArgumentException if the bound is greater than {@link #MAX_BOUND}
+	 */
+	static long count(long bound){
+		if (bound > MAX_BOUND){
+			throw new IllegalArgumentException("The bound " + bound + " is too big to count primes below it");
+		}
+		long n = bound - 1;
+		if (n < 2){
+			return 0;
+		}
+		int root = (int) sqrt(n);
+		
+		// Initially, small[v] and large[i] count the numbers from 2 to v and n / i, respectively. After the iteration
+		// for a prime p, they only count the numbers among them that are primes or have no prime factor up to p.
+		long[] small = new long[root + 1];
+		long[] large = new long[root + 1];
+		for (int v = 1; v <= root; v++){
+			small[v] = v - 1;
+			large[v] = n / v - 1;
+		}
+		for (int p = 2; p <= root; p++){
+			if (small[p] == small[p - 1]){
+				// p is not a prime
+				continue;
+			}
+			long primesBelow = small[p - 1];
+			long square = (long) p * p;
+			int end = (int) Math.min(root, n / square);
+			int largeEnd = Math.min(end, root / p);
+			// Remove the numbers whose least prime factor is p.
+			for (int i = 1; i <= largeEnd; i++){
+				large[i] -= large[i * p] - primesBelow;
+			}
+			for (int i = largeEnd + 1; i <= end; i++){
+				large[i] -= small[(int) (n / ((long) i * p))] - primesBelow;
+			}
+			for (int v = root; v >= square; v--){
+				small[v] -= small[v / p] - primesBelow;
+			}
+		}
+		return large[1];
+	}
+	
+	/**
+	 * Calculates the prime with the given index. The location of the prime is estimated, the primes below the estimate
+	 * are counted, and the segments between the estimate and the prime are sieved.
+	 *
+	 * @param index the index of the prime, starting with 0 for 2; must be less than
+	 * {@link Primes#NUMBER_OF_INT_PRIMES}
+	 * @return the prime
+	 */
+	static int nth(int index){
+		int segment = (int) (Math.min(estimate(index + 1L), SegmentedSieve.LIMIT - 1) / SegmentedSieve.SEGMENT_LENGTH);
+		long low = (long) segment * SegmentedSieve.SEGMENT_LENGTH;
+		long primesBelow = count(low);
+		SegmentedSieve sieve = new SegmentedSieve();
+		int[] primes = new int[SegmentedSieve.SEGMENT_BYTES + 1];
+		int primeCount;
+		if (primesBelow <= index){
+			// The prime is at or after the estimate.
+			while (true){
+				sieve.sieve(low, low + SegmentedSieve.SEGMENT_LENGTH);
+				primeCount = sieve.copyPrimes(primes, 0);
+				if (primesBelow + primeCount > index){
+					break;
+				}
+				primesBelow += primeCount;
+				low += SegmentedSieve.SEGMENT_LENGTH;
+			}
+		}else{
+			// The prime is before the estimate.
+			do{
+				low -= SegmentedSieve.SEGMENT_LENGTH;
+				sieve.sieve(low, low + SegmentedSieve.SEGMENT_LENGTH);
+				primeCount = sieve.copyPrimes(primes, 0);
+				primesBelow -= primeCount;
+			}while (primesBelow > index);
+		}
+		return primes[(int) (index - primesBelow)];
+	}
+	
+	/**
+	 * Estimates the n-th prime, using the first terms of Cipolla's asymptotic expansion
+	 * <code>n * (ln n + ln ln n - 1 + (ln ln n - 2) / ln n)</code>.
+	 *
+	 * @param n the (one-based) number of the prime
+	 * @return an estimate of the prime
+	 */
+	private static long estimate(long n){
+		if (n < 6){
+			return 2;
+		}
+		double log = Math.log(n);
+		double logLog = Math.log(log);
+		return (long) (n * (log + logLog - 1 + (logLog - 2) / log));
+	}
+	
+	/**
+	 * Calculates the square root of a number, rounded down.
+	 *
+	 * @param n a number, must not be negative
+	 * @return the integer square root
+	 */
+	private static long sqrt(long n){
+		long root = (long) Math.sqrt(n);
+		// The floating point square root may be off by one for large numbers.
+		while (root * root > n){
+			root--;
+		}
+		while ((root + 1) * (root + 1) <= n){
+			root++;
+		}
+		return root;
+	}
+}
@@ -0,0 +1,239 @@
+package jamato.primes;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * A table of the smallest prime factors of all numbers below a limit, which factors any of these numbers in time
+ * proportional to its number of prime factors, without allocating memory.
+ * <p>
+ * The table is built by a linear sieve, which sets the smallest prime factor of each composite number exactly once.
+ * Only odd numbers are stored, and since the smallest prime factor of a composite int is less than <code>2^16</code>,
+ * each entry is a char. Primes are stored as 0. The table takes one byte per number below the limit.
+ *
+ * @author JSiebel
+ *
+ */
+public final class PrimeFactorTable{
+	
+	/** The greatest number of distinct prime factors of an int, since <code>2*3*5*...*29 > 2^31</code>. */
+	public static final int MAX_DISTINCT_PRIME_FACTORS = 9;
+	
+	/** The minimum number of numbers for which {@link #factorAll(int[], int[])} works in parallel. */
+	private static final int PARALLEL_THRESHOLD = 1 << 16;
+	
+	/** The upper limit of the table, exclusive. */
+	private final int limit;
+	
+	/**
+	 * The smallest prime factors of the odd numbers. The entry at index <code>i</code> belongs to <code>2*i+1</code>,
+	 * and is 0 if that number is a prime (or 1).
+	 */
+	private final char[] smallestFactors;
+	
+	/**
+	 * Creates a table for all numbers less than the given limit.
+	 *
+	 * @param limit the upper limit of the table, exclusive; must be positive
+	 * @throws IllegalArgumentException if the limit is 0 or negative
+	 */
+	public PrimeFactorTable(int limit){
+		if (limit <= 0){
+			throw new IllegalArgumentException("Argument must be positive, but was " + limit + ".");
+		}
+		this.limit = limit;
+		this.smallestFactors = new char[(int) ((limit + 1L) / 2)];
+		
+		// The smallest factor of a composite i * p is p if p is not greater than the smallest factor of i. Only primes
+		// up to the square root of the limit can be such factors.
+		int[] primes = new int[(int) Math.sqrt(limit) + 1];
+		int primeCount = 0;
+		for (int i = 3; i < limit; i += 2){
+			int smallestFactor = smallestFactors[i >>> 1];
+			if (smallestFactor == 0){
+				smallestFactor = i;
+				if ((long) i * i < limit){
+					primes[primeCount++] = i;
+				}
+			}
+			for (int j = 0; j < primeCount; j++){
+				int p = primes[j];
+				long multiple = (long) i * p;
+				if (p > smallestFactor || multiple >= limit){
+					break;
+				}
+				smallestFactors[(int) (multiple >>> 1)] = (char) p;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the upper limit of the table.
+	 *
+	 * @return the limit, exclusive
+	 */
+	public int getLimit(){
+		return limit;
+	}
+	
+	/**
+	 * Returns the smallest prime factor of the given number.
+	 *
+	 * @param number a number, at least 2 and less than the limit
+	 * @return the smallest prime factor
+	 * @throws IllegalArgumentException if the number is less than 2, or not less than the limit
+	 */
+	public int smallestPrimeFactor(int number){
+		checkRange(number, 2);
+		return smallestFactor(number);
+	}
+	
+	/**
+	 * Checks if the given number is a prime.
+	 *
+	 * @param number a number less than the limit
+	 * @return <code>true</code> if the number is a prime
+	 * @throws IllegalArgumentException if the number is not less than the limit
+	 */
+	public boolean isPrime(int number){
+		if (number >= limit){
+			throw new IllegalArgumentException("The number " + number + " is not less than the limit " + limit + ".");
+		}
+		if ((number & 1) == 0){
+			return number == 2;
+		}
+		return number > 1 && smallestFactors[number >>> 1] == 0;
+	}
+	
+	/**
+	 * Factors the given number into the given arrays.
+	 *
+	 * @param number a number, at least 1 and less than the limit
+	 * @param primes the array into which the distinct prime factors are written in ascending order; must have room for
+	 * {@link #MAX_DISTINCT_PRIME_FACTORS} primes, or for as many as the number has
+	 * @param exponents the array into which the exponents of the prime factors are written
+	 * @return the number of distinct prime factors
+	 * @throws IllegalArgumentException if the number is less than 1, or not less than the limit
+	 */
+	public int factor(int number, int[] primes, int[] exponents){
+		checkRange(number, 1);
+		int count = 0;
+		while (number > 1){
+			int p = smallestFactor(number);
+			int exponent = 0;
+			do{
+				number /= p;
+				exponent++;
+			}while (number % p == 0);
+			primes[count] = p;
+			exponents[count++] = exponent;
+		}
+		return count;
+	}
+	
+	/**
+	 * Returns the factorization of the given number.
+	 *
+	 * @param number a number, at least 1 and less than the limit
+	 * @return the factorization
+	 * @throws IllegalArgumentException if the number is less than 1, or not less than the limit
+	 */
+	public Factorization getFactorization(int number){
+		int[] primes = new int[MAX_DISTINCT_PRIME_FACTORS];
+		int[] exponents = new int[MAX_DISTINCT_PRIME_FACTORS];
+		int count = factor(number, primes, exponents);
+		long[] longPrimes = new long[count];
+		for (int i = 0; i < count; i++){
+			longPrimes[i] = primes[i];
+		}
+		return new Factorization(number, longPrimes, Arrays.copyOf(exponents, count));
+	}
+	
+	/**
+	 * Factors all given numbers. The prime factors of all numbers are written with multiplicity and in ascending order
+	 * into a single array; the factors of <code>numbers[i]</code> are at the indices from <code>offsets[i]</code>
+	 * (inclusive) to <code>offsets[i + 1]</code> (exclusive). Large arrays are factored in parallel.
+	 *
+	 * @param numbers the numbers, each at least 1 and less than the limit
+	 * @param offsets the array into which the offsets of the factors are written; must have room for
+	 * <code>numbers.length + 1</code> offsets
+	 * @return the prime factors of all numbers
+	 * @throws IllegalArgumentException if a number is less than 1 or not less than the limit, or if the offsets array
+	 * is too short
+	 */
+	public int[] factorAll(int[] numbers, int[] offsets){
+		if (offsets.length <= numbers.length){
+			throw new IllegalArgumentException("offsets.length <= numbers.length");
+		}
+		IntStream indices = IntStream.range(0, numbers.length);
+		if (numbers.length >= PARALLEL_THRESHOLD){
+			indices = indices.parallel();
+		}
+		indices.forEach(i -> offsets[i + 1] = countFactors(numbers[i]));
+		offsets[0] = 0;
+		for (int i = 0; i < numbers.length; i++){
+			offsets[i + 1] += offsets[i];
+		}
+		
+		int[] factors = new int[offsets[numbers.length]];
+		indices = IntStream.range(0, numbers.length);
+		if (numbers.length >= PARALLEL_THRESHOLD){
+			indices = indices.parallel();
+		}
+		indices.forEach(i -> {
+			int number = numbers[i];
+			for (int j = offsets[i]; j < offsets[i + 1]; j++){
+				int p = smallestFactor(number);
+				factors[j] = p;
+				number /= p;
+			}
+		});
+		return factors;
+	}
+	
+	/**
+	 * Counts the prime factors of a number, with multiplicity.
+	 *
+	 * @param number a number, at least 1 and less than the limit
+	 * @return the number of prime factors
+	 * @throws IllegalArgumentException if the number is less than 1, or not less than the limit
+	 */
+	private int countFactors(int number){
+		checkRange(number, 1);
+		int count = Integer.numberOfTrailingZeros(number);
+		number >>>= count;
+		while (number > 1){
+			number /= smallestFactor(number);
+			count++;
+		}
+		return count;
+	}
+	
+	/**
+	 * Returns the smallest prime factor of a number.
+	 *
+	 * @param number a number, at least 2 and less than the limit
+	 * @return the smallest prime factor
+	 */
+	private int smallestFactor(int number){
+		if ((number & 1) == 0){
+			return 2;
+		}
+		int factor = smallestFactors[number >>> 1];
+		return factor == 0 ? number : factor;
+	}
+	
+	/**
+	 * Checks that a number is within the table.
+	 *
+	 * @param number the number
+	 * @param min the least allowed number
+	 * @throws IllegalArgumentException if the number is less than the given minimum, or not less than the limit
+	 */
+	private void checkRange(int number, int min){
+		if (number < min || number >= limit){
+			throw new IllegalArgumentException(
+					"The number " + number + " is not between " + min + " and the limit " + limit + ".");
+		}
+	}
+}
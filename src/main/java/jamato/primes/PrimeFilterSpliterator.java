@@ -0,0 +1,117 @@
+package jamato.primes;
+
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+/**
+ * A {@link Spliterator} that yields the primes among the elements of another spliterator. The elements are checked in
+ * chunks by a {@link PrimalityBatch}.
+ *
+ * @author JSiebel
+ *
+ */
+final class PrimeFilterSpliterator implements Spliterator.OfInt{
+	
+	/** The spliterator providing the numbers to be checked. */
+	private final Spliterator.OfInt source;
+	
+	/** The batch used for checking the numbers. */
+	private final PrimalityBatch batch;
+	
+	/** The current chunk of numbers. */
+	private final int[] numbers = new int[PrimalityBatch.CHUNK_LENGTH];
+	
+	/** The results for the current chunk of numbers. */
+	private final boolean[] results = new boolean[PrimalityBatch.CHUNK_LENGTH];
+	
+	/** The index of the next number in the current chunk. */
+	private int position;
+	
+	/** The number of numbers in the current chunk. */
+	private int count;
+	
+	/** Appends a number to the current chunk. */
+	private final IntConsumer appender = n -> numbers[count++] = n;
+	
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param source the spliterator providing the numbers to be checked
+	 * @param batch the batch used for checking the numbers
+	 */
+	PrimeFilterSpliterator(Spliterator.OfInt source, PrimalityBatch batch){
+		this.source = source;
+		this.batch = batch;
+	}
+	
+	@Override
+	public boolean tryAdvance(IntConsumer action){
+		Objects.requireNonNull(action);
+		do{
+			while (position < count){
+				int n = numbers[position];
+				if (results[position++]){
+					action.accept(n);
+					return true;
+				}
+			}
+		}while (nextChunk());
+		return false;
+	}
+	
+	@Override
+	public void forEachRemaining(IntConsumer action){
+		Objects.requireNonNull(action);
+		do{
+			for (; position < count; position++){
+				if (results[position]){
+					action.accept(numbers[position]);
+				}
+			}
+		}while (nextChunk());
+	}
+	
+	/**
+	 * Reads the next chunk of numbers from the source and checks them.
+	 *
+	 * @return <code>true</code> if there are more numbers, <code>false</code> if the source is exhausted
+	 */
+	private boolean nextChunk(){
+		position = 0;
+		count = 0;
+		while (count < numbers.length && source.tryAdvance(appender)){
+			// the number is appended by the consumer
+		}
+		batch.test(numbers, 0, count, results, 0);
+		return count > 0;
+	}
+	
+	@Override
+	public Spliterator.OfInt trySplit(){
+		if (position < count){
+			// The buffered numbers precede the source's remaining ones.
+			return null;
+		}
+		Spliterator.OfInt prefix = source.trySplit();
+		return prefix == null ? null : new PrimeFilterSpliterator(prefix, batch);
+	}
+	
+	@Override
+	public long estimateSize(){
+		long size = source.estimateSize();
+		return size == Long.MAX_VALUE ? size : size + count - position;
+	}
+	
+	@Override
+	public int characteristics(){
+		return source.characteristics() & (Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED
+				| Spliterator.NONNULL | Spliterator.IMMUTABLE | Spliterator.CONCURRENT);
+	}
+	
+	@Override
+	public Comparator<? super Integer> getComparator(){
+		return source.getComparator();
+	}
+}
\ No newline at end of file
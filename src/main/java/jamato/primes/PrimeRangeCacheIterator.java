@@ -1,5 +1,6 @@
 package jamato.primes;
 
+import java.util.NoSuchElementException;
 import java.util.PrimitiveIterator;
 
 /**
@@ -11,12 +12,16 @@ import java.util.PrimitiveIterator;
  */
 class PrimeRangeCacheIterator implements PrimitiveIterator.OfInt{
 	
-	private final PrimeCache cache;
-	
-	private int nextIndex;
+	/** The iterator providing the primes, starting at the lower bound. */
+	private final PrimeCacheIterator iterator;
 	
 	private final int upperBoundInclusive;
 	
+	/** The next prime to be returned, if {@link #hasNext} is set. */
+	private int next;
+	
+	private boolean hasNext;
+	
 	/**
 	 * Creates a new instance.
 	 *
@@ -27,26 +32,39 @@ class PrimeRangeCacheIterator implements PrimitiveIterator.OfInt{
 	 * this value
 	 */
 	public PrimeRangeCacheIterator(PrimeCache cache, int lowerBound, int upperBoundInclusive){
-		this.cache = cache;
-		this.nextIndex = cache.getInsertionIndex(lowerBound);
-		this.upperBoundInclusive = upperBoundInclusive;
-		if (nextIndex >= cache.size()){
+		int fromIndex = cache.getInsertionIndex(lowerBound);
+		if (fromIndex >= cache.size()){
 			throw new IllegalArgumentException("Lower bound is not in the cache: " + lowerBound);
 		}
+		this.iterator = new PrimeCacheIterator(cache, fromIndex, Primes.NUMBER_OF_INT_PRIMES);
+		this.upperBoundInclusive = upperBoundInclusive;
+		advance();
 	}
 	
 	@Override
 	public boolean hasNext(){
-		return cache.get(nextIndex) <= upperBoundInclusive;
+		return hasNext;
 	}
 	
 	@Override
 	public int nextInt(){
-		int result = cache.get(nextIndex++);
-		if (nextIndex == cache.size() && nextIndex < Primes.NUMBER_OF_INT_PRIMES){
-			int nextPrime = Primes.calculateNextPrimeAfter(cache.max());
-			cache.add(nextPrime);
+		if (!hasNext){
+			throw new NoSuchElementException();
 		}
+		int result = next;
+		advance();
 		return result;
 	}
+	
+	/**
+	 * Reads the next prime from the cache iterator and checks it against the upper bound.
+	 */
+	private void advance(){
+		if (iterator.hasNext()){
+			next = iterator.nextInt();
+			hasNext = next <= upperBoundInclusive;
+		}else{
+			hasNext = false;
+		}
+	}
 }
\ No newline at end of file
@@ -10,6 +10,9 @@ import java.util.PrimitiveIterator;
  */
 class PrimeRangeIterator implements PrimitiveIterator.OfInt{
 	
+	/** The context whose wheel is used to find the primes. */
+	private final PrimeContext context;
+	
 	private int next;
 	
 	private boolean hasNext;
@@ -19,13 +22,15 @@ class PrimeRangeIterator implements PrimitiveIterator.OfInt{
 	/**
 	 * Creates a new instance.
 	 *
+	 * @param context the context whose wheel is used to find the primes
 	 * @param lowerBound the lower bound, the first prime returned is the least prime greater than or equal to this
 	 * value
 	 * @param upperBoundInclusive the upper bound, the last prime returned is the greatest prime less than or equal to
 	 * this value
 	 */
-	public PrimeRangeIterator(int lowerBound, int upperBoundInclusive){
-		this.next = Primes.calculateNextPrimeAfter(lowerBound - 1);
+	public PrimeRangeIterator(PrimeContext context, int lowerBound, int upperBoundInclusive){
+		this.context = context;
+		this.next = context.calculateNextPrimeAfter(lowerBound - 1);
 		this.hasNext = next <= upperBoundInclusive;
 		this.upperBoundInclusive = upperBoundInclusive;
 	}
@@ -41,7 +46,7 @@ class PrimeRangeIterator implements PrimitiveIterator.OfInt{
 		if (next == Primes.GREATEST_INT_PRIME){
 			hasNext = false;
 		}else{
-			next = Primes.calculateNextPrimeAfter(next);
+			next = context.calculateNextPrimeAfter(next);
 			hasNext = next <= upperBoundInclusive;
 		}
 		return result;
@@ -0,0 +1,197 @@
+package jamato.primes;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * An immutable pattern of prime constellations, such as twin primes or prime quadruplets. A pattern is given by the
+ * offsets of its members from the first member; a number <code>n</code> starts a tuple of the pattern if
+ * <code>n+offset</code> is prime for all offsets.
+ * <p>
+ * Tuples are searched with a wheel sieve whose candidates are the numbers <code>n</code> for which no
+ * <code>n+offset</code> is divisible by a prime up to 13. Only these candidates are checked for primality, one member
+ * after the other. Ranges are processed in parallel, split on whole periods of the sieve.
+ *
+ * @author JSiebel
+ *
+ */
+public final class PrimeTuples{
+	
+	/** The primes of the wheel sieve. */
+	private static final int[] WHEEL_PRIMES = Arrays.copyOf(PrimeCache.INITIAL_PRIMES,
+			PrimeContext.DEFAULT_WHEEL_PRIMES);
+	
+	/** The least number that the wheel sieve can check, which is greater than all wheel primes. */
+	private static final int SIEVE_START = WHEEL_PRIMES[WHEEL_PRIMES.length - 1] + 1;
+	
+	/** Twin primes, <code>(p, p+2)</code>. */
+	public static final PrimeTuples TWINS = of(0, 2);
+	
+	/** Cousin primes, <code>(p, p+4)</code>. */
+	public static final PrimeTuples COUSINS = of(0, 4);
+	
+	/** Sexy primes, <code>(p, p+6)</code>. */
+	public static final PrimeTuples SEXY = of(0, 6);
+	
+	/** Prime quadruplets, <code>(p, p+2, p+6, p+8)</code>. */
+	public static final PrimeTuples QUADRUPLETS = of(0, 2, 6, 8);
+	
+	/** The offsets of the tuple members, in ascending order, starting with 0. */
+	private final int[] offsets;
+	
+	/** The wheel sieve of the first members of tuples. */
+	private final PrimesSieve sieve;
+	
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param offsets the offsets of the tuple members, in ascending order, starting with 0
+	 */
+	private PrimeTuples(int[] offsets){
+		this.offsets = offsets;
+		this.sieve = new PrimesSieve(WHEEL_PRIMES, offsets);
+	}
+	
+	/**
+	 * Returns the pattern with the given offsets. The pattern must be admissible: for each prime <code>q</code>, the
+	 * offsets must leave at least one residue modulo <code>q</code> free, as otherwise one of the members of each tuple
+	 * would be divisible by <code>q</code>. For example, <code>(0, 2, 4)</code> is not admissible, since one of
+	 * <code>p</code>, <code>p+2</code> and <code>p+4</code> is always divisible by 3.
+	 *
+	 * @param offsets the offsets of the tuple members from the first member, in ascending order, starting with 0
+	 * @return the pattern
+	 * @throws IllegalArgumentException if there are no offsets, if they don't start with 0 or aren't ascending, or if
+	 * the pattern is not admissible
+	 */
+	public static PrimeTuples of(int... offsets){
+		if (offsets.length == 0 || offsets[0] != 0){
+			throw new IllegalArgumentException("The first offset must be 0.");
+		}
+		for (int i = 1; i < offsets.length; i++){
+			if (offsets[i] <= offsets[i - 1]){
+				throw new IllegalArgumentException("The offsets must be ascending, but were " + Arrays.toString(offsets)
+						+ ".");
+			}
+		}
+		// A prime greater than the number of offsets always has a free residue.
+		for (int q : Primes.rangeArray(2, offsets.length + 1)){
+			boolean[] covered = new boolean[q];
+			int coveredResidues = 0;
+			for (int offset : offsets){
+				if (!covered[offset % q]){
+					covered[offset % q] = true;
+					coveredResidues++;
+				}
+			}
+			if (coveredResidues == q){
+				throw new IllegalArgumentException("The pattern " + Arrays.toString(offsets)
+						+ " is not admissible, it covers all residues modulo " + q + ".");
+			}
+		}
+		return new PrimeTuples(offsets.clone());
+	}
+	
+	/**
+	 * Returns the offsets of the tuple members from the first member.
+	 *
+	 * @return the offsets, in ascending order, starting with 0
+	 */
+	public int[] getOffsets(){
+		return offsets.clone();
+	}
+	
+	/**
+	 * Checks if the given number is the first member of a tuple, i.e. if the number plus each offset is prime.
+	 *
+	 * @param number the number to be checked
+	 * @return <code>true</code> if all members of the tuple starting at the number are prime
+	 */
+	public boolean matches(long number){
+		if (number > Long.MAX_VALUE - offsets[offsets.length - 1]){
+			return false;
+		}
+		for (int offset : offsets){
+			if (!Primes.isPrime(number + offset)){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns a parallel, ordered stream of the first members of all tuples whose first member is greater or equal to
+	 * the given lower bound, and smaller than the given upper bound. Only tuples whose members are all in the int range
+	 * are included.
+	 *
+	 * @param lowerBound the lower bound for the first members, inclusive
+	 * @param upperBound the upper bound for the first members, exclusive
+	 * @return a stream of the first members of the tuples
+	 * @throws IllegalArgumentException if <code>lowerBound > upperBound</code>
+	 */
+	public IntStream rangeStream(int lowerBound, int upperBound){
+		if (lowerBound > upperBound){
+			throw new IllegalArgumentException("lowerBound > upperBound");
+		}
+		int first = Math.max(lowerBound, 0);
+		if (first >= upperBound){
+			return IntStream.empty().parallel();
+		}
+		int last = Math.min(upperBound - 1, Integer.MAX_VALUE - offsets[offsets.length - 1]);
+		// Tuples containing wheel primes are not candidates of the sieve, so the numbers below it are checked directly.
+		IntStream small = IntStream.range(first, Math.min(last + 1, SIEVE_START)).filter(this::matches);
+		IntStream sieved = sieve.stream(Math.max(first, SIEVE_START) - 1, last, this::matches);
+		return IntStream.concat(small, sieved).parallel();
+	}
+	
+	/**
+	 * Returns a parallel, ordered stream of the first members of all tuples whose first member is greater or equal to
+	 * the given lower bound, and smaller than the given upper bound. Only tuples whose members are all in the long
+	 * range are included.
+	 *
+	 * @param lowerBound the lower bound for the first members, inclusive
+	 * @param upperBound the upper bound for the first members, exclusive
+	 * @return a stream of the first members of the tuples
+	 * @throws IllegalArgumentException if <code>lowerBound > upperBound</code>
+	 */
+	public LongStream longRangeStream(long lowerBound, long upperBound){
+		if (lowerBound > upperBound){
+			throw new IllegalArgumentException("lowerBound > upperBound");
+		}
+		long first = Math.max(lowerBound, 0);
+		if (first >= upperBound){
+			return LongStream.empty().parallel();
+		}
+		long last = Math.min(upperBound - 1, Long.MAX_VALUE - offsets[offsets.length - 1]);
+		LongStream small = LongStream.range(first, Math.min(last + 1, SIEVE_START)).filter(this::matches);
+		long sievedFirst = Math.max(first, SIEVE_START);
+		int period = sieve.size;
+		// Each period of the sieve is searched by a single task.
+		LongStream sieved = LongStream.rangeClosed(sievedFirst / period, last / period)
+				.parallel()
+				.flatMap(p -> {
+					long start = p * period;
+					return periodStream(Math.max(start, sievedFirst), start + Math.min(last - start, period - 1));
+				});
+		return LongStream.concat(small, sieved).parallel();
+	}
+	
+	/**
+	 * Returns a stream of the first members of the tuples in the given range, which must be part of a single period of
+	 * the sieve.
+	 *
+	 * @param first the least number of the range, must be greater than all wheel primes
+	 * @param last the greatest number of the range
+	 * @return a sequential stream of the first members of the tuples
+	 */
+	private LongStream periodStream(long first, long last){
+		LongStream.Builder tuples = LongStream.builder();
+		// The candidates after the last one may overflow near the end of the long range.
+		for (long n = sieve.getNextCandidate(first - 1); n >= first && n <= last; n = sieve.getNextCandidate(n)){
+			if (matches(n)){
+				tuples.add(n);
+			}
+		}
+		return tuples.build();
+	}
+}
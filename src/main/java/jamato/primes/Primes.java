@@ -1,10 +1,15 @@
 package jamato.primes;
 
+import java.io.IOException;
 import java.math.BigInteger;
-import java.util.Arrays;
+import java.nio.file.Path;
 import java.util.PrimitiveIterator;
-import java.util.PrimitiveIterator.OfInt;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import java.util.stream.StreamSupport;
 
 /**
@@ -18,36 +23,80 @@ public final class Primes{
 	/** The greatest prime number that fits in an integer, <code>2^31-1</code>. */
 	public static final int GREATEST_INT_PRIME = 2147483647;
 	
+	/** The greatest prime number that fits in a long, <code>2^63-25</code>. */
+	public static final long GREATEST_LONG_PRIME = 9223372036854775783L;
+	
 	/** The number of primes in the integer range. */
 	public static final int NUMBER_OF_INT_PRIMES = 105097565;
 	
-	/** The maximum distance between two primes in the integer range (1453168141 and 1453168947). */
-	private static final int GREATEST_PRIME_GAP = 806;
+	/** The system property that selects the layout of the prime cache at startup. */
+	private static final String CACHE_LAYOUT_PROPERTY = "jamato.primes.cacheLayout";
+	
+	/** The system property that sets the memory budget of the prime cache at startup, in bytes. */
+	private static final String CACHE_BUDGET_PROPERTY = "jamato.primes.cacheBudget";
+	
+	/** The system property that selects the primality test for int numbers beyond the cache at startup. */
+	private static final String INT_PRIMALITY_TEST_PROPERTY = "jamato.primes.intPrimalityTest";
+	
+	/** The context used by the static methods of this class. */
+	private static final PrimeContext DEFAULT_CONTEXT = new PrimeContext(
+			PrimeCacheLayout.valueOf(System.getProperty(CACHE_LAYOUT_PROPERTY, PrimeCacheLayout.ARRAY.name())),
+			Long.getLong(CACHE_BUDGET_PROPERTY, Long.MAX_VALUE), PrimeContext.DEFAULT_WHEEL_PRIMES,
+			IntPrimalityTest.valueOf(System.getProperty(INT_PRIMALITY_TEST_PROPERTY,
+					IntPrimalityTest.MILLER_RABIN.name())));
+	
+	/** Miller-Rabin bases that identify all primes less than 3215031751. */
+	private static final long[] LONG_BASES_2_TO_7 = { 2, 3, 5, 7 };
+	
+	/** Miller-Rabin bases that identify all primes less than 2152302898747. */
+	private static final long[] LONG_BASES_2_TO_11 = { 2, 3, 5, 7, 11 };
 	
-	private static PrimeCache cache = new PrimeCache();
+	/** Miller-Rabin bases that identify all primes less than 3474749660383. */
+	private static final long[] LONG_BASES_2_TO_13 = { 2, 3, 5, 7, 11, 13 };
+	
+	/** Miller-Rabin bases that identify all primes less than 341550071728321. */
+	private static final long[] LONG_BASES_2_TO_17 = { 2, 3, 5, 7, 11, 13, 17 };
+	
+	/** Miller-Rabin bases found by Jim Sinclair that identify all primes less than <code>2^64</code>. */
+	private static final long[] LONG_BASES_SINCLAIR = { 2, 325, 9375, 28178, 450775, 9780504, 1795265022 };
+	
+	/**
+	 * The number of primes less than 1000, which are used for trial division of big numbers. These are the first
+	 * primes of {@link TrialDivision#PRIMES}, so that their indexes select the inverses and limits of their tests.
+	 */
+	static final int TRIAL_DIVISION_PRIME_COUNT = 168;
 	
 	/**
-	 * A sieve used for simple composite checks. Using 6 primes to create the sieve leaves 1/2 * 2/3 * 4/5 * 6/7 * 10/11
-	 * * 12/13 = 192/1001 ≈ 19 % of all numbers as prime candidates.
+	 * The greatest product of trial division primes that is divided at once. Products that fit in an unsigned int can
+	 * be divided by a BigInteger using single-word division.
 	 */
-	private static final PrimesSieve SIEVE = new PrimesSieve(2, 3, 5, 7, 11, 13);
+	static final long MAX_TRIAL_DIVISION_PRODUCT = 0xFFFFFFFFL;
 	
 	private Primes(){
 		// no instances
 	}
 	
 	/**
-	 * Checks if the given number is a prime.
+	 * Returns the context used by the static methods of this class. Its cache layout, memory budget and int primality
+	 * test are read from the system properties <code>jamato.primes.cacheLayout</code>,
+	 * <code>jamato.primes.cacheBudget</code> and <code>jamato.primes.intPrimalityTest</code> at startup. Workloads that
+	 * should not share a cache with it can create their own {@link PrimeContext}.
+	 *
+	 * @return the default context
+	 */
+	public static PrimeContext getDefaultContext(){
+		return DEFAULT_CONTEXT;
+	}
+	
+	/**
+	 * Checks if the given number is a prime. Numbers beyond the cache are checked with the {@link IntPrimalityTest}
+	 * selected by the system property <code>jamato.primes.intPrimalityTest</code>.
 	 *
 	 * @param number the number to be checked
 	 * @return <code>true</code> if the number is prime, <code>false</code> if it is composite
 	 */
 	public static boolean isPrime(int number){
-		if (number < cache.max()){
-			return cache.contains(number);
-		}else{
-			return SIEVE.isCandidate(number) && isSievedNumberPrime(number);
-		}
+		return DEFAULT_CONTEXT.isPrime(number);
 	}
 	
 	/**
@@ -57,14 +106,192 @@ public final class Primes{
 	 * @param n the number to be checked
 	 * @return <code>true</code> if the number is prime
 	 */
-	private static boolean isSievedNumberPrime(int n){
+	static boolean isSievedNumberPrime(int n){
+		IntMontgomery montgomery = new IntMontgomery(n);
 		if (n < 2047){
-			return MillerRabinTest.test(n, 2);
+			return MillerRabinTest.test(montgomery, 2);
 		}else if (n < 9080191){
-			return MillerRabinTest.test(n, 31) && MillerRabinTest.test(n, 73);
+			return MillerRabinTest.test(montgomery, 31) && MillerRabinTest.test(montgomery, 73);
+		}else{
+			return MillerRabinTest.test(montgomery, 2) && MillerRabinTest.test(montgomery, 7)
+					&& MillerRabinTest.test(montgomery, 61);
+		}
+	}
+	
+	/**
+	 * Checks each of the given numbers for primality, like {@link #isPrime(int)}. This is faster than checking the
+	 * numbers one by one: cache lookups are sorted, Miller-Rabin tests are interleaved, and large arrays are processed
+	 * in parallel.
+	 *
+	 * @param numbers the numbers to be checked
+	 * @param results the array into which the results are written; <code>results[i]</code> is set to
+	 * <code>true</code> if <code>numbers[i]</code> is prime, and to <code>false</code> otherwise
+	 * @throws IllegalArgumentException if the results array is shorter than the numbers array
+	 */
+	public static void isPrime(int[] numbers, boolean[] results){
+		DEFAULT_CONTEXT.isPrime(numbers, results);
+	}
+	
+	/**
+	 * Checks each of the given numbers for primality, like {@link #isPrime(int[], boolean[])}, and stores the results
+	 * as a bit mask.
+	 *
+	 * @param numbers the numbers to be checked
+	 * @param bitmask the array into which the results are written; bit <code>i % 64</code> of
+	 * <code>bitmask[i / 64]</code> is set if <code>numbers[i]</code> is prime, and cleared otherwise. The bits after
+	 * the last number are cleared as well.
+	 * @throws IllegalArgumentException if the bit mask has less than <code>numbers.length</code> bits
+	 */
+	public static void isPrime(int[] numbers, long[] bitmask){
+		DEFAULT_CONTEXT.isPrime(numbers, bitmask);
+	}
+	
+	/**
+	 * Returns a stream of the primes among the given numbers, in their original order. The numbers are checked in
+	 * chunks, like in {@link #isPrime(int[], boolean[])}. The returned stream is parallel if the given one is.
+	 *
+	 * @param numbers the numbers to be checked
+	 * @return a stream of primes
+	 */
+	public static IntStream filterPrimes(IntStream numbers){
+		return DEFAULT_CONTEXT.filterPrimes(numbers);
+	}
+	
+	/**
+	 * Checks if the given number is a prime. Numbers in the int range are checked like in {@link #isPrime(int)}.
+	 *
+	 * @param number the number to be checked
+	 * @return <code>true</code> if the number is prime, <code>false</code> if it is composite
+	 */
+	public static boolean isPrime(long number){
+		return DEFAULT_CONTEXT.isPrime(number);
+	}
+	
+	/**
+	 * Checks if the given number is prime. If the number is divisible by one of the sieve primes, the result is
+	 * undefined. The Miller-Rabin bases are chosen so that the result is deterministic for the given number.
+	 *
+	 * @param n the number to be checked, must be greater than all sieve primes
+	 * @return <code>true</code> if the number is prime
+	 * @see "https://oeis.org/A014233"
+	 */
+	static boolean isSievedNumberPrime(long n){
+		LongMontgomery montgomery = new LongMontgomery(n);
+		long[] bases;
+		if (n < 3215031751L){
+			bases = LONG_BASES_2_TO_7;
+		}else if (n < 2152302898747L){
+			bases = LONG_BASES_2_TO_11;
+		}else if (n < 3474749660383L){
+			bases = LONG_BASES_2_TO_13;
+		}else if (n < 341550071728321L){
+			bases = LONG_BASES_2_TO_17;
 		}else{
-			return MillerRabinTest.test(n, 2) && MillerRabinTest.test(n, 7) && MillerRabinTest.test(n, 61);
+			bases = LONG_BASES_SINCLAIR;
+		}
+		for (long base : bases){
+			if (!MillerRabinTest.test(montgomery, base)){
+				return false;
+			}
 		}
+		return true;
+	}
+	
+	/**
+	 * Checks if the given number is a prime. Numbers in the long range are checked like in {@link #isPrime(long)}.
+	 * Greater numbers are checked by trial division with the primes less than 1000, and then by the
+	 * {@link BailliePSWTest}. The result is correct for all primes, and there is no composite number known for which it
+	 * is wrong.
+	 *
+	 * @param number the number to be checked
+	 * @return <code>true</code> if the number is prime, <code>false</code> if it is composite
+	 */
+	public static boolean isPrime(BigInteger number){
+		if (number.bitLength() < Long.SIZE){
+			return isPrime(number.longValue());
+		}
+		if (!number.testBit(0)){
+			return false;
+		}
+		// Divide by products of odd primes, and check the remainder for each of them.
+		int[] primes = TrialDivision.PRIMES;
+		for (int i = 1; i < TRIAL_DIVISION_PRIME_COUNT;){
+			int groupStart = i;
+			long product = 1;
+			while (i < TRIAL_DIVISION_PRIME_COUNT && product * primes[i] <= MAX_TRIAL_DIVISION_PRODUCT){
+				product *= primes[i++];
+			}
+			long remainder = number.mod(BigInteger.valueOf(product)).longValue();
+			for (int j = groupStart; j < i; j++){
+				if (TrialDivision.divides(j, (int) remainder)){
+					return false;
+				}
+			}
+		}
+		return BailliePSWTest.test(number);
+	}
+	
+	/**
+	 * Returns the least prime greater than the given number.
+	 *
+	 * @param number a number
+	 * @return the next prime
+	 * @throws ArithmeticException if the number is not less than {@link #GREATEST_LONG_PRIME}
+	 */
+	public static long nextPrime(long number){
+		return DEFAULT_CONTEXT.nextPrime(number);
+	}
+	
+	/**
+	 * Counts the primes less than the given bound. Unless the bound is within the cache, the primes are counted without
+	 * enumerating them, see {@link #count(long)}.
+	 *
+	 * @param upperBound the upper bound for the primes, exclusive
+	 * @return the number of primes less than the bound
+	 */
+	public static int count(int upperBound){
+		return DEFAULT_CONTEXT.count(upperBound);
+	}
+	
+	/**
+	 * Counts the primes less than the given bound. Unless the bound is within the cache, the primes are counted without
+	 * enumerating them, which takes time proportional to <code>upperBound^(3/4)</code> and memory proportional to
+	 * <code>upperBound^(1/2)</code>. This takes milliseconds for int bounds, and seconds for bounds around
+	 * <code>10^13</code>.
+	 *
+	 * @param upperBound the upper bound for the primes, exclusive
+	 * @return the number of primes less than the bound
+	 * @throws IllegalArgumentException if the bound is greater than <code>(2^31 - 9)^2</code>, so that the memory
+	 * needed cannot be allocated
+	 */
+	public static long count(long upperBound){
+		return DEFAULT_CONTEXT.count(upperBound);
+	}
+	
+	/**
+	 * Counts the primes that are greater or equal to the given lower bound, and smaller than the given upper bound.
+	 *
+	 * @param lowerBound the lower bound for the primes, inclusive
+	 * @param upperBound the upper bound for the primes, exclusive
+	 * @return the number of primes in the range
+	 * @throws IllegalArgumentException if the lower bound is greater than the upper bound, or if the upper bound is
+	 * too big, see {@link #count(long)}
+	 */
+	public static long count(long lowerBound, long upperBound){
+		return DEFAULT_CONTEXT.count(lowerBound, upperBound);
+	}
+	
+	/**
+	 * Returns the prime with the given index. Unless the prime is already cached, it is calculated without filling the
+	 * cache: the primes below an estimate of the prime are counted (see {@link #count(long)}), and only the numbers
+	 * between the estimate and the prime are sieved.
+	 *
+	 * @param index the index of the prime, starting with 0 for 2
+	 * @return the prime
+	 * @throws IndexOutOfBoundsException if the index is negative, or not less than {@link #NUMBER_OF_INT_PRIMES}
+	 */
+	public static int nth(int index){
+		return DEFAULT_CONTEXT.nth(index);
 	}
 	
 	/**
@@ -76,9 +303,7 @@ public final class Primes{
 	 * @return an array of prime numbers
 	 */
 	public static int[] array(int fromIndex, int toIndex){
-		rangeCheck(fromIndex, toIndex);
-		fillCacheToIndex(toIndex);
-		return cache.getArray(fromIndex, toIndex);
+		return DEFAULT_CONTEXT.array(fromIndex, toIndex);
 	}
 	
 	/**
@@ -90,34 +315,38 @@ public final class Primes{
 	 * @return an array of prime numbers
 	 */
 	public static int[] rangeArray(int lowerBound, int upperBound){
-		if (lowerBound > upperBound){
-			throw new IllegalArgumentException("lowerBound > upperBound");
-		}
-		if (lowerBound < 0){
-			lowerBound = 0;
-		}
-		int highestPrime = cache.max();
-		if (lowerBound <= highestPrime + GREATEST_PRIME_GAP){
-			// The distance is chosen so that when running the method with a lower bound equal to the greatest prime in
-			// the cache, the cache is still filled.
-			fillCacheToLimit(upperBound);
-			int lowerBoundIndex = cache.getInsertionIndex(lowerBound);
-			int upperBoundIndex = cache.getInsertionIndex(upperBound);
-			return cache.getArray(lowerBoundIndex, upperBoundIndex);
-		}else{
-			// Using the cache would require calculating a lot of primes that are not returned, so don't use the cache.
-			int next = lowerBound - 1;
-			int nextIndex = 0;
-			int[] result = new int[10];
-			while (next < upperBound){
-				if (nextIndex == result.length){
-					result = Arrays.copyOf(result, result.length * 2);
-				}
-				next = calculateNextPrimeAfter(next);
-				result[nextIndex++] = next;
-			}
-			return Arrays.copyOf(result, nextIndex - 1);
-		}
+		return DEFAULT_CONTEXT.rangeArray(lowerBound, upperBound);
+	}
+	
+	/**
+	 * Returns the primality of the numbers in the given range as a bit mask. Bit <code>i % 64</code> of the element
+	 * <code>i / 64</code> is set if <code>lowerBound + i</code> is prime; the bits after the last number are cleared.
+	 * The bits are set directly from the cache or from a sieved segment, without creating an array of the primes. The
+	 * result can be wrapped with {@link java.util.BitSet#valueOf(long[])} or {@link java.nio.LongBuffer#wrap(long[])}.
+	 *
+	 * @param lowerBound the lower bound, inclusive
+	 * @param upperBound the upper bound, exclusive
+	 * @return the bit mask, an array of <code>(upperBound - lowerBound + 63) / 64</code> elements
+	 * @throws IllegalArgumentException if <code>lowerBound > upperBound</code>
+	 */
+	public static long[] primalityBits(int lowerBound, int upperBound){
+		return DEFAULT_CONTEXT.primalityBits(lowerBound, upperBound);
+	}
+	
+	/**
+	 * Writes the primality of the numbers in the given range into a bit mask, like
+	 * {@link #primalityBits(int, int)}. Reusing the bit mask avoids allocating a new one for each range.
+	 *
+	 * @param lowerBound the lower bound, inclusive
+	 * @param upperBound the upper bound, exclusive
+	 * @param bitmask the array into which the bit mask is written; bit <code>i % 64</code> of
+	 * <code>bitmask[i / 64]</code> is set if <code>lowerBound + i</code> is prime, and cleared otherwise. The bits
+	 * after the last number are cleared as well, the elements after them are not changed.
+	 * @throws IllegalArgumentException if <code>lowerBound > upperBound</code>, or if the bit mask has less than
+	 * <code>upperBound - lowerBound</code> bits
+	 */
+	public static void primalityBits(int lowerBound, int upperBound, long[] bitmask){
+		DEFAULT_CONTEXT.primalityBits(lowerBound, upperBound, bitmask);
 	}
 	
 	/**
@@ -126,7 +355,7 @@ public final class Primes{
 	 * @return a stream of primes.
 	 */
 	public static IntStream stream(){
-		return cacheFillingStream(0, NUMBER_OF_INT_PRIMES);
+		return DEFAULT_CONTEXT.stream();
 	}
 	
 	/**
@@ -137,9 +366,7 @@ public final class Primes{
 	 * @return a stream of primes.
 	 */
 	public static IntStream stream(int fromIndex){
-		rangeCheck(fromIndex);
-		fillCacheToIndex(fromIndex);
-		return cacheFillingStream(fromIndex, NUMBER_OF_INT_PRIMES);
+		return DEFAULT_CONTEXT.stream(fromIndex);
 	}
 	
 	/**
@@ -150,13 +377,7 @@ public final class Primes{
 	 * @return a stream of primes.
 	 */
 	public static IntStream stream(int fromIndex, int toIndex){
-		rangeCheck(fromIndex, toIndex);
-		if (toIndex <= cache.size()){
-			return cache.stream(fromIndex, toIndex);
-		}else{
-			fillCacheToIndex(fromIndex);
-			return cacheFillingStream(fromIndex, toIndex);
-		}
+		return DEFAULT_CONTEXT.stream(fromIndex, toIndex);
 	}
 	
 	/**
@@ -166,13 +387,9 @@ public final class Primes{
 	 * @return a stream of primes
 	 */
 	public static IntStream rangeStream(int lowerBound){
-		if (lowerBound < cache.max()){
-			return stream(cache.getInsertionIndex(lowerBound));
-		}else{
-			return SIEVE.stream(lowerBound - 1).filter(Primes::isSievedNumberPrime);
-		}
+		return DEFAULT_CONTEXT.rangeStream(lowerBound);
 	}
-
+	
 	
 	/**
 	 * A stream of primes, beginning with the given lower bound.
@@ -182,89 +399,65 @@ public final class Primes{
 	 * @return a stream of primes
 	 */
 	public static IntStream rangeStream(int lowerBound, int upperBound){
-		if (upperBound < cache.max()){
-			int lowerBoundIndex = cache.getInsertionIndex(lowerBound);
-			int upperBoundIndex = cache.getInsertionIndex(upperBound);
-			return cache.stream(lowerBoundIndex, upperBoundIndex);
-		}else if (lowerBound < cache.max()){
-			int lowerBoundIndex = cache.getInsertionIndex(lowerBound);
-			return cacheFillingStream(lowerBoundIndex, NUMBER_OF_INT_PRIMES).takeWhile(n -> n < upperBound);
-		}else{
-			return SIEVE.stream(lowerBound - 1, upperBound - 1).filter(Primes::isSievedNumberPrime);
-		}
+		return DEFAULT_CONTEXT.rangeStream(lowerBound, upperBound);
 	}
 	
-	/**
-	 * An ordered stream of the primes, starting at the given index. This stream writes each prime it calculates to the
-	 * cache.
-	 * 
-	 * @return an ordered stream of primes
-	 */
-	private static IntStream cacheFillingStream(int startIndex, int endIndex){
-		return StreamSupport.intStream(new PrimeCacheSpliterator(cache, startIndex, endIndex), false);
-	}
 	
 	public static PrimitiveIterator.OfInt iterator(){
-		return new PrimeRangeCacheIterator(cache, 2, GREATEST_INT_PRIME);
+		return DEFAULT_CONTEXT.iterator();
 	}
 	
 	public static PrimitiveIterator.OfInt iterator(int fromIndex){
-		rangeCheck(fromIndex);
-		fillCacheToIndex(fromIndex);
-		return new PrimeCacheIterator(cache, fromIndex, NUMBER_OF_INT_PRIMES);
+		return DEFAULT_CONTEXT.iterator(fromIndex);
 	}
 	
 	public static PrimitiveIterator.OfInt iterator(int fromIndex, int toIndex){
-		rangeCheck(fromIndex, toIndex);
-		fillCacheToIndex(fromIndex);
-		return new PrimeCacheIterator(cache, fromIndex, toIndex);
+		return DEFAULT_CONTEXT.iterator(fromIndex, toIndex);
 	}
 	
 	public static PrimitiveIterator.OfInt rangeIterator(int lowerBound){
-		if (cache.getInsertionIndex(lowerBound) < cache.size()){
-			return new PrimeRangeCacheIterator(cache, lowerBound, GREATEST_INT_PRIME);
-		}else{
-			return new PrimeRangeIterator(lowerBound, GREATEST_INT_PRIME);
-		}
+		return DEFAULT_CONTEXT.rangeIterator(lowerBound);
 	}
 	
 	public static PrimitiveIterator.OfInt rangeIterator(int lowerBound, int upperBound){
-		if (cache.getInsertionIndex(lowerBound) < cache.size()){
-			return new PrimeRangeCacheIterator(cache, lowerBound, upperBound - 1);
-		}else{
-			return new PrimeRangeIterator(lowerBound, upperBound - 1);
-		}
+		return DEFAULT_CONTEXT.rangeIterator(lowerBound, upperBound);
 	}
 	
+	/**
+	 * An iterator of the primes in the given range of long numbers, in ascending order.
+	 *
+	 * @param lowerBound the lower bound, the first prime returned is the least prime ≥ this
+	 * @param upperBound the upper bound, exclusive
+	 * @return an iterator of primes
+	 */
+	public static PrimitiveIterator.OfLong longRangeIterator(long lowerBound, long upperBound){
+		return new LongPrimeRangeIterator(lowerBound, upperBound);
+	}
+	
+	/**
+	 * A stream of the primes in the given range of long numbers, in ascending order.
+	 *
+	 * @param lowerBound the lower bound, the first prime returned is the least prime ≥ this
+	 * @param upperBound the upper bound, exclusive
+	 * @return a stream of primes
+	 */
+	public static LongStream longRangeStream(long lowerBound, long upperBound){
+		return StreamSupport.longStream(Spliterators.spliteratorUnknownSize(longRangeIterator(lowerBound, upperBound),
+				Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+	}
+	
+	/**
+	 * Returns all positive divisors of the given number. The divisors are in the order of
+	 * {@link Factorization#divisors()}, e.g. 1, 2, 4, 3, 6, 12 for 12.
+	 *
+	 * @param n a number
+	 * @return an array of the divisors, or <code>{ 1 }</code> if the number is not positive
+	 */
 	public static int[] getDivisors(int n){
-		int[] result = { 1 };
-		OfInt primeIterator = iterator();
-		
-		int limit = (int) Math.floor(Math.sqrt(n));
-		while (n > 1){
-			int p = primeIterator.nextInt();
-			
-			if (p > limit){
-				p = n;
-			}
-			
-			if (n % p == 0){
-				int exponent = 1;
-				n /= p;
-				while (n % p == 0){
-					exponent++;
-					n /= p;
-					if (exponent % 2 == 0){
-						limit /= p;
-					}
-				}
-				result = multiplyArrayContents(result, p, result.length * (exponent + 1));
-				if (exponent % 2 != 0){
-					limit = (int) Math.floor((limit + 1) / Math.sqrt(p));
-				}
-			}
+		if (n <= 1){
+			return new int[]{ 1 };
 		}
-		return result;
+		return Factorization.of(n).divisors().mapToInt(divisor -> (int) divisor).toArray();
 	}
 	
 	/**
@@ -300,111 +493,89 @@ public final class Primes{
 	}
 	
 	/**
-	 * Creates an array of the given size, and fills it with multiples of the original. The value at index
-	 * <code>i*source.length+j</code> is <code>source[j] * factor^i</code>.
+	 * Starts filling the cache in the background, on a new daemon thread, so that it contains all primes less than the
+	 * given limit. See {@link #prefillAsync(int, Executor)}.
 	 *
-	 * @param source the source array
-	 * @param factorBase the factor that the fields are multiplied with
-	 * @param newSize the size of the result array
-	 * @return the result array
-	 */
-	private static int[] multiplyArrayContents(int[] source, int factorBase, int newSize){
-		int[] result = Arrays.copyOf(source, newSize);
-		for (int i = source.length; i < result.length; i++){
-			result[i] = result[i - source.length] * factorBase;
-		}
-		return result;
+	 * @param limit the number up to which the cache is filled, exclusive
+	 * @return a future that is completed when the cache is filled
+	 */
+	public static CompletableFuture<Void> prefillAsync(int limit){
+		return DEFAULT_CONTEXT.prefillAsync(limit);
 	}
 	
 	/**
-	 * Checks if the given number is a valid prime index.
+	 * Starts filling the cache in the background, so that it contains all primes less than the given limit. The cache
+	 * is filled one segment after the other, and each segment is published as soon as it has been sieved: readers can
+	 * use the filled part of the cache right away, and readers that need more primes only wait for the current
+	 * segment before they take over filling.
+	 * <p>
+	 * Cancelling the returned future stops filling after the current segment.
 	 *
-	 * @param index the lower index bound, inclusive
-	 * @throws IndexOutOfBoundsException if <code>index < 0</code> or <code>index ≥ {@link #NUMBER_OF_INT_PRIMES}</code>
+	 * @param limit the number up to which the cache is filled, exclusive
+	 * @param executor the executor that runs the filling task
+	 * @return a future that is completed when the cache is filled
 	 */
-	private static void rangeCheck(int index){
-		if (index < 0 || index >= NUMBER_OF_INT_PRIMES){
-			throw new IndexOutOfBoundsException("fromIndex = " + index);
-		}
+	public static CompletableFuture<Void> prefillAsync(int limit, Executor executor){
+		return DEFAULT_CONTEXT.prefillAsync(limit, executor);
 	}
 	
 	/**
-	 * Checks if the given range is valid for integer primes.
-	 *
-	 * @param fromIndex the lower index bound, inclusive
-	 * @param toIndex the upper index bound, exclusive
-	 * @throws IllegalArgumentException if <code>fromIndex > toIndex</code>
-	 * @throws IndexOutOfBoundsException if <code>fromIndex < 0</code> or
-	 * <code>toIndex > {@link #NUMBER_OF_INT_PRIMES}</code>
-	 */
-	private static void rangeCheck(int fromIndex, int toIndex){
-		if (fromIndex > toIndex){
-			throw new IllegalArgumentException("fromIndex > toIndex");
-		}else if (fromIndex < 0){
-			throw new IndexOutOfBoundsException("fromIndex = " + fromIndex);
-		}else if (toIndex > NUMBER_OF_INT_PRIMES){
-			throw new IndexOutOfBoundsException("toIndex = " + toIndex);
-		}
+	 * Resets the cache and frees up the memory it uses.
+	 */
+	public static void resetCache(){
+		DEFAULT_CONTEXT.resetCache();
 	}
 	
 	/**
-	 * Calculates the smallest prime number that is greater than the given number without using the cache.
-	 *
-	 * @param number a number, must be smaller than the greatest sieve prime
-	 * @return the next prime number
+	 * Resets the cache and frees up the memory it uses. From now on, primes are cached using the given layout.
+	 * 
+	 * @param layout the layout of the cache
 	 */
-	static int calculateNextPrimeAfter(int number){
-		int candidate = number;
-		do{
-			candidate = SIEVE.getNextCandidate(candidate);
-		}while (!isSievedNumberPrime(candidate));
-		return candidate;
+	public static void resetCache(PrimeCacheLayout layout){
+		DEFAULT_CONTEXT.resetCache(layout);
 	}
 	
 	/**
-	 * Fills the cache so it contains all the primes up to the given index (exclusive). The cache may contain more
-	 * entries.
+	 * Resets the cache and frees up the memory it uses. From now on, primes are cached using the given layout, and the
+	 * cache keeps only as many primes permanently as fit in the given budget. The primes beyond them are kept in memory
+	 * that the garbage collector may reclaim, and calculated again when they are needed.
 	 * 
-	 * @param index the index up to which the array is filled, must not be greater than {@link #NUMBER_OF_INT_PRIMES}
-	 */
-	private static void fillCacheToIndex(int index){
-		cache.growTo(index);
-		int nextPrime = cache.max();
-		while (cache.size() < index){
-			nextPrime = calculateNextPrimeAfter(nextPrime);
-			cache.addUnchecked(nextPrime);
-		}
+	 * @param layout the layout of the cache
+	 * @param memoryBudget the memory budget in bytes; {@link Long#MAX_VALUE} for an unbounded cache
+	 * @throws IllegalArgumentException if the budget is not positive
+	 */
+	public static void resetCache(PrimeCacheLayout layout, long memoryBudget){
+		DEFAULT_CONTEXT.resetCache(layout, memoryBudget);
 	}
 	
 	/**
-	 * Fills the cache so it contains all the primes up to the given number (exclusive). The cache may contain more
-	 * entries.
-	 * 
-	 * @param index the index up to which the array is filled, must not be greater than {@link #NUMBER_OF_INT_PRIMES}
+	 * Frees up the memory the cache uses beyond what it needs for the primes currently cached. A bounded cache also
+	 * drops the primes beyond its memory budget; they are calculated again when they are needed.
 	 */
-	private static void fillCacheToLimit(int upperBound){
-		int highestPrime = cache.max();
-		while (highestPrime < upperBound){
-			highestPrime = addNextCacheEntry();
-		}
+	public static void trimCache(){
+		DEFAULT_CONTEXT.trimCache();
 	}
 	
 	/**
-	 * Resets the cache and frees up the memory it uses.
+	 * Saves the primes that are currently cached to the given file, so that they can be loaded with
+	 * {@link #loadCache(Path)} later. The file stores each prime in 4 bytes, regardless of the cache layout.
+	 * 
+	 * @param file the file to be written; if it exists, it is overwritten
+	 * @throws IOException if an I/O error occurs
 	 */
-	public static void resetCache(){
-		cache = new PrimeCache();
+	public static void saveCache(Path file) throws IOException{
+		DEFAULT_CONTEXT.saveCache(file);
 	}
 	
 	/**
-	 * Increases the size of the cache and adds the next entry. The cache must not be full (i.e.
-	 * <code>cache.getSize() < NUMBER_OF_INT_PRIMES</code>.
-	 *
-	 * @return the added prime
+	 * Replaces the cache by the primes saved in the given file. The file is mapped into memory and validated, but not
+	 * copied, so the primes are available without calculating them. Primes beyond the file's content are calculated
+	 * and cached on the heap as usual. {@link #resetCache()} discards the loaded primes.
+	 * 
+	 * @param file a file written by {@link #saveCache(Path)}
+	 * @throws IOException if an I/O error occurs, or if the file is not a valid cache file
 	 */
-	static int addNextCacheEntry(){
-		int nextPrime = calculateNextPrimeAfter(cache.max());
-		cache.add(nextPrime);
-		return nextPrime;
+	public static void loadCache(Path file) throws IOException{
+		DEFAULT_CONTEXT.loadCache(file);
 	}
 }
@@ -1,6 +1,7 @@
 package jamato.primes;
 
 import java.util.Arrays;
+import java.util.function.IntPredicate;
 import java.util.stream.IntStream;
 import java.util.stream.StreamSupport;
 
@@ -34,24 +35,50 @@ class PrimesSieve{
 	 */
 	int numberOfCandidates;
 	
+	/** The number of candidates less than a given index, for indices from 0 to <code>size</code> (inclusive). */
+	private final int[] candidatesBefore;
+	
 	/**
 	 * Creates a prime sieve of the given primes.
 	 * 
 	 * @param primes the sieve primes
 	 */
 	PrimesSieve(int... primes){
+		this(primes, new int[]{ 0 });
+	}
+	
+	/**
+	 * Creates a sieve of the given primes for tuples of numbers with the given offsets. A number <code>x</code> is a
+	 * candidate if none of the numbers <code>x+offset</code> is divisible by a sieve prime.
+	 *
+	 * @param primes the sieve primes
+	 * @param offsets the offsets of the tuple members; they must leave at least one candidate
+	 */
+	PrimesSieve(int[] primes, int[] offsets){
 		this.size = Arrays.stream(primes).reduce(1, (s, p) -> s * p);
-		this.numberOfCandidates = Arrays.stream(primes).reduce(1, (s, p) -> s * (p - 1));
 		
 		isComposite = new boolean[size];
 		for (int p : primes){
-			for (int i = 0; i < size; i += p){
-				isComposite[i] = true;
+			for (int offset : offsets){
+				for (int i = Math.floorMod(-offset, p); i < size; i += p){
+					isComposite[i] = true;
+				}
 			}
 		}
 		
+		candidatesBefore = new int[size + 1];
+		for (int i = 0; i < size; i++){
+			candidatesBefore[i + 1] = candidatesBefore[i] + (isComposite[i] ? 0 : 1);
+		}
+		this.numberOfCandidates = candidatesBefore[size];
+		
+		// The step from the last index leads to the first candidate of the next period.
+		int firstCandidate = 0;
+		while (isComposite[firstCandidate]){
+			firstCandidate++;
+		}
 		candidateStep = new int[size];
-		byte nextIndex = 2;
+		int nextIndex = firstCandidate + 1;
 		for (int i = size - 1; i >= 0; i--){
 			candidateStep[i] = nextIndex;
 			if (!isComposite[i]){
@@ -94,11 +121,72 @@ class PrimesSieve{
 		return number + candidateStep[number % size];
 	}
 	
+	/**
+	 * Returns the least prime candidate greater than the given number; that is the least number that is divisible by
+	 * none of the sieve primes.
+	 *
+	 * @param number a number, must be greater than all sieve primes
+	 * @return a prime candidate
+	 */
+	public long getNextCandidate(long number){
+		return number + candidateStep[(int) (number % size)];
+	}
+	
+	/**
+	 * Counts the prime candidates in the given range.
+	 *
+	 * @param startExclusive the start value (exclusive), must be greater than all sieve primes
+	 * @param endInclusive the upper bound of the range, inclusive
+	 * @return the number of prime candidates
+	 */
+	long countCandidates(long startExclusive, long endInclusive){
+		if (endInclusive <= startExclusive){
+			return 0;
+		}
+		return countCandidatesUpTo(endInclusive) - countCandidatesUpTo(startExclusive);
+	}
+	
+	/**
+	 * Counts the numbers from 0 to the given number (inclusive) that are divisible by none of the sieve primes.
+	 *
+	 * @param number a number, must not be negative
+	 * @return the number of candidates
+	 */
+	private long countCandidatesUpTo(long number){
+		return number / size * numberOfCandidates + candidatesBefore[(int) (number % size) + 1];
+	}
+	
+	/**
+	 * Returns a parallel stream of the prime candidates greater than the given number.
+	 *
+	 * @param startExclusive the start value (exclusive), must be greater than all sieve primes
+	 * @return a stream of candidates
+	 */
 	public IntStream stream(int startExclusive){
 		return stream(startExclusive, Integer.MAX_VALUE);
 	}
 	
+	/**
+	 * Returns a parallel stream of the prime candidates in the given range. The stream is sized.
+	 *
+	 * @param startExclusive the start value (exclusive), must be greater than all sieve primes
+	 * @param endInclusive the upper bound of the range, inclusive
+	 * @return a stream of candidates
+	 */
 	public IntStream stream(int startExclusive, int endInclusive){
-		return StreamSupport.intStream(new PrimesSieveSpliterator(this, startExclusive, endInclusive), true);
+		return StreamSupport.intStream(new PrimesSieveSpliterator(this, startExclusive, endInclusive, null), true);
+	}
+	
+	/**
+	 * Returns a parallel stream of the prime candidates in the given range that pass the given test. The test is run
+	 * while the stream's parts are traversed, so that it is split evenly across threads.
+	 *
+	 * @param startExclusive the start value (exclusive), must be greater than all sieve primes
+	 * @param endInclusive the upper bound of the range, inclusive
+	 * @param filter the test that candidates have to pass
+	 * @return a stream of the candidates that pass the test
+	 */
+	public IntStream stream(int startExclusive, int endInclusive, IntPredicate filter){
+		return StreamSupport.intStream(new PrimesSieveSpliterator(this, startExclusive, endInclusive, filter), true);
 	}
 }
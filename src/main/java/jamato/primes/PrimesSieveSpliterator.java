@@ -1,49 +1,59 @@
 package jamato.primes;
 
+import java.util.Objects;
 import java.util.Spliterator;
-import java.util.Spliterators;
 import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
 
 /**
  * A Spliterator for candidate numbers returned by a prime sieve.
+ * <p>
+ * The spliterator splits its range on multiples of the sieve size, so that each part contains whole periods of the
+ * sieve, and the number of candidates in each part is known exactly. Optionally, the candidates are filtered by a
+ * primality test while they are traversed, so that the test runs in the parallel leaf tasks. The size of a filtering
+ * spliterator is only an upper bound.
  *
  * @author JSiebel
  *
  */
-final class PrimesSieveSpliterator extends Spliterators.AbstractIntSpliterator{
+final class PrimesSieveSpliterator implements Spliterator.OfInt{
 	
 	/** The prime sieve that defines the next element */
-	private PrimesSieve primeSieve;
+	private final PrimesSieve primeSieve;
 	
-	/** The previously returned value, all upcoming values are strictly greater than this. */
-	private int currentValue;
+	/** The test that candidates have to pass to be returned, or <code>null</code> to return all candidates. */
+	private final IntPredicate filter;
+	
+	/** The previously checked value, all upcoming values are strictly greater than this. */
+	private long currentValue;
 	
 	/** The upper search limit, inclusive. */
-	private int upperBound;
+	private final long upperBound;
 	
 	/**
 	 * Creates a Spliterator for the given prime sieve which processes all candidates in the given range.
 	 *
 	 * @param primeSieve a prime sieve
-	 * @param startExclusive the start value (exclusive), must not be negative
+	 * @param startExclusive the start value (exclusive), must be greater than all sieve primes
 	 * @param endInclusive the upper bound of the range, inclusive
+	 * @param filter the test that candidates have to pass to be returned, or <code>null</code> to return all
+	 * candidates
 	 */
-	PrimesSieveSpliterator(PrimesSieve primeSieve, int startExclusive, int endInclusive){
-		super((long) (endInclusive - startExclusive) * primeSieve.numberOfCandidates / primeSieve.size,
-				Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+	PrimesSieveSpliterator(PrimesSieve primeSieve, long startExclusive, long endInclusive, IntPredicate filter){
 		this.primeSieve = primeSieve;
+		this.filter = filter;
 		this.currentValue = startExclusive;
 		this.upperBound = endInclusive;
 	}
 	
 	@Override
 	public OfInt trySplit(){
-		if (primeSieve.getNextCandidate(currentValue) < upperBound){
-			int splitPoint = (currentValue + upperBound) >>> 1;
-			PrimesSieveSpliterator primesSieveSpliterator = new PrimesSieveSpliterator(primeSieve, currentValue,
-					splitPoint);
+		int period = primeSieve.size;
+		long splitPoint = (currentValue + upperBound) / 2 / period * period;
+		if (splitPoint > currentValue && splitPoint < upperBound){
+			PrimesSieveSpliterator prefix = new PrimesSieveSpliterator(primeSieve, currentValue, splitPoint, filter);
 			currentValue = splitPoint;
-			return primesSieveSpliterator;
+			return prefix;
 		}else{
 			return null;
 		}
@@ -51,13 +61,46 @@ final class PrimesSieveSpliterator extends Spliterators.AbstractIntSpliterator{
 	
 	@Override
 	public boolean tryAdvance(IntConsumer action){
-		int nextCandidate = primeSieve.getNextCandidate(currentValue);
-		if (Integer.compareUnsigned(nextCandidate, upperBound) <= 0){
-			action.accept(nextCandidate);
+		Objects.requireNonNull(action);
+		while (currentValue < upperBound){
+			long nextCandidate = primeSieve.getNextCandidate(currentValue);
+			if (nextCandidate > upperBound){
+				currentValue = upperBound;
+				return false;
+			}
 			currentValue = nextCandidate;
-			return true;
-		}else{
-			return false;
+			if (filter == null || filter.test((int) nextCandidate)){
+				action.accept((int) nextCandidate);
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	@Override
+	public void forEachRemaining(IntConsumer action){
+		Objects.requireNonNull(action);
+		long candidate = primeSieve.getNextCandidate(currentValue);
+		while (candidate <= upperBound){
+			if (filter == null || filter.test((int) candidate)){
+				action.accept((int) candidate);
+			}
+			candidate = primeSieve.getNextCandidate(candidate);
+		}
+		currentValue = upperBound;
+	}
+	
+	@Override
+	public long estimateSize(){
+		return primeSieve.countCandidates(currentValue, upperBound);
+	}
+	
+	@Override
+	public int characteristics(){
+		int characteristics = Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+		if (filter == null){
+			characteristics |= Spliterator.SIZED | Spliterator.SUBSIZED;
 		}
+		return characteristics;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,235 @@
+package jamato.primes;
+
+import java.util.Arrays;
+
+/**
+ * A segmented sieve of Eratosthenes for the int range. Each segment stores one byte per odd number and is small enough
+ * to stay in the L1 data cache while it is sieved. Multiples of the wheel primes 3 to 13 are not crossed off one by
+ * one; instead, a pre-sieved pattern is copied into the segment.
+ *
+ * @author JSiebel
+ *
+ */
+final class SegmentedSieve{
+	
+	/** The number of bytes in a segment. Each byte represents an odd number. */
+	static final int SEGMENT_BYTES = 1 << 15;
+	
+	/** The length of the range of numbers that a segment covers. */
+	static final int SEGMENT_LENGTH = 2 * SEGMENT_BYTES;
+	
+	/** The (exclusive) upper limit for sieved numbers, <code>2^31</code>. */
+	static final long LIMIT = 1L << 31;
+	
+	/**
+	 * The ratio of the square root of a window's upper bound to the least window length for which sieving the window is
+	 * faster than testing each candidate in it. Sieving takes a constant time for each base prime up to the root.
+	 */
+	private static final int ROOT_TO_MIN_WINDOW_LENGTH_RATIO = 128;
+	
+	/** The least length of a sieved window. The window starting at 0 has to be longer than 2 to contain the prime 2. */
+	private static final int MIN_WINDOW_LENGTH = 64;
+	
+	/** The primes used for pre-sieving. */
+	private static final int[] WHEEL_PRIMES = { 3, 5, 7, 11, 13 };
+	
+	/** The number of bytes after which the pre-sieved pattern repeats, <code>3 * 5 * 7 * 11 * 13</code>. */
+	private static final int PATTERN_LENGTH = 15015;
+	
+	/**
+	 * The pre-sieved pattern. The byte at index <code>i</code> is <code>1</code> if <code>2*i+1</code> is divisible by
+	 * one of the wheel primes.
+	 */
+	private static final byte[] PATTERN = new byte[PATTERN_LENGTH];
+	
+	/** The odd primes greater than the wheel primes whose squares are less than {@link #LIMIT}, in ascending order. */
+	private static final int[] BASE_PRIMES;
+	
+	static{
+		for (int p : WHEEL_PRIMES){
+			for (int i = p >>> 1; i < PATTERN_LENGTH; i += p){
+				PATTERN[i] = 1;
+			}
+		}
+		
+		int sqrtLimit = (int) Math.sqrt(LIMIT);
+		boolean[] composite = new boolean[sqrtLimit + 1];
+		int[] primes = new int[sqrtLimit];
+		int count = 0;
+		for (int n = 3; n <= sqrtLimit; n += 2){
+			if (!composite[n]){
+				if (n > WHEEL_PRIMES[WHEEL_PRIMES.length - 1]){
+					primes[count++] = n;
+				}
+				for (int m = n * n; m <= sqrtLimit; m += 2 * n){
+					composite[m] = true;
+				}
+			}
+		}
+		BASE_PRIMES = Arrays.copyOf(primes, count);
+	}
+	
+	/**
+	 * The segment. The byte at index <code>i</code> is <code>0</code> if <code>low+2*i+1</code> is prime. The array is
+	 * replaced by a bigger one when a longer range is sieved, so that sieving short ranges stays cheap.
+	 */
+	private byte[] composite = new byte[0];
+	
+	/** The lower bound of the current segment, inclusive. */
+	private long low;
+	
+	/** The upper bound of the current segment, exclusive. */
+	private long high;
+	
+	/** The number of bytes used by the current segment. */
+	private int length;
+	
+	/**
+	 * Sieves the numbers in the given range. The range must not be longer than {@link #SEGMENT_LENGTH}.
+	 *
+	 * @param low the lower bound, inclusive; must be even and not negative
+	 * @param high the upper bound, exclusive; must not exceed {@link #LIMIT}
+	 */
+	void sieve(long low, long high){
+		this.low = low;
+		this.high = high;
+		this.length = (int) ((high - low) >>> 1);
+		if (length > composite.length){
+			composite = new byte[length];
+		}
+		
+		int offset = (int) ((low >>> 1) % PATTERN_LENGTH);
+		for (int i = 0; i < length;){
+			int chunk = Math.min(PATTERN_LENGTH - offset, length - i);
+			System.arraycopy(PATTERN, offset, composite, i, chunk);
+			i += chunk;
+			offset = 0;
+		}
+		if (low == 0){
+			// 1 is not prime
+			composite[0] = 1;
+		}
+		for (int p : WHEEL_PRIMES){
+			// The wheel primes are prime, although the pattern marks them
+			if (p >= low && p < high){
+				composite[(int) ((p - low) >>> 1)] = 0;
+			}
+		}
+		
+		for (int p : BASE_PRIMES){
+			long square = (long) p * p;
+			if (square >= high){
+				break;
+			}
+			long multiple = Math.max(square, (low + p - 1) / p * p);
+			if ((multiple & 1) == 0){
+				multiple += p;
+			}
+			for (int i = (int) ((multiple - low) >>> 1); i < length; i += p){
+				composite[i] = 1;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the least length of a window ending at the given upper bound for which sieving the window is faster than
+	 * testing each candidate in it.
+	 *
+	 * @param upperBound the upper bound of the window, exclusive; must not exceed {@link #LIMIT}
+	 * @return the least window length, an even number
+	 */
+	static int minWindowLength(long upperBound){
+		return ((int) Math.sqrt(upperBound) / ROOT_TO_MIN_WINDOW_LENGTH_RATIO & -2) + MIN_WINDOW_LENGTH;
+	}
+	
+	/**
+	 * Sieves the given range one segment after the other, and returns its primes.
+	 *
+	 * @param lowerBound the lower bound, inclusive; must not be negative
+	 * @param upperBound the upper bound, exclusive; must not exceed {@link #LIMIT}
+	 * @return the primes in the range, in ascending order
+	 */
+	static int[] primes(long lowerBound, long upperBound){
+		SegmentedSieve sieve = new SegmentedSieve();
+		// The array is sized by the prime number theorem with some margin, and grows if the range contains more primes.
+		int[] primes = new int[(int) (1.1 * (upperBound - lowerBound) / Math.log(Math.max(upperBound, 3))) + 1];
+		int count = 0;
+		for (long low = alignLowerBound(lowerBound); low < upperBound; low += SEGMENT_LENGTH){
+			long end = Math.min(low + SEGMENT_LENGTH, upperBound);
+			// The segment contains at most one prime per odd number, and the prime 2.
+			int maxCount = count + (int) ((end - low) / 2) + 1;
+			if (maxCount > primes.length){
+				primes = Arrays.copyOf(primes, Math.max(2 * primes.length, maxCount));
+			}
+			sieve.sieve(low, end);
+			count = sieve.copyPrimes(primes, count);
+		}
+		return count == primes.length ? primes : Arrays.copyOf(primes, count);
+	}
+	
+	/**
+	 * Sieves the given range one segment after the other, and sets the bits of its primes in the given bit mask.
+	 *
+	 * @param lowerBound the lower bound, inclusive; must not be negative
+	 * @param upperBound the upper bound, exclusive; must not exceed {@link #LIMIT}
+	 * @param origin the number represented by the first bit of the bit mask, must not be greater than the lower bound
+	 * @param bitmask the bit mask; bit <code>i % 64</code> of <code>bitmask[i / 64]</code> represents the number
+	 * <code>origin + i</code>. It must be long enough for all numbers of the range.
+	 */
+	static void setPrimeBits(long lowerBound, long upperBound, long origin, long[] bitmask){
+		SegmentedSieve sieve = new SegmentedSieve();
+		for (long low = alignLowerBound(lowerBound); low < upperBound; low += SEGMENT_LENGTH){
+			sieve.sieve(low, Math.min(low + SEGMENT_LENGTH, upperBound));
+			sieve.setPrimeBits(origin, bitmask);
+		}
+	}
+	
+	/**
+	 * Returns the lower bound of a sieved range so that the range contains exactly the primes greater than or equal to
+	 * the given number. Sieved ranges start at even numbers, and the prime 2 is only found in ranges starting at 0.
+	 *
+	 * @param lowerBound a number, must not be negative
+	 * @return the lower bound of the sieved range, an even number
+	 */
+	static long alignLowerBound(long lowerBound){
+		return lowerBound <= 2 ? 0 : lowerBound & -2L;
+	}
+	
+	/**
+	 * Writes the primes of the current segment into the given array, in ascending order.
+	 *
+	 * @param target the target array, must have enough space
+	 * @param offset the index of the first prime in the target array
+	 * @return the index after the last written prime
+	 */
+	int copyPrimes(int[] target, int offset){
+		if (low == 0 && high > 2){
+			target[offset++] = 2;
+		}
+		for (int i = 0; i < length; i++){
+			if (composite[i] == 0){
+				target[offset++] = (int) (low + 2 * i + 1);
+			}
+		}
+		return offset;
+	}
+	
+	/**
+	 * Sets the bits of the primes of the current segment in the given bit mask.
+	 *
+	 * @param origin the number represented by the first bit of the bit mask, must not be greater than the first prime
+	 * of the segment
+	 * @param bitmask the bit mask, see {@link #setPrimeBits(long, long, long, long[])}
+	 */
+	void setPrimeBits(long origin, long[] bitmask){
+		if (low == 0 && high > 2){
+			bitmask[(int) ((2 - origin) >>> 6)] |= 1L << (2 - origin);
+		}
+		for (int i = 0; i < length; i++){
+			if (composite[i] == 0){
+				long bit = low + 2 * i + 1 - origin;
+				bitmask[(int) (bit >>> 6)] |= 1L << bit;
+			}
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package jamato.primes;
+
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+/**
+ * A Spliterator for the primes in a range, which are found by sieving one window of the range after the other with a
+ * {@link SegmentedSieve}. The spliterator splits its range on multiples of the segment length.
+ * <p>
+ * Bulk traversal sieves whole segments. Single elements may be requested lazily though, so
+ * {@link #tryAdvance(IntConsumer)} starts with the shortest window for which sieving is faster than testing each
+ * candidate, and doubles the window length up to the segment length.
+ *
+ * @author JSiebel
+ *
+ */
+final class SegmentedSieveSpliterator implements Spliterator.OfInt{
+	
+	/** The sieve, or <code>null</code> if no window has been sieved yet. */
+	private SegmentedSieve sieve;
+	
+	/**
+	 * The primes of the last sieved window, or <code>null</code> if no window has been sieved yet. The array is
+	 * replaced by a bigger one when the window grows.
+	 */
+	private int[] primes;
+	
+	/** The index of the next prime returned from {@link #primes}. */
+	private int nextIndex;
+	
+	/** The number of primes in {@link #primes}. */
+	private int primeCount;
+	
+	/** The lower bound of the next window, inclusive. It is always even. */
+	private long low;
+	
+	/** The upper bound of the range, exclusive. */
+	private final long high;
+	
+	/** The length of the next window sieved by {@link #tryAdvance(IntConsumer)}. */
+	private int windowLength;
+	
+	/**
+	 * Creates a Spliterator for the primes in the given range.
+	 *
+	 * @param lowerBound the lower bound, inclusive; must not be negative
+	 * @param upperBound the upper bound, exclusive; must not be less than the lower bound, and must not exceed
+	 * {@link SegmentedSieve#LIMIT}
+	 */
+	SegmentedSieveSpliterator(long lowerBound, long upperBound){
+		this(SegmentedSieve.alignLowerBound(lowerBound), upperBound, SegmentedSieve.minWindowLength(upperBound));
+	}
+	
+	/**
+	 * Creates a Spliterator for the primes in the given sieved range.
+	 *
+	 * @param low the lower bound of the sieved range, must be even
+	 * @param high the upper bound, exclusive
+	 * @param windowLength the length of the first window sieved by {@link #tryAdvance(IntConsumer)}, must be even
+	 */
+	private SegmentedSieveSpliterator(long low, long high, int windowLength){
+		this.low = low;
+		this.high = high;
+		this.windowLength = windowLength;
+	}
+	
+	@Override
+	public OfInt trySplit(){
+		if (nextIndex < primeCount){
+			// The sieved primes precede the remaining range.
+			return null;
+		}
+		long splitPoint = (low + high) / 2 & -(long) SegmentedSieve.SEGMENT_LENGTH;
+		if (splitPoint > low && splitPoint < high){
+			SegmentedSieveSpliterator prefix = new SegmentedSieveSpliterator(low, splitPoint, windowLength);
+			low = splitPoint;
+			return prefix;
+		}else{
+			return null;
+		}
+	}
+	
+	@Override
+	public boolean tryAdvance(IntConsumer action){
+		Objects.requireNonNull(action);
+		while (nextIndex == primeCount){
+			if (low >= high){
+				return false;
+			}
+			sieveNextWindow(windowLength);
+			windowLength = Math.min(2 * windowLength, SegmentedSieve.SEGMENT_LENGTH);
+		}
+		action.accept(primes[nextIndex++]);
+		return true;
+	}
+	
+	@Override
+	public void forEachRemaining(IntConsumer action){
+		Objects.requireNonNull(action);
+		while (true){
+			while (nextIndex < primeCount){
+				action.accept(primes[nextIndex++]);
+			}
+			if (low >= high){
+				return;
+			}
+			sieveNextWindow(SegmentedSieve.SEGMENT_LENGTH);
+		}
+	}
+	
+	/**
+	 * Sieves the window starting at {@link #low} and stores its primes.
+	 *
+	 * @param length the length of the window, must be even and not greater than the segment length
+	 */
+	private void sieveNextWindow(int length){
+		if (sieve == null){
+			sieve = new SegmentedSieve();
+		}
+		if (primes == null || primes.length < length / 2 + 1){
+			// The window contains at most one prime per odd number, and the prime 2.
+			primes = new int[length / 2 + 1];
+		}
+		long end = Math.min(low + length, high);
+		sieve.sieve(low, end);
+		primeCount = sieve.copyPrimes(primes, 0);
+		nextIndex = 0;
+		low = end;
+	}
+	
+	@Override
+	public long estimateSize(){
+		long remaining = Math.max(high - low, 0);
+		return primeCount - nextIndex + (long) (remaining / Math.log(Math.max(high, 3)));
+	}
+	
+	@Override
+	public int characteristics(){
+		return Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,91 @@
+package jamato.primes;
+
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * An iterator that yields all positive divisors of a number in ascending order, given its prime factorization. It
+ * works like the {@link SortedDivisorIterator}.
+ *
+ * @author JSiebel
+ *
+ */
+class SortedBigDivisorIterator implements Iterator<BigInteger>{
+	
+	/**
+	 * A divisor in the heap.
+	 */
+	private static final class Entry implements Comparable<Entry>{
+		
+		/** The divisor. */
+		final BigInteger divisor;
+		
+		/** The index of the greatest prime factor of the divisor. */
+		final int index;
+		
+		/** The exponent of the greatest prime factor of the divisor. */
+		final int exponent;
+		
+		/**
+		 * Creates a new instance.
+		 *
+		 * @param divisor the divisor
+		 * @param index the index of the greatest prime factor of the divisor
+		 * @param exponent the exponent of the greatest prime factor of the divisor
+		 */
+		Entry(BigInteger divisor, int index, int exponent){
+			this.divisor = divisor;
+			this.index = index;
+			this.exponent = exponent;
+		}
+		
+		@Override
+		public int compareTo(Entry other){
+			return divisor.compareTo(other.divisor);
+		}
+	}
+	
+	/** The distinct prime factors. */
+	private final BigInteger[] primes;
+	
+	/** The exponents of the prime factors. */
+	private final int[] exponents;
+	
+	/** The divisors whose parents have been returned. */
+	private final PriorityQueue<Entry> heap = new PriorityQueue<>();
+	
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param primes the distinct prime factors of the number
+	 * @param exponents the exponents of the prime factors
+	 */
+	SortedBigDivisorIterator(BigInteger[] primes, int[] exponents){
+		this.primes = primes;
+		this.exponents = exponents;
+		// 1 is treated like a divisor whose greatest prime is the first one, with exponent 0.
+		heap.add(new Entry(BigInteger.ONE, 0, 0));
+	}
+	
+	@Override
+	public boolean hasNext(){
+		return !heap.isEmpty();
+	}
+	
+	@Override
+	public BigInteger next(){
+		Entry entry = heap.poll();
+		if (entry == null){
+			throw new NoSuchElementException();
+		}
+		if (entry.index < primes.length && entry.exponent < exponents[entry.index]){
+			heap.add(new Entry(entry.divisor.multiply(primes[entry.index]), entry.index, entry.exponent + 1));
+		}
+		for (int i = entry.index + 1; i < primes.length; i++){
+			heap.add(new Entry(entry.divisor.multiply(primes[i]), i, 1));
+		}
+		return entry.divisor;
+	}
+}
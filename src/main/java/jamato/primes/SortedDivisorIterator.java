@@ -0,0 +1,133 @@
+package jamato.primes;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * An iterator that yields all positive divisors of a number in ascending order, given its prime factorization.
+ * <p>
+ * Each divisor <code>d > 1</code> has a unique parent <code>d / p</code>, where <code>p</code> is the greatest prime
+ * factor of <code>d</code>. The divisors are kept in a min-heap, which initially contains 1. Whenever the least divisor
+ * is removed from the heap, its children are added, i.e. the divisor multiplied with its greatest prime factor or a
+ * greater one. Since children are greater than their parent, the divisors are removed in ascending order.
+ *
+ * @author JSiebel
+ *
+ */
+class SortedDivisorIterator implements PrimitiveIterator.OfLong{
+	
+	/** The number of bits in a heap state for the exponent. */
+	private static final int EXPONENT_BITS = 8;
+	
+	/** The distinct prime factors. */
+	private final long[] primes;
+	
+	/** The exponents of the prime factors. */
+	private final int[] exponents;
+	
+	/** The divisors in the heap. */
+	private long[] heap = new long[16];
+	
+	/**
+	 * The index of the greatest prime factor of each divisor in the heap (in the upper bits), and its exponent (in the
+	 * lower {@link #EXPONENT_BITS} bits).
+	 */
+	private int[] states = new int[16];
+	
+	/** The number of divisors in the heap. */
+	private int size;
+	
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param primes the distinct prime factors of the number
+	 * @param exponents the exponents of the prime factors
+	 */
+	SortedDivisorIterator(long[] primes, int[] exponents){
+		this.primes = primes;
+		this.exponents = exponents;
+		// 1 is treated like a divisor whose greatest prime is the first one, with exponent 0.
+		push(1, 0);
+	}
+	
+	@Override
+	public boolean hasNext(){
+		return size > 0;
+	}
+	
+	@Override
+	public long nextLong(){
+		if (size == 0){
+			throw new NoSuchElementException();
+		}
+		long result = heap[0];
+		int state = states[0];
+		size--;
+		if (size > 0){
+			siftDown(heap[size], states[size]);
+		}
+		
+		int index = state >>> EXPONENT_BITS;
+		int exponent = state & ((1 << EXPONENT_BITS) - 1);
+		if (index < primes.length && exponent < exponents[index]){
+			push(result * primes[index], index << EXPONENT_BITS | exponent + 1);
+		}
+		for (int i = index + 1; i < primes.length; i++){
+			push(result * primes[i], i << EXPONENT_BITS | 1);
+		}
+		return result;
+	}
+	
+	/**
+	 * Adds a divisor to the heap.
+	 *
+	 * @param divisor the divisor
+	 * @param state the index and exponent of its greatest prime factor
+	 */
+	private void push(long divisor, int state){
+		if (size == heap.length){
+			heap = Arrays.copyOf(heap, 2 * size);
+			states = Arrays.copyOf(states, 2 * size);
+		}
+		int i = size++;
+		while (i > 0){
+			int parent = (i - 1) >>> 1;
+			if (heap[parent] <= divisor){
+				break;
+			}
+			heap[i] = heap[parent];
+			states[i] = states[parent];
+			i = parent;
+		}
+		heap[i] = divisor;
+		states[i] = state;
+	}
+	
+	/**
+	 * Inserts a divisor at the root of the heap, and moves it down to restore the heap order.
+	 *
+	 * @param divisor the divisor
+	 * @param state the index and exponent of its greatest prime factor
+	 */
+	private void siftDown(long divisor, int state){
+		int i = 0;
+		while (true){
+			int child = 2 * i + 1;
+			if (child >= size){
+				break;
+			}
+			if (child + 1 < size && heap[child + 1] < heap[child]){
+				child++;
+			}
+			if (divisor <= heap[child]){
+				break;
+			}
+			heap[i] = heap[child];
+			states[i] = states[child];
+			i = child;
+		}
+		heap[i] = divisor;
+		states[i] = state;
+	}
+}
@@ -0,0 +1,99 @@
+package jamato.primes;
+
+/**
+ * Divisibility tests by the primes less than <code>2^16</code> without divisions. If <code>p'</code> is the inverse of
+ * an odd prime <code>p</code> modulo <code>2^32</code>, then an unsigned int <code>n</code> is divisible by
+ * <code>p</code> if and only if <code>n * p' mod 2^32 ≤ (2^32-1) / p</code>, and the product is then the quotient
+ * <code>n / p</code>. The same holds for longs modulo <code>2^64</code>. The inverses and limits are precomputed, so
+ * that each test is a multiplication and a comparison.
+ * <p>
+ * The tables cover all primes up to the square root of {@link Integer#MAX_VALUE}, so they suffice for the trial
+ * division of any int. The prime 2 has no inverse; it is handled with bit operations by the callers.
+ *
+ * @author JSiebel
+ * @see "Torbjörn Granlund and Peter L. Montgomery: Division by Invariant Integers using Multiplication"
+ *
+ */
+final class TrialDivision{
+	
+	/** The upper bound of the primes in the tables, exclusive. */
+	static final int LIMIT = 1 << 16;
+	
+	/**
+	 * The primes less than {@link #LIMIT}, in ascending order. The index of a prime in this array is used to select its
+	 * inverse and limit; the tests must not be used with index 0, the prime 2.
+	 */
+	static final int[] PRIMES = Primes.array(0, Primes.count(LIMIT));
+	
+	/** The inverse of each prime modulo <code>2^32</code>. */
+	private static final int[] INT_INVERSES = new int[PRIMES.length];
+	
+	/** The greatest unsigned int multiple of each prime, divided by the prime. */
+	private static final int[] INT_LIMITS = new int[PRIMES.length];
+	
+	/** The inverse of each prime modulo <code>2^64</code>. */
+	private static final long[] LONG_INVERSES = new long[PRIMES.length];
+	
+	/** The greatest unsigned long multiple of each prime, divided by the prime. */
+	private static final long[] LONG_LIMITS = new long[PRIMES.length];
+	
+	static{
+		for (int i = 1; i < PRIMES.length; i++){
+			int p = PRIMES[i];
+			INT_INVERSES[i] = IntMontgomery.inverse(p);
+			INT_LIMITS[i] = Integer.divideUnsigned(-1, p);
+			// Newton's iteration extends the inverse modulo 2^32 to an inverse modulo 2^64.
+			long inverse = INT_INVERSES[i];
+			LONG_INVERSES[i] = inverse * (2 - p * inverse);
+			LONG_LIMITS[i] = Long.divideUnsigned(-1L, p);
+		}
+	}
+	
+	private TrialDivision(){
+		// no instances
+	}
+	
+	/**
+	 * Checks if an unsigned int is divisible by the prime with the given index.
+	 *
+	 * @param index the index of the prime in {@link #PRIMES}, at least 1
+	 * @param number the number, as an unsigned int
+	 * @return <code>true</code> if the number is divisible by the prime
+	 */
+	static boolean divides(int index, int number){
+		return Integer.compareUnsigned(number * INT_INVERSES[index], INT_LIMITS[index]) <= 0;
+	}
+	
+	/**
+	 * Divides an unsigned int by the prime with the given index. The number must be divisible by the prime.
+	 *
+	 * @param index the index of the prime in {@link #PRIMES}, at least 1
+	 * @param number the number, as an unsigned int
+	 * @return the quotient
+	 */
+	static int divide(int index, int number){
+		return number * INT_INVERSES[index];
+	}
+	
+	/**
+	 * Checks if an unsigned long is divisible by the prime with the given index.
+	 *
+	 * @param index the index of the prime in {@link #PRIMES}, at least 1
+	 * @param number the number, as an unsigned long
+	 * @return <code>true</code> if the number is divisible by the prime
+	 */
+	static boolean divides(int index, long number){
+		return Long.compareUnsigned(number * LONG_INVERSES[index], LONG_LIMITS[index]) <= 0;
+	}
+	
+	/**
+	 * Divides an unsigned long by the prime with the given index. The number must be divisible by the prime.
+	 *
+	 * @param index the index of the prime in {@link #PRIMES}, at least 1
+	 * @param number the number, as an unsigned long
+	 * @return the quotient
+	 */
+	static long divide(int index, long number){
+		return number * LONG_INVERSES[index];
+	}
+}
@@ -0,0 +1,65 @@
+package jamato.primes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+import java.math.BigInteger;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/** Tests the {@link BailliePSWTest} class. */
+class BailliePSWTestTest{
+	
+	@ParameterizedTest
+	@MethodSource
+	void test(BigInteger n, boolean expectedResult){
+		boolean actualResult = BailliePSWTest.test(n);
+		assertEquals(expectedResult, actualResult);
+	}
+	
+	static Stream<Arguments> test(){
+		BigInteger two = BigInteger.valueOf(2);
+		return Stream.of(
+				arguments(BigInteger.valueOf(-7), false),
+				arguments(BigInteger.ONE, false),
+				arguments(two, true),
+				arguments(BigInteger.valueOf(2047), false), // Smallest strong pseudoprime to base 2
+				arguments(BigInteger.valueOf(5459), false), // Smallest strong Lucas pseudoprime
+				arguments(BigInteger.valueOf(Primes.GREATEST_LONG_PRIME), true),
+				arguments(BigInteger.valueOf(3825123056546413051L), false),
+				arguments(two.pow(127).subtract(BigInteger.ONE), true),
+				arguments(two.pow(521).subtract(BigInteger.ONE), true),
+				arguments(two.pow(61).subtract(BigInteger.ONE).multiply(two.pow(89).subtract(BigInteger.ONE)), false),
+				arguments(two.pow(89).subtract(BigInteger.ONE).pow(2), false));
+	}
+	
+	@Test
+	void testSmallNumbers(){
+		for (int n = -10; n < 20_000; n++){
+			BigInteger number = BigInteger.valueOf(n);
+			assertEquals(Primes.isPrime(n), BailliePSWTest.test(number), number.toString());
+		}
+	}
+	
+	@ParameterizedTest
+	@ValueSource(ints = { 5459, 5777, 10877, 16109, 18971, 22499, 24569, 25199, 40309, 58519 })
+	void testStrongLucasPseudoprimes(int n){
+		// given
+		BigInteger number = BigInteger.valueOf(n);
+		
+		// when
+		boolean lucasResult = BailliePSWTest.strongLucasTest(number);
+		boolean result = BailliePSWTest.test(number);
+		
+		// then
+		assertTrue(lucasResult);
+		assertFalse(result);
+	}
+}
@@ -0,0 +1,110 @@
+package jamato.primes;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/** Tests the {@link BigFactorization} class. */
+class BigFactorizationTest{
+	
+	@ParameterizedTest
+	@MethodSource
+	void testOf(BigInteger number, String expected){
+		assertEquals(expected, BigFactorization.of(number).toString());
+	}
+	
+	static Stream<Arguments> testOf(){
+		BigInteger two = BigInteger.valueOf(2);
+		BigInteger mersenne89 = two.pow(89).subtract(BigInteger.ONE);
+		return Stream.of(
+				arguments(BigInteger.ONE, "1"),
+				arguments(BigInteger.valueOf(360), "2^3 * 3^2 * 5"),
+				arguments(BigInteger.valueOf(Long.MAX_VALUE), "7^2 * 73 * 127 * 337 * 92737 * 649657"),
+				arguments(two.pow(100), "2^100"),
+				arguments(two.pow(70).multiply(BigInteger.valueOf(Long.MAX_VALUE)),
+						"2^70 * 7^2 * 73 * 127 * 337 * 92737 * 649657"),
+				arguments(two.pow(67).subtract(BigInteger.ONE), "193707721 * 761838257287"),
+				arguments(mersenne89, mersenne89.toString()),
+				arguments(mersenne89.multiply(BigInteger.valueOf(1000000007).pow(2)).multiply(BigInteger.valueOf(12)),
+						"2^2 * 3 * 1000000007^2 * " + mersenne89));
+	}
+	
+	@Test
+	void testProductsOfRandomPrimes(){
+		Random random = new Random(42);
+		for (int i = 0; i < 20; i++){
+			// given
+			BigInteger[] primes = new BigInteger[3];
+			BigInteger number = BigInteger.ONE;
+			for (int j = 0; j < primes.length; j++){
+				primes[j] = BigInteger.probablePrime(20 + 5 * j, random);
+				number = number.multiply(primes[j]);
+			}
+			
+			// when
+			BigFactorization factorization = BigFactorization.of(number);
+			
+			// then
+			assertArrayEquals(primes, factorization.getPrimes());
+			assertArrayEquals(new int[]{ 1, 1, 1 }, factorization.getExponents());
+			assertEquals(number, factorization.getNumber());
+		}
+	}
+	
+	@Test
+	void testDivisors(){
+		// given
+		BigInteger number = BigInteger.valueOf(2).pow(70).multiply(BigInteger.valueOf(3 * 3 * 1000000007L));
+		BigFactorization factorization = BigFactorization.of(number);
+		
+		// when
+		List<BigInteger> divisors = factorization.divisors().collect(Collectors.toList());
+		List<BigInteger> sortedDivisors = factorization.sortedDivisors().collect(Collectors.toList());
+		
+		// then
+		assertEquals(BigInteger.valueOf(71 * 3 * 2), factorization.divisorCount());
+		assertEquals(factorization.divisorCount().intValue(), divisors.size());
+		assertEquals(divisors.stream().reduce(BigInteger.ZERO, BigInteger::add), factorization.divisorSum());
+		for (BigInteger divisor : divisors){
+			assertEquals(BigInteger.ZERO, number.mod(divisor));
+		}
+		List<BigInteger> expected = new ArrayList<>(divisors);
+		Collections.sort(expected);
+		assertEquals(expected, sortedDivisors);
+	}
+	
+	@Test
+	void testDivisorCountWithoutEnumeration(){
+		// given
+		BigInteger primorial = BigInteger.ONE;
+		for (int p : Primes.array(0, 100)){
+			primorial = primorial.multiply(BigInteger.valueOf(p));
+		}
+		
+		// when
+		BigFactorization factorization = BigFactorization.of(primorial);
+		
+		// then
+		assertEquals(BigInteger.ONE.shiftLeft(100), factorization.divisorCount());
+		assertEquals(BigInteger.ONE, factorization.sortedDivisors().findFirst().get());
+	}
+	
+	@Test
+	void testOfNonPositive(){
+		assertThrows(IllegalArgumentException.class, () -> BigFactorization.of(BigInteger.ZERO));
+	}
+}
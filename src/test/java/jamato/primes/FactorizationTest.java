@@ -0,0 +1,146 @@
+package jamato.primes;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/** Tests the {@link Factorization} class. */
+class FactorizationTest{
+	
+	@ParameterizedTest
+	@MethodSource
+	void testOf(long number, String expected){
+		assertEquals(expected, Factorization.of(number).toString());
+	}
+	
+	static Stream<Arguments> testOf(){
+		return Stream.of(
+				arguments(1L, "1"),
+				arguments(2L, "2"),
+				arguments(360L, "2^3 * 3^2 * 5"),
+				arguments(600851475143L, "71 * 839 * 1471 * 6857"),
+				arguments(1L << 62, "2^62"),
+				arguments(Long.MAX_VALUE, "7^2 * 73 * 127 * 337 * 92737 * 649657"),
+				arguments(Primes.GREATEST_LONG_PRIME, "9223372036854775783"),
+				arguments(3825123056546413051L, "149491 * 747451 * 34233211"),
+				arguments(1000000014000000049L, "1000000007^2"),
+				arguments(4611685975477714963L, "2147483629 * 2147483647"),
+				arguments(4294967321064771037L, "1000000007 * 4294967291"));
+	}
+	
+	@Test
+	void testRandomNumbers(){
+		Random random = new Random(42);
+		for (int i = 0; i < 1000; i++){
+			// given
+			long number = random.nextLong() >>> 1 + random.nextInt(Long.SIZE - 1);
+			if (number == 0){
+				continue;
+			}
+			
+			// when
+			Factorization factorization = Factorization.of(number);
+			
+			// then
+			long product = 1;
+			for (int j = 0; j < factorization.size(); j++){
+				long p = factorization.getPrime(j);
+				assertTrue(Primes.isPrime(p), p + " in " + number);
+				assertTrue(j == 0 || factorization.getPrime(j - 1) < p);
+				for (int e = 0; e < factorization.getExponent(j); e++){
+					product *= p;
+				}
+			}
+			assertEquals(number, product);
+			assertEquals(number, factorization.getNumber());
+		}
+	}
+	
+	@Test
+	void testSemiprimes(){
+		Random random = new Random(42);
+		for (int i = 0; i < 100; i++){
+			// given
+			long p = Primes.nextPrime(1L << 30 | random.nextInt(1 << 30));
+			long q = Primes.nextPrime(1L << 31 | random.nextInt(1 << 30));
+			
+			// when
+			Factorization factorization = Factorization.of(p * q);
+			
+			// then
+			assertEquals(2, factorization.size());
+			assertEquals(p, factorization.getPrime(0));
+			assertEquals(q, factorization.getPrime(1));
+		}
+	}
+	
+	@ParameterizedTest
+	@MethodSource
+	void testDivisorCountAndSum(long number, int expectedCount, long expectedSum){
+		// when
+		Factorization factorization = Factorization.of(number);
+		
+		// then
+		assertEquals(expectedCount, factorization.divisorCount());
+		assertEquals(expectedSum, factorization.divisorSum());
+	}
+	
+	static Stream<Arguments> testDivisorCountAndSum(){
+		return Stream.of(
+				arguments(1L, 1, 1L),
+				arguments(12L, 6, 28L),
+				arguments(1L << 62, 63, Long.MAX_VALUE),
+				arguments(963761198400L, 6720, 5531765944320L),
+				arguments(Primes.GREATEST_LONG_PRIME, 2, Primes.GREATEST_LONG_PRIME + 1));
+	}
+	
+	@Test
+	void testDivisorSumOverflow(){
+		Factorization factorization = Factorization.of(3L << 61);
+		assertThrows(ArithmeticException.class, factorization::divisorSum);
+	}
+	
+	@ParameterizedTest
+	@ValueSource(longs = { 1, 2, 12, 360, 720720, 963761198400L, 1L << 62, 4611685975477714963L })
+	void testDivisors(long number){
+		// given
+		Factorization factorization = Factorization.of(number);
+		
+		// when
+		long[] divisors = factorization.divisors().toArray();
+		long[] sortedDivisors = factorization.sortedDivisors().toArray();
+		
+		// then
+		assertEquals(factorization.divisorCount(), divisors.length);
+		for (long divisor : divisors){
+			assertEquals(0, number % divisor);
+		}
+		long[] expected = divisors.clone();
+		Arrays.sort(expected);
+		assertArrayEquals(expected, sortedDivisors);
+		assertEquals(Arrays.stream(expected).distinct().count(), expected.length);
+	}
+	
+	@Test
+	void testDivisorsOrder(){
+		assertArrayEquals(new long[]{ 1, 2, 4, 3, 6, 12 }, Factorization.of(12).divisors().toArray());
+	}
+	
+	@ParameterizedTest
+	@ValueSource(longs = { 0, -1, Long.MIN_VALUE })
+	void testOfNonPositive(long number){
+		assertThrows(IllegalArgumentException.class, () -> Factorization.of(number));
+	}
+}
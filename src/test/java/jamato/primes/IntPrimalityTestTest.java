@@ -0,0 +1,64 @@
+package jamato.primes;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+import java.util.stream.Stream;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/** Tests the {@link IntPrimalityTest} enum. */
+class IntPrimalityTestTest{
+	
+	@ParameterizedTest
+	@MethodSource
+	void testIsSievedNumberPrime(IntPrimalityTest primalityTest, int lowerBound, int upperBound){
+		// given
+		int[] primes = Primes.rangeArray(lowerBound, upperBound);
+		
+		// when/then
+		int index = 0;
+		for (int n = lowerBound | 1; n < upperBound && n > 0; n += 2){
+			boolean expected = index < primes.length && primes[index] == n;
+			assertEquals(expected, primalityTest.isSievedNumberPrime(n), Integer.toString(n));
+			if (expected){
+				index++;
+			}
+		}
+	}
+	
+	static Stream<Arguments> testIsSievedNumberPrime(){
+		return Stream.of(IntPrimalityTest.values()).flatMap(primalityTest -> Stream.of(
+				arguments(primalityTest, 3, 1 << 20),
+				arguments(primalityTest, 1_000_000_000, 1_000_500_000),
+				arguments(primalityTest, Primes.GREATEST_INT_PRIME - 500_000, Integer.MAX_VALUE)));
+	}
+	
+	@ParameterizedTest
+	@EnumSource(IntPrimalityTest.class)
+	void testStrongPseudoprimes(IntPrimalityTest primalityTest){
+		// Strong pseudoprimes to the base 2, to the bases 2 and 3, to the bases 2, 3 and 5, and to the bases 31 and 73
+		int[] pseudoprimes = { 2047, 1373653, 25326001, 9080191 };
+		for (int n : pseudoprimes){
+			assertFalse(primalityTest.isSievedNumberPrime(n), Integer.toString(n));
+		}
+	}
+	
+	@ParameterizedTest
+	@EnumSource(IntPrimalityTest.class)
+	void testContext(IntPrimalityTest primalityTest){
+		// given
+		PrimeContext context = new PrimeContext(PrimeCacheLayout.ARRAY, Long.MAX_VALUE, 1, primalityTest);
+		int lowerBound = Primes.GREATEST_INT_PRIME - 5000;
+		int[] expected = Primes.rangeArray(lowerBound, Primes.GREATEST_INT_PRIME);
+		
+		// when/then
+		assertArrayEquals(expected, context.rangeStream(lowerBound, Primes.GREATEST_INT_PRIME).toArray());
+		assertEquals(expected[1], context.nextPrime(expected[0]));
+	}
+}
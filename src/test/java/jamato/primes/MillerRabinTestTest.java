@@ -3,11 +3,13 @@ package jamato.primes;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 
+import java.math.BigInteger;
 import java.util.stream.Stream;
 
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 /** Tests the {@link MillerRabinTest} class. */
 class MillerRabinTestTest{
@@ -50,4 +52,41 @@ class MillerRabinTestTest{
 				arguments(15, Primes.GREATEST_INT_PRIME, false),
 				arguments(Integer.MAX_VALUE, Primes.GREATEST_INT_PRIME, true));
 	}
+	
+	@ParameterizedTest
+	@MethodSource
+	void testLong(long n, long base, boolean expectedResult){
+		boolean actualResult = MillerRabinTest.test(n, base);
+		assertEquals(expectedResult, actualResult);
+	}
+	
+	static Stream<Arguments> testLong(){
+		return Stream.of(
+				arguments(3L, 2L, true),
+				arguments(9L, 2L, false),
+				arguments(2047L, 2L, true), // Smallest strong pseudoprime to base 2
+				arguments((long) Integer.MAX_VALUE, 2L, true),
+				arguments(3215031751L, 2L, true),
+				arguments(3215031751L, 7L, true),
+				arguments(3215031751L, 11L, false),
+				arguments(2305843009213693951L, 3L, true),
+				arguments(2305843009213693953L, 3L, false),
+				arguments(Primes.GREATEST_LONG_PRIME, 2L, true),
+				arguments(Primes.GREATEST_LONG_PRIME, Long.MAX_VALUE, true),
+				arguments(Long.MAX_VALUE, 2L, false),
+				arguments(3825123056546413051L, 31L, true),
+				arguments(3825123056546413051L, 37L, false));
+	}
+	
+	@ParameterizedTest
+	@ValueSource(ints = { 3, 2_000_001, Integer.MAX_VALUE - 20_000 })
+	void testAgainstBigInteger(int start){
+		for (int n = start; n > 0 && n < start + 20_000; n += 2){
+			for (int base : new int[]{ 2, 7, 61, Integer.MAX_VALUE }){
+				boolean expectedResult = MillerRabinTest.test(BigInteger.valueOf(n), BigInteger.valueOf(base));
+				assertEquals(expectedResult, MillerRabinTest.test(n, base), n + " " + base);
+				assertEquals(expectedResult, MillerRabinTest.test((long) n, base), n + " " + base);
+			}
+		}
+	}
 }
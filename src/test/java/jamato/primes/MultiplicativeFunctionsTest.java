@@ -0,0 +1,111 @@
+package jamato.primes;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import jamato.algebra.GCD;
+
+/** Tests the {@link MultiplicativeFunctions} class. */
+class MultiplicativeFunctionsTest{
+	
+	private static final int LIMIT = 5000;
+	
+	private final PrimeFactorTable table = new PrimeFactorTable(LIMIT);
+	
+	@Test
+	void testTotients(){
+		// when
+		int[] totients = MultiplicativeFunctions.totients(table);
+		
+		// then
+		assertEquals(LIMIT, totients.length);
+		assertEquals(0, totients[0]);
+		for (int n = 1; n < LIMIT; n++){
+			int expected = 0;
+			for (int k = 1; k <= n; k++){
+				if (GCD.of(n, k) == 1){
+					expected++;
+				}
+			}
+			assertEquals(expected, totients[n], Integer.toString(n));
+		}
+	}
+	
+	@Test
+	void testMoebius(){
+		// when
+		byte[] moebius = MultiplicativeFunctions.moebius(table);
+		
+		// then
+		assertEquals(0, moebius[0]);
+		for (int n = 1; n < LIMIT; n++){
+			Factorization factorization = Factorization.of(n);
+			int expected = factorization.size() % 2 == 0 ? 1 : -1;
+			for (int exponent : factorization.getExponents()){
+				if (exponent > 1){
+					expected = 0;
+				}
+			}
+			assertEquals(expected, moebius[n], Integer.toString(n));
+		}
+	}
+	
+	@Test
+	void testDivisorCountsAndSums(){
+		// when
+		int[] counts = MultiplicativeFunctions.divisorCounts(table);
+		long[] sums = MultiplicativeFunctions.divisorSums(table);
+		
+		// then
+		for (int n = 1; n < LIMIT; n++){
+			int[] divisors = Primes.getDivisors(n);
+			assertEquals(divisors.length, counts[n], Integer.toString(n));
+			assertEquals(Arrays.stream(divisors).asLongStream().sum(), sums[n], Integer.toString(n));
+		}
+	}
+	
+	@Test
+	void testValues(){
+		// when
+		long[] identity = MultiplicativeFunctions.values(table, (p, e) -> (long) Math.pow(p, e));
+		long[] squareFreeKernel = MultiplicativeFunctions.values(table, (p, e) -> p);
+		
+		// then
+		for (int n = 1; n < LIMIT; n++){
+			assertEquals(n, identity[n]);
+			long expected = Arrays.stream(Factorization.of(n).getPrimes()).reduce(1, (a, b) -> a * b);
+			assertEquals(expected, squareFreeKernel[n]);
+		}
+	}
+	
+	@Test
+	void testParallel(){
+		// given
+		int limit = 3_000_000;
+		PrimeFactorTable largeTable = new PrimeFactorTable(limit);
+		Random random = new Random(42);
+		int[] numbers = random.ints(1000, 1, limit).toArray();
+		
+		// when
+		int[] totients = MultiplicativeFunctions.totients(largeTable);
+		
+		// then
+		int[] expected = new int[numbers.length];
+		int[] actual = new int[numbers.length];
+		for (int i = 0; i < numbers.length; i++){
+			Factorization factorization = Factorization.of(numbers[i]);
+			long totient = numbers[i];
+			for (long p : factorization.getPrimes()){
+				totient = totient / p * (p - 1);
+			}
+			expected[i] = (int) totient;
+			actual[i] = totients[numbers[i]];
+		}
+		assertArrayEquals(expected, actual);
+	}
+}
@@ -0,0 +1,120 @@
+package jamato.primes;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/** Tests the {@link PrimeContext} class. */
+class PrimeContextTest{
+	
+	@ParameterizedTest
+	@ValueSource(ints = { 1, 2, 3, 4, 5, 6, 7 })
+	void testWheelPrimes(int wheelPrimes){
+		// given
+		PrimeContext context = new PrimeContext(PrimeCacheLayout.ARRAY, Long.MAX_VALUE, wheelPrimes);
+		int lowerBound = Primes.GREATEST_INT_PRIME - 10_000;
+		int[] expected = Primes.rangeArray(lowerBound, Primes.GREATEST_INT_PRIME);
+		int[] expectedStart = IntStream.of(expected).filter(p -> p < lowerBound + 300).toArray();
+		
+		// when/then
+		for (int n = 0; n < 1000; n++){
+			assertEquals(Primes.isPrime(n), context.isPrime(n), Integer.toString(n));
+		}
+		assertArrayEquals(expected, context.rangeArray(lowerBound, Primes.GREATEST_INT_PRIME));
+		assertArrayEquals(expectedStart, context.rangeStream(lowerBound, lowerBound + 300).toArray());
+		assertArrayEquals(expectedStart, context.rangeArray(lowerBound, lowerBound + 300));
+		assertEquals(expected[1], context.nextPrime(expected[0]));
+		assertEquals(9223372036854775783L, context.nextPrime(9223372036854775782L));
+		assertTrue(context.isPrime(9223372036854775783L));
+	}
+	
+	@ParameterizedTest
+	@EnumSource(PrimeCacheLayout.class)
+	void testIsolation(PrimeCacheLayout layout){
+		// given
+		PrimeContext first = new PrimeContext(layout, Long.MAX_VALUE);
+		PrimeContext second = new PrimeContext(layout, 4096);
+		int[] expected = Primes.array(0, 100_000);
+		
+		// when
+		assertArrayEquals(expected, first.array(0, expected.length));
+		second.resetCache(PrimeCacheLayout.BITMAP);
+		
+		// then
+		assertEquals(expected[expected.length - 1], first.nth(expected.length - 1));
+		assertEquals(expected.length, first.count(expected[expected.length - 1] + 1));
+		assertArrayEquals(expected, second.stream(0, expected.length).toArray());
+		assertArrayEquals(expected, first.rangeStream(0, expected[expected.length - 1] + 1).toArray());
+	}
+	
+	@Test
+	void testDefaultContext(){
+		// given
+		PrimeContext context = Primes.getDefaultContext();
+		
+		// when
+		context.resetCache();
+		int[] primes = context.array(0, 1000);
+		
+		// then
+		assertArrayEquals(primes, Primes.array(0, 1000));
+		assertEquals(primes[999], Primes.nth(999));
+	}
+	
+	@Test
+	void testPrefillAsync() throws InterruptedException, ExecutionException{
+		// given
+		PrimeContext context = new PrimeContext();
+		int[] expected = Primes.rangeArray(0, 2_000_000);
+		
+		// when
+		CompletableFuture<Void> future = context.prefillAsync(2_000_000);
+		int[] start = context.array(0, 1000);
+		future.get();
+		
+		// then
+		assertArrayEquals(Arrays.copyOf(expected, 1000), start);
+		assertArrayEquals(expected, context.array(0, expected.length));
+	}
+	
+	@Test
+	void testPrefillAsyncWithExecutor(){
+		// given
+		PrimeContext context = new PrimeContext();
+		List<Runnable> tasks = new ArrayList<>();
+		
+		// when
+		CompletableFuture<Void> cancelled = context.prefillAsync(1_000_000, tasks::add);
+		cancelled.cancel(false);
+		CompletableFuture<Void> completed = context.prefillAsync(1_000_000, tasks::add);
+		tasks.forEach(Runnable::run);
+		
+		// then
+		assertEquals(2, tasks.size());
+		assertTrue(cancelled.isCancelled());
+		assertTrue(completed.isDone() && !completed.isCompletedExceptionally());
+		assertEquals(78498, context.count(1_000_000));
+	}
+	
+	@Test
+	void testInvalidArguments(){
+		assertThrows(IllegalArgumentException.class, () -> new PrimeContext(PrimeCacheLayout.ARRAY, Long.MAX_VALUE, 0));
+		assertThrows(IllegalArgumentException.class,
+				() -> new PrimeContext(PrimeCacheLayout.ARRAY, Long.MAX_VALUE, PrimeContext.MAX_WHEEL_PRIMES + 1));
+		assertThrows(IllegalArgumentException.class, () -> new PrimeContext(PrimeCacheLayout.ARRAY, -1));
+		assertThrows(NullPointerException.class, () -> new PrimeContext(null, Long.MAX_VALUE));
+	}
+}
\ No newline at end of file
@@ -0,0 +1,107 @@
+package jamato.primes;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/** Tests the {@link PrimeFactorTable} class. */
+class PrimeFactorTableTest{
+	
+	@ParameterizedTest
+	@ValueSource(ints = { 1, 2, 3, 10, 11, 1000, 1001, 100_000 })
+	void testIsPrime(int limit){
+		// given
+		PrimeFactorTable table = new PrimeFactorTable(limit);
+		
+		// when/then
+		for (int n = -1; n < limit; n++){
+			assertEquals(Primes.isPrime(n), table.isPrime(n), Integer.toString(n));
+		}
+	}
+	
+	@Test
+	void testFactor(){
+		// given
+		int limit = 200_000;
+		PrimeFactorTable table = new PrimeFactorTable(limit);
+		int[] primes = new int[PrimeFactorTable.MAX_DISTINCT_PRIME_FACTORS];
+		int[] exponents = new int[PrimeFactorTable.MAX_DISTINCT_PRIME_FACTORS];
+		
+		for (int n = 1; n < limit; n++){
+			// when
+			int count = table.factor(n, primes, exponents);
+			
+			// then
+			Factorization expected = Factorization.of(n);
+			assertEquals(expected.size(), count);
+			for (int i = 0; i < count; i++){
+				assertEquals(expected.getPrime(i), primes[i]);
+				assertEquals(expected.getExponent(i), exponents[i]);
+			}
+			assertEquals(expected.toString(), table.getFactorization(n).toString());
+			if (n > 1){
+				assertEquals(primes[0], table.smallestPrimeFactor(n));
+			}
+		}
+	}
+	
+	@Test
+	void testFactorMaxDistinctPrimeFactors(){
+		// given
+		int number = 2 * 3 * 5 * 7 * 11 * 13 * 17 * 19 * 23;
+		PrimeFactorTable table = new PrimeFactorTable(number + 1);
+		int[] primes = new int[PrimeFactorTable.MAX_DISTINCT_PRIME_FACTORS];
+		int[] exponents = new int[PrimeFactorTable.MAX_DISTINCT_PRIME_FACTORS];
+		
+		// when
+		int count = table.factor(number, primes, exponents);
+		
+		// then
+		assertEquals(PrimeFactorTable.MAX_DISTINCT_PRIME_FACTORS, count);
+		assertArrayEquals(new int[]{ 2, 3, 5, 7, 11, 13, 17, 19, 23 }, primes);
+	}
+	
+	@ParameterizedTest
+	@ValueSource(ints = { 10, 100_000 })
+	void testFactorAll(int length){
+		// given
+		int limit = 1 << 24;
+		PrimeFactorTable table = new PrimeFactorTable(limit);
+		Random random = new Random(42);
+		int[] numbers = random.ints(length, 1, limit).toArray();
+		int[] offsets = new int[length + 1];
+		
+		// when
+		int[] factors = table.factorAll(numbers, offsets);
+		
+		// then
+		assertEquals(factors.length, offsets[length]);
+		for (int i = 0; i < length; i++){
+			int product = 1;
+			for (int j = offsets[i]; j < offsets[i + 1]; j++){
+				assertTrue(table.isPrime(factors[j]));
+				assertTrue(j == offsets[i] || factors[j - 1] <= factors[j]);
+				product *= factors[j];
+			}
+			assertEquals(numbers[i], product);
+		}
+	}
+	
+	@Test
+	void testOutOfRange(){
+		PrimeFactorTable table = new PrimeFactorTable(100);
+		assertThrows(IllegalArgumentException.class, () -> new PrimeFactorTable(0));
+		assertThrows(IllegalArgumentException.class, () -> table.smallestPrimeFactor(1));
+		assertThrows(IllegalArgumentException.class, () -> table.smallestPrimeFactor(100));
+		assertThrows(IllegalArgumentException.class, () -> table.factor(0, new int[9], new int[9]));
+		assertThrows(IllegalArgumentException.class, () -> table.isPrime(100));
+		assertThrows(IllegalArgumentException.class, () -> table.factorAll(new int[]{ 5, 100 }, new int[3]));
+	}
+}
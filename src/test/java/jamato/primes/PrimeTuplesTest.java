@@ -0,0 +1,123 @@
+package jamato.primes;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/** Tests the {@link PrimeTuples} class. */
+class PrimeTuplesTest{
+	
+	@ParameterizedTest
+	@MethodSource
+	void testRangeStream(PrimeTuples tuples, int lowerBound, int upperBound){
+		// given
+		int[] expected = IntStream.range(lowerBound, upperBound).filter(n -> isTuple(tuples, n)).toArray();
+		
+		// when
+		int[] result = tuples.rangeStream(lowerBound, upperBound).toArray();
+		long[] longResult = tuples.longRangeStream(lowerBound, upperBound).toArray();
+		
+		// then
+		assertArrayEquals(expected, result);
+		assertArrayEquals(IntStream.of(expected).asLongStream().toArray(), longResult);
+	}
+	
+	static Stream<Arguments> testRangeStream(){
+		return Stream.of(
+				arguments(PrimeTuples.TWINS, 0, 100_000),
+				arguments(PrimeTuples.TWINS, -10, 14),
+				arguments(PrimeTuples.COUSINS, 0, 100_000),
+				arguments(PrimeTuples.SEXY, 5, 100_000),
+				arguments(PrimeTuples.QUADRUPLETS, 0, 1_000_000),
+				arguments(PrimeTuples.of(0, 2, 6), 1_000_000_000, 1_000_100_000),
+				arguments(PrimeTuples.of(0, 4, 6, 10, 12, 16), 0, 100_000),
+				arguments(PrimeTuples.of(0), 0, 1000),
+				arguments(PrimeTuples.TWINS, Primes.GREATEST_INT_PRIME - 100_000, Integer.MAX_VALUE));
+	}
+	
+	@Test
+	void testRangeStreamKnownTuples(){
+		assertArrayEquals(new int[]{ 3, 5, 11, 17, 29, 41, 59, 71 }, PrimeTuples.TWINS.rangeStream(0, 100).toArray());
+		assertArrayEquals(new int[]{ 5, 11, 101, 191, 821 }, PrimeTuples.QUADRUPLETS.rangeStream(0, 1000).toArray());
+	}
+	
+	@Test
+	void testLongRangeStream(){
+		// given
+		long lowerBound = 1_000_000_000_000L;
+		long upperBound = lowerBound + 200_000;
+		long[] expected = LongStream.range(lowerBound, upperBound)
+				.filter(n -> Primes.isPrime(n) && Primes.isPrime(n + 2))
+				.toArray();
+		
+		// when
+		long[] result = PrimeTuples.TWINS.longRangeStream(lowerBound, upperBound).toArray();
+		
+		// then
+		assertArrayEquals(expected, result);
+	}
+	
+	@Test
+	void testLongRangeStreamAtEnd(){
+		// given
+		long lowerBound = Long.MAX_VALUE - 100_000;
+		long[] expected = LongStream.range(lowerBound, Long.MAX_VALUE - 5)
+				.filter(n -> Primes.isPrime(n) && Primes.isPrime(n + 6))
+				.toArray();
+		
+		// when
+		long[] result = PrimeTuples.SEXY.longRangeStream(lowerBound, Long.MAX_VALUE).toArray();
+		
+		// then
+		assertArrayEquals(expected, result);
+	}
+	
+	@Test
+	void testMatches(){
+		assertTrue(PrimeTuples.TWINS.matches(3));
+		assertTrue(PrimeTuples.QUADRUPLETS.matches(5));
+		assertTrue(PrimeTuples.TWINS.matches(1_000_000_000_061L));
+		assertFalse(PrimeTuples.TWINS.matches(7));
+		assertFalse(PrimeTuples.TWINS.matches(-3));
+		assertFalse(PrimeTuples.TWINS.matches(Long.MAX_VALUE));
+	}
+	
+	@Test
+	void testInvalidArguments(){
+		assertThrows(IllegalArgumentException.class, () -> PrimeTuples.of());
+		assertThrows(IllegalArgumentException.class, () -> PrimeTuples.of(2, 4));
+		assertThrows(IllegalArgumentException.class, () -> PrimeTuples.of(0, 6, 2));
+		assertThrows(IllegalArgumentException.class, () -> PrimeTuples.of(0, 1));
+		assertThrows(IllegalArgumentException.class, () -> PrimeTuples.of(0, 2, 4));
+		assertThrows(IllegalArgumentException.class, () -> PrimeTuples.of(0, 2, 6, 8, 12, 14, 18, 20, 24, 26, 30, 32));
+		assertThrows(IllegalArgumentException.class, () -> PrimeTuples.TWINS.rangeStream(10, 9));
+		assertThrows(IllegalArgumentException.class, () -> PrimeTuples.TWINS.longRangeStream(10, 9));
+	}
+	
+	/**
+	 * Checks if all members of the tuple starting at the given number are prime, using the primes in the cache.
+	 *
+	 * @param tuples the pattern
+	 * @param number the first member
+	 * @return <code>true</code> if the number starts a tuple
+	 */
+	private static boolean isTuple(PrimeTuples tuples, int number){
+		for (int offset : tuples.getOffsets()){
+			if ((long) number + offset > Integer.MAX_VALUE || !Primes.isPrime(number + offset)){
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -3,18 +3,37 @@ package jamato.primes;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 
+import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
 import java.util.PrimitiveIterator.OfInt;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 class PrimesTest{
 	
@@ -44,6 +63,243 @@ class PrimesTest{
 				arguments(Primes.GREATEST_INT_PRIME, true));
 	}
 	
+	@ParameterizedTest
+	@ValueSource(ints = { 10, 1000, 100_000 })
+	void testIsPrimeBatch(int length){
+		// given
+		Random random = new Random(length);
+		int[] numbers = new int[length];
+		for (int i = 0; i < length; i++){
+			switch (i % 4){
+			case 0:
+				numbers[i] = random.nextInt();
+				break;
+			case 1:
+				numbers[i] = random.nextInt(200_000) - 100;
+				break;
+			default:
+				numbers[i] = Integer.MAX_VALUE - random.nextInt(1000);
+			}
+		}
+		Primes.array(0, 1000);
+		boolean[] results = new boolean[length];
+		long[] bitmask = new long[(length + 63) / 64];
+		Arrays.fill(bitmask, -1);
+		
+		// when
+		Primes.isPrime(numbers, results);
+		Primes.isPrime(numbers, bitmask);
+		
+		// then
+		for (int i = 0; i < length; i++){
+			assertEquals(Primes.isPrime(numbers[i]), results[i], Integer.toString(numbers[i]));
+			assertEquals(results[i], (bitmask[i / 64] >>> i & 1) != 0);
+		}
+		assertEquals(0, bitmask[bitmask.length - 1] >>> 1 >>> ((length - 1) & 63));
+	}
+	
+	@Test
+	void testFilterPrimes(){
+		// given
+		int[] expected = IntStream.range(2_000_000_000, 2_000_100_000).filter(Primes::isPrime).toArray();
+		
+		// when
+		int[] sequential = Primes.filterPrimes(IntStream.range(2_000_000_000, 2_000_100_000)).toArray();
+		int[] parallel = Primes.filterPrimes(IntStream.range(2_000_000_000, 2_000_100_000).parallel()).toArray();
+		int[] limited = Primes.filterPrimes(IntStream.iterate(-5, n -> n + 1)).limit(5).toArray();
+		
+		// then
+		assertArrayEquals(expected, sequential);
+		assertArrayEquals(expected, parallel);
+		assertArrayEquals(new int[]{ 2, 3, 5, 7, 11 }, limited);
+	}
+	
+	@ParameterizedTest
+	@MethodSource
+	void testIsPrimeLong(long number, boolean expected){
+		assertEquals(expected, Primes.isPrime(number));
+	}
+	
+	static Stream<Arguments> testIsPrimeLong(){
+		return Stream.of(
+				arguments(Long.MIN_VALUE, false),
+				arguments(-7L, false),
+				arguments(2L, true),
+				arguments(9973L, true),
+				arguments((long) Primes.GREATEST_INT_PRIME, true),
+				arguments(2147483659L, true),
+				arguments(3215031751L, false), // Smallest strong pseudoprime to the bases 2, 3, 5 and 7
+				arguments(1000000000039L, true),
+				arguments(341550071728321L, false), // Smallest strong pseudoprime to the bases 2 to 17
+				arguments(2305843009213693951L, true),
+				arguments(3825123056546413051L, false), // Strong pseudoprime to the bases 2 to 31
+				arguments(Primes.GREATEST_LONG_PRIME, true),
+				arguments(Long.MAX_VALUE, false));
+	}
+	
+	@ParameterizedTest
+	@ValueSource(longs = { 4_294_967_296L, 1_000_000_000_000L, 4_000_000_000_000_000_000L })
+	void testIsPrimeLongRange(long start){
+		for (long n = start; n < start + 10_000; n++){
+			assertEquals(BigInteger.valueOf(n).isProbablePrime(50), Primes.isPrime(n), Long.toString(n));
+		}
+	}
+	
+	@ParameterizedTest
+	@MethodSource
+	void testIsPrimeBigInteger(BigInteger number, boolean expected){
+		assertEquals(expected, Primes.isPrime(number));
+	}
+	
+	static Stream<Arguments> testIsPrimeBigInteger(){
+		BigInteger two = BigInteger.valueOf(2);
+		return Stream.of(
+				arguments(BigInteger.valueOf(-2), false),
+				arguments(BigInteger.valueOf(Primes.GREATEST_LONG_PRIME), true),
+				arguments(two.pow(64).add(BigInteger.valueOf(13)), true),
+				arguments(two.pow(64).add(BigInteger.valueOf(15)), false),
+				arguments(two.pow(67).subtract(BigInteger.ONE), false),
+				arguments(two.pow(89).subtract(BigInteger.ONE), true),
+				arguments(two.pow(89).subtract(BigInteger.ONE).multiply(BigInteger.valueOf(997)), false),
+				arguments(two.pow(89).subtract(BigInteger.ONE).multiply(BigInteger.valueOf(1009)), false));
+	}
+	
+	@ParameterizedTest
+	@ValueSource(ints = { 64, 100, 256, 1024 })
+	void testIsPrimeBigIntegerRange(int bits){
+		BigInteger start = BigInteger.ONE.shiftLeft(bits);
+		for (int i = 0; i < 2000; i++){
+			BigInteger n = start.add(BigInteger.valueOf(i));
+			assertEquals(n.isProbablePrime(100), Primes.isPrime(n), n.toString());
+		}
+	}
+	
+	@ParameterizedTest
+	@MethodSource
+	void testNextPrime(long number, long expected){
+		assertEquals(expected, Primes.nextPrime(number));
+	}
+	
+	static Stream<Arguments> testNextPrime(){
+		return Stream.of(
+				arguments(Long.MIN_VALUE, 2L),
+				arguments(2L, 3L),
+				arguments(7920L, 7927L),
+				arguments(1_000_000_000L, 1_000_000_007L),
+				arguments((long) Primes.GREATEST_INT_PRIME, 2147483659L),
+				arguments(1_000_000_000_000L, 1_000_000_000_039L),
+				arguments(Primes.GREATEST_LONG_PRIME - 1, Primes.GREATEST_LONG_PRIME));
+	}
+	
+	@Test
+	void testNextPrimeOverflow(){
+		assertThrows(ArithmeticException.class, () -> Primes.nextPrime(Primes.GREATEST_LONG_PRIME));
+	}
+	
+	@ParameterizedTest
+	@MethodSource
+	void testLongRangeStream(long lowerBound, long upperBound, long[] expected){
+		assertArrayEquals(expected, Primes.longRangeStream(lowerBound, upperBound).toArray());
+	}
+	
+	static Stream<Arguments> testLongRangeStream(){
+		return Stream.of(
+				arguments(-10L, 10L, new long[]{ 2, 3, 5, 7 }),
+				arguments(2147483640L, 2147483700L, new long[]{ 2147483647L, 2147483659L, 2147483693L }),
+				arguments(1_000_000_000_000L, 1_000_000_000_100L, new long[]{ 1000000000039L, 1000000000061L,
+						1000000000063L, 1000000000091L }),
+				arguments(Primes.GREATEST_LONG_PRIME, Long.MAX_VALUE, new long[]{ Primes.GREATEST_LONG_PRIME }));
+	}
+	
+	@ParameterizedTest
+	@MethodSource
+	void testCount(long upperBound, long expected){
+		assertEquals(expected, Primes.count(upperBound));
+	}
+	
+	static Stream<Arguments> testCount(){
+		return Stream.of(
+				arguments(Long.MIN_VALUE, 0L),
+				arguments(2L, 0L),
+				arguments(3L, 1L),
+				arguments(100L, 25L),
+				arguments(1_000_000_000L, 50_847_534L),
+				arguments(Primes.GREATEST_INT_PRIME + 1L, (long) Primes.NUMBER_OF_INT_PRIMES),
+				arguments(10_000_000_000L, 455_052_511L),
+				arguments(100_000_000_000L, 4_118_054_813L));
+	}
+	
+	@ParameterizedTest
+	@ValueSource(ints = { 0, 1, 2, 3, 4, 5, 100, 7920, 1_000_000, 123_456_789 })
+	void testCountInt(int upperBound){
+		// given
+		int expected = Primes.rangeArray(0, upperBound).length;
+		Primes.resetCache();
+		
+		// when
+		int count = Primes.count(upperBound);
+		
+		// then
+		assertEquals(expected, count);
+	}
+	
+	@ParameterizedTest
+	@MethodSource
+	void testCountRange(long lowerBound, long upperBound, long expected){
+		assertEquals(expected, Primes.count(lowerBound, upperBound));
+	}
+	
+	static Stream<Arguments> testCountRange(){
+		return Stream.of(
+				arguments(-10L, 10L, 4L),
+				arguments(15L, 35L, 5L),
+				arguments(1_000_000_000L, 1_000_000_207L, 10L),
+				arguments(1_000_000_000_000L, 1_000_000_000_100L, 4L));
+	}
+	
+	@Test
+	void testCountInvalidRange(){
+		assertThrows(IllegalArgumentException.class, () -> Primes.count(10L, 9L));
+	}
+	
+	@ParameterizedTest
+	@MethodSource
+	void testNth(int index, int expected){
+		assertEquals(expected, Primes.nth(index));
+	}
+	
+	static Stream<Arguments> testNth(){
+		return Stream.of(
+				arguments(0, 2),
+				arguments(1, 3),
+				arguments(7, 19),
+				arguments(8, 23),
+				arguments(999, 7919),
+				arguments(999_999, 15485863),
+				arguments(99_999_999, 2038074743),
+				arguments(Primes.NUMBER_OF_INT_PRIMES - 1, Primes.GREATEST_INT_PRIME));
+	}
+	
+	@ParameterizedTest
+	@ValueSource(ints = { 8, 100, 6542, 6543, 50_000, 78_497, 78_498, 1_000_000 })
+	void testNthAgainstCache(int index){
+		// given
+		int expected = Primes.array(index, index + 1)[0];
+		Primes.resetCache();
+		
+		// when
+		int prime = Primes.nth(index);
+		
+		// then
+		assertEquals(expected, prime);
+	}
+	
+	@ParameterizedTest
+	@ValueSource(ints = { -1, Primes.NUMBER_OF_INT_PRIMES })
+	void testNthOutOfBounds(int index){
+		assertThrows(IndexOutOfBoundsException.class, () -> Primes.nth(index));
+	}
+	
 	@ParameterizedTest
 	@MethodSource
 	void testArray(int fromIndex, int toIndex, int[] expected){
@@ -59,7 +315,8 @@ class PrimesTest{
 						25,
 						new int[]{ 2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47, 53, 59, 61, 67, 71, 73, 79,
 								83, 89, 97 }),
-				arguments(1000, 1010, new int[]{ 7927, 7933, 7937, 7949, 7951, 7963, 7993, 8009, 8011, 8017 }));
+				arguments(1000, 1010, new int[]{ 7927, 7933, 7937, 7949, 7951, 7963, 7993, 8009, 8011, 8017 }),
+				arguments(999_999, 1_000_002, new int[]{ 15485863, 15485867, 15485917 }));
 	}
 	
 	@ParameterizedTest
@@ -69,7 +326,7 @@ class PrimesTest{
 	}
 	
 	static Stream<Arguments> testArrayLength(){
-		return Stream.of(arguments(0, 0), arguments(78498, 78498));
+		return Stream.of(arguments(0, 0), arguments(78498, 78498), arguments(1_000_000, 1_000_000));
 	}
 	
 	@ParameterizedTest
@@ -93,6 +350,64 @@ class PrimesTest{
 				arguments(Primes.GREATEST_INT_PRIME - 10, Primes.GREATEST_INT_PRIME, new int[0]));
 	}
 	
+	@ParameterizedTest
+	@ValueSource(ints = { 1000, 2_000_000 })
+	void testRangeArrayBeyondCache(int length){
+		// given
+		int lowerBound = Primes.GREATEST_INT_PRIME - length;
+		int[] expected = Primes.filterPrimes(IntStream.range(lowerBound, Primes.GREATEST_INT_PRIME)).toArray();
+		
+		// when
+		int[] primes = Primes.rangeArray(lowerBound, Primes.GREATEST_INT_PRIME);
+		
+		// then
+		assertArrayEquals(expected, primes);
+	}
+	
+	@ParameterizedTest
+	@MethodSource
+	void testPrimalityBits(int lowerBound, int upperBound){
+		// given
+		int length = upperBound - lowerBound;
+		long[] expected = new long[(length + 63) / 64];
+		for (int prime : Primes.rangeArray(lowerBound, upperBound)){
+			expected[(prime - lowerBound) / 64] |= 1L << (prime - lowerBound);
+		}
+		long[] bitmask = new long[expected.length + 1];
+		Arrays.fill(bitmask, -1);
+		long[] sieved = new long[expected.length];
+		
+		// when
+		long[] result = Primes.primalityBits(lowerBound, upperBound);
+		Primes.primalityBits(lowerBound, upperBound, bitmask);
+		SegmentedSieve.setPrimeBits(Math.max(lowerBound, 0), upperBound, lowerBound, sieved);
+		
+		// then
+		assertArrayEquals(expected, result);
+		assertArrayEquals(expected, Arrays.copyOf(bitmask, expected.length));
+		assertEquals(-1, bitmask[expected.length]);
+		assertArrayEquals(expected, sieved);
+	}
+	
+	static Stream<Arguments> testPrimalityBits(){
+		return Stream.of(
+				arguments(0, 0),
+				arguments(0, 100),
+				arguments(1, 100),
+				arguments(3, 130),
+				arguments(-70, 70),
+				arguments(999_999, 1_000_000 + 3 * SegmentedSieve.SEGMENT_LENGTH),
+				arguments(1_000_000_000, 1_000_000_207),
+				arguments(2_000_000_001, 2_002_000_000),
+				arguments(Primes.GREATEST_INT_PRIME - 1000, Primes.GREATEST_INT_PRIME));
+	}
+	
+	@Test
+	void testPrimalityBitsInvalidArguments(){
+		assertThrows(IllegalArgumentException.class, () -> Primes.primalityBits(10, 9));
+		assertThrows(IllegalArgumentException.class, () -> Primes.primalityBits(0, 65, new long[1]));
+	}
+	
 	@Test
 	void testStream(){
 		int[] values = Primes.stream().limit(10).toArray();
@@ -157,6 +472,48 @@ class PrimesTest{
 				arguments(2147483629, Primes.GREATEST_INT_PRIME, new int[]{ 2147483629 }));
 	}
 	
+	@ParameterizedTest
+	@ValueSource(ints = { 1000, 100000, 1000000 })
+	void testParallelRangeStreamBeyondCache(int length){
+		// given
+		int lowerBound = Primes.GREATEST_INT_PRIME - length;
+		int[] expected = Primes.filterPrimes(IntStream.range(lowerBound, Primes.GREATEST_INT_PRIME)).toArray();
+		
+		// when
+		int[] primes = Primes.rangeStream(lowerBound, Primes.GREATEST_INT_PRIME).toArray();
+		
+		// then
+		assertArrayEquals(expected, primes);
+	}
+	
+	@ParameterizedTest
+	@MethodSource
+	void testSieveStreamSize(int startExclusive, int endInclusive){
+		// given
+		PrimesSieve sieve = new PrimesSieve(2, 3, 5, 7, 11, 13);
+		long expected = IntStream.rangeClosed(startExclusive + 1, endInclusive).filter(sieve::isCandidate).count();
+		
+		// when
+		Spliterator.OfInt spliterator = sieve.stream(startExclusive, endInclusive).spliterator();
+		Spliterator.OfInt prefix = spliterator.trySplit();
+		
+		// then
+		assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+		assertEquals(expected, spliterator.estimateSize() + (prefix == null ? 0 : prefix.estimateSize()));
+		assertEquals(spliterator.estimateSize(), spliterator.getExactSizeIfKnown());
+		assertEquals(spliterator.estimateSize(), StreamSupport.intStream(spliterator, false).toArray().length);
+	}
+	
+	static Stream<Arguments> testSieveStreamSize(){
+		return Stream.of(
+				arguments(16, 16),
+				arguments(16, 100),
+				arguments(16, 30030),
+				arguments(30029, 30031),
+				arguments(1000, 1000000),
+				arguments(Integer.MAX_VALUE - 100000, Integer.MAX_VALUE));
+	}
+	
 	@Test
 	void testIterator(){
 		// when
@@ -249,6 +606,250 @@ class PrimesTest{
 				arguments(Primes.GREATEST_INT_PRIME - 10, Primes.GREATEST_INT_PRIME, new int[0]));
 	}
 	
+	@ParameterizedTest
+	@ValueSource(ints = { 100, 1000, 100000 })
+	void testRangeIteratorBeyondCache(int length){
+		// given
+		int lowerBound = 2_000_000_000;
+		int[] expected = Primes.filterPrimes(IntStream.range(lowerBound, lowerBound + length)).toArray();
+		
+		// when
+		OfInt iterator = Primes.rangeIterator(lowerBound, lowerBound + length);
+		
+		// then
+		for (int expectedValue : expected){
+			assertTrue(iterator.hasNext());
+			assertEquals(expectedValue, iterator.nextInt());
+		}
+		assertFalse(iterator.hasNext());
+	}
+	
+	@Test
+	void testRangeIteratorWithLowerBoundBeyondCache(){
+		// given
+		int lowerBound = 2_000_000_001;
+		int[] expected = Primes.filterPrimes(IntStream.range(lowerBound, lowerBound + 200000)).limit(5000).toArray();
+		
+		// when
+		OfInt iterator = Primes.rangeIterator(lowerBound);
+		
+		// then
+		for (int expectedValue : expected){
+			assertTrue(iterator.hasNext());
+			assertEquals(expectedValue, iterator.nextInt());
+		}
+	}
+	
+	@ParameterizedTest
+	@MethodSource
+	void testSegmentedSieveSpliterator(int lowerBound, int upperBound){
+		// given
+		int[] expected = Primes.rangeArray(lowerBound, upperBound);
+		int middle = lowerBound + upperBound >>> 1;
+		List<Integer> traversed = new ArrayList<>();
+		
+		// when
+		Spliterator.OfInt spliterator = new SegmentedSieveSpliterator(lowerBound, upperBound);
+		spliterator.tryAdvance((int prime) -> traversed.add(prime));
+		spliterator.forEachRemaining((int prime) -> traversed.add(prime));
+		Spliterator.OfInt prefix = new SegmentedSieveSpliterator(lowerBound, middle);
+		Spliterator.OfInt prefixStart = prefix.trySplit();
+		Spliterator.OfInt suffix = new SegmentedSieveSpliterator(middle, upperBound);
+		IntStream parts = IntStream.concat(StreamSupport.intStream(prefix, false),
+				StreamSupport.intStream(suffix, false));
+		if (prefixStart != null){
+			parts = IntStream.concat(StreamSupport.intStream(prefixStart, false), parts);
+		}
+		
+		// then
+		assertArrayEquals(expected, traversed.stream().mapToInt(Integer::intValue).toArray());
+		assertArrayEquals(expected, parts.toArray());
+	}
+	
+	static Stream<Arguments> testSegmentedSieveSpliterator(){
+		return Stream.of(
+				arguments(0, 100),
+				arguments(1, 100),
+				arguments(2, 100),
+				arguments(3, 100),
+				arguments(4, 200000),
+				arguments(1001, 1001 + 3 * SegmentedSieve.SEGMENT_LENGTH + 7),
+				arguments(1000000, 1000100));
+	}
+	
+	@ParameterizedTest
+	@EnumSource(PrimeCacheLayout.class)
+	void testCacheLayout(PrimeCacheLayout layout){
+		// given
+		int[] expected = Primes.array(0, 100_000);
+		
+		try{
+			// when
+			Primes.resetCache(layout);
+			
+			// then
+			assertArrayEquals(Arrays.copyOfRange(expected, 5, 50), Primes.array(5, 50));
+			assertArrayEquals(Arrays.copyOfRange(expected, 3, 100), Primes.stream(3, 100).toArray());
+			assertArrayEquals(expected, Primes.stream().limit(expected.length).toArray());
+			assertArrayEquals(Arrays.copyOfRange(expected, 1000, 2000), Primes.rangeArray(7927, 17393));
+			for (int n = -1; n <= expected[expected.length - 1]; n++){
+				assertEquals(Arrays.binarySearch(expected, n) >= 0, Primes.isPrime(n));
+			}
+			OfInt iterator = Primes.rangeIterator(7, 100);
+			for (int i = 3; expected[i] < 100; i++){
+				assertEquals(expected[i], iterator.nextInt());
+			}
+			assertFalse(iterator.hasNext());
+		}finally{
+			Primes.resetCache(PrimeCacheLayout.ARRAY);
+		}
+	}
+	
+	@ParameterizedTest
+	@EnumSource(PrimeCacheLayout.class)
+	void testBoundedCache(PrimeCacheLayout layout){
+		// given
+		int[] expected = Primes.array(0, 300_000);
+		
+		try{
+			// when
+			Primes.resetCache(layout, 4096);
+			int[] primes = Primes.array(0, expected.length);
+			Primes.trimCache();
+			
+			// then
+			assertArrayEquals(expected, primes);
+			assertArrayEquals(expected, Primes.array(0, expected.length));
+			assertArrayEquals(Arrays.copyOfRange(expected, 150_000, 250_000),
+					Primes.stream(150_000, 250_000).toArray());
+			assertArrayEquals(Arrays.copyOfRange(expected, 1000, 200_000),
+					Primes.rangeArray(expected[1000], expected[200_000]));
+			for (int i = 0; i < expected.length; i += 997){
+				assertEquals(expected[i], Primes.nth(i));
+				assertEquals(i, Primes.count(expected[i]));
+			}
+			for (int n = expected[expected.length - 1] - 10_000; n <= expected[expected.length - 1]; n++){
+				assertEquals(Arrays.binarySearch(expected, n) >= 0, Primes.isPrime(n));
+			}
+		}finally{
+			Primes.resetCache(PrimeCacheLayout.ARRAY, Long.MAX_VALUE);
+		}
+	}
+	
+	@Test
+	void testInvalidCacheBudget(){
+		assertThrows(IllegalArgumentException.class, () -> Primes.resetCache(PrimeCacheLayout.ARRAY, 0));
+	}
+	
+	@Test
+	void testTrimCache(){
+		// given
+		int[] expected = Primes.array(0, 100_000);
+		
+		// when
+		Primes.trimCache();
+		
+		// then
+		assertArrayEquals(expected, Primes.array(0, 100_000));
+		assertArrayEquals(Arrays.copyOf(Primes.array(0, 200_000), 100_000), expected);
+	}
+	
+	@Test
+	void testSaveAndLoadCache(@TempDir Path directory) throws IOException{
+		// given
+		int[] expected = Primes.array(0, 200_000);
+		Primes.resetCache();
+		Primes.array(0, 100_000);
+		Path file = directory.resolve("primes.bin");
+		Primes.saveCache(file);
+		Primes.resetCache();
+		
+		try{
+			// when
+			Primes.loadCache(file);
+			
+			// then
+			assertArrayEquals(Arrays.copyOfRange(expected, 99_990, 100_010), Primes.array(99_990, 100_010));
+			assertArrayEquals(expected, Primes.stream(0, expected.length).toArray());
+			for (int n = 1_299_000; n <= 1_300_000; n++){
+				assertEquals(Arrays.binarySearch(expected, n) >= 0, Primes.isPrime(n));
+			}
+			assertArrayEquals(Arrays.copyOfRange(expected, 1000, 2000), Primes.rangeArray(7927, 17393));
+		}finally{
+			Primes.resetCache();
+		}
+	}
+	
+	@Test
+	void testLoadCorruptCache(@TempDir Path directory) throws IOException{
+		// given
+		Primes.array(0, 1000);
+		Path file = directory.resolve("primes.bin");
+		Primes.saveCache(file);
+		byte[] content = Files.readAllBytes(file);
+		ByteBuffer.wrap(content).putInt(content.length - 4, 7919);
+		Files.write(file, content);
+		
+		// when, then
+		assertThrows(IOException.class, () -> Primes.loadCache(file));
+		assertThrows(IOException.class, () -> Primes.loadCache(directory.resolve("missing.bin")));
+	}
+	
+	@ParameterizedTest
+	@EnumSource(PrimeCacheLayout.class)
+	void testParallelStream(PrimeCacheLayout layout){
+		try{
+			// given
+			Primes.resetCache(layout);
+			
+			// when
+			long sum = Primes.stream(0, 148_933).parallel().asLongStream().sum();
+			long count = Primes.stream().parallel().limit(300_000).filter(p -> p % 4 == 1).count();
+			int[] primes = Primes.stream(1_000, 300_000).parallel().toArray();
+			
+			// then
+			assertEquals(142913828922L, sum);
+			assertEquals(Primes.stream(0, 300_000).filter(p -> p % 4 == 1).count(), count);
+			assertArrayEquals(Primes.array(1_000, 300_000), primes);
+		}finally{
+			Primes.resetCache(PrimeCacheLayout.ARRAY);
+		}
+	}
+	
+	@Test
+	void testConcurrentCacheAccess() throws InterruptedException, ExecutionException{
+		// given
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<Long>> results = new ArrayList<>();
+		
+		// when
+		for (int i = 0; i < 8; i++){
+			int threadNumber = i;
+			results.add(executor.submit(() -> {
+				long sum = 0;
+				if (threadNumber % 2 == 0){
+					OfInt iterator = Primes.iterator();
+					for (int p = iterator.nextInt(); p < 2_000_000; p = iterator.nextInt()){
+						sum += p;
+					}
+				}else{
+					for (int n = 1_999_999; n >= 0; n--){
+						if (Primes.isPrime(n)){
+							sum += n;
+						}
+					}
+				}
+				return sum;
+			}));
+		}
+		executor.shutdown();
+		
+		// then
+		for (Future<Long> result : results){
+			assertEquals(142913828922L, result.get());
+		}
+	}
+	
 	@ParameterizedTest
 	@MethodSource
 	void testGetDivisors(int number, int[] expected){
@@ -311,6 +912,11 @@ class PrimesTest{
 				arguments(BigInteger.valueOf(8L * 3 * 137 * 263 * 19867).pow(2), new int[]{ 2, 3, 137, 263, 19867 }),
 				
 				arguments(BigInteger.valueOf(997 * 5).pow(6), new int[]{ 5, 997 }),
-				arguments(BigInteger.TEN.pow(45), new int[]{ 2, 5 }));
+				arguments(BigInteger.TEN.pow(45), new int[]{ 2, 5 }),
+				arguments(BigInteger.valueOf(3L * 3 * 46337 * 2147483659L), new int[]{ 3, 46337 }),
+				
+				// The remainder fits into a long after the second factor is eliminated
+				arguments(BigInteger.valueOf(65537L * 1000003).multiply(BigInteger.valueOf(2147483659L)).shiftLeft(70),
+						new int[]{ 2, 65537, 1000003 }));
 	}
 }